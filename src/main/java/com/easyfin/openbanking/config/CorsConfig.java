@@ -30,7 +30,8 @@ public class CorsConfig {
                 "Content-Type",
                 "Authorization",
                 "Access-Control-Allow-Origin",
-                "Access-Control-Allow-Credentials"
+                "Access-Control-Allow-Credentials",
+                "X-Next-Cursor"
         ));
         
         // Allow all methods
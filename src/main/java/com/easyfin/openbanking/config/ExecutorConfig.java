@@ -0,0 +1,62 @@
+package com.easyfin.openbanking.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Bounded thread pools for background jobs and request fan-out
+ */
+@Configuration
+public class ExecutorConfig {
+    
+    /**
+     * Long-running background jobs (bulk recategorization, payroll runs)
+     */
+    @Bean
+    public ThreadPoolTaskExecutor jobExecutor(@Value("${easyfin.jobs.threads:2}") int threads,
+                                              @Value("${easyfin.jobs.queue-capacity:20}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("job-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+    
+    /**
+     * Short read-only queries fanned out while serving a single request.
+     * When saturated the caller runs the query itself, so requests slow down rather than fail.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor queryExecutor(@Value("${easyfin.query-fanout.threads:8}") int threads,
+                                                @Value("${easyfin.query-fanout.queue-capacity:64}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("query-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+    
+    /**
+     * CPU-bound payslip PDF rendering, shared by every archive download.
+     * When saturated the streaming thread renders the payslip itself.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor payslipExecutor(@Value("${easyfin.payslips.threads:4}") int threads,
+                                                  @Value("${easyfin.payslips.queue-capacity:64}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("payslip-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+}
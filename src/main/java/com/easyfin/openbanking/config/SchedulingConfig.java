@@ -0,0 +1,12 @@
+package com.easyfin.openbanking.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables scheduled maintenance jobs (forecast refresh and retention)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,17 +1,27 @@
 package com.easyfin.openbanking.controller;
 
+import com.easyfin.openbanking.dto.BacktestReportDTO;
 import com.easyfin.openbanking.dto.CashFlowDTO;
+import com.easyfin.openbanking.dto.CashFlowScenarioDTO;
+import com.easyfin.openbanking.dto.CashFlowScenarioRequestDTO;
+import com.easyfin.openbanking.dto.CashFlowSeriesDTO;
+import com.easyfin.openbanking.dto.CashFlowSimulationDTO;
+import com.easyfin.openbanking.dto.RecurringPaymentDTO;
 import com.easyfin.openbanking.model.Business;
 import com.easyfin.openbanking.model.CashFlowForecast;
 import com.easyfin.openbanking.repository.BusinessRepository;
+import com.easyfin.openbanking.service.CashFlowScenarioService;
 import com.easyfin.openbanking.service.CashFlowService;
+import com.easyfin.openbanking.service.ForecastBacktestService;
+import com.easyfin.openbanking.util.Money;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.LocalDateTime;
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -24,6 +34,8 @@ import java.util.List;
 public class CashFlowController {
     
     private final CashFlowService cashFlowService;
+    private final ForecastBacktestService forecastBacktestService;
+    private final CashFlowScenarioService cashFlowScenarioService;
     private final BusinessRepository businessRepository;
     
     @GetMapping("/forecast")
@@ -32,18 +44,78 @@ public class CashFlowController {
         Business business = businessRepository.findFirstByIsActiveTrueOrderByCreatedAtDesc()
                 .orElseThrow(() -> new RuntimeException("No active business found"));
         
-        List<CashFlowForecast> forecasts = cashFlowService.generateForecast(business, days);
+        List<CashFlowForecast> forecasts = cashFlowService.getForecast(business, days);
         return ResponseEntity.ok(forecasts);
     }
     
+    @GetMapping("/series")
+    @Operation(summary = "Get income, expense and net per day, week or month with MoM/YoY changes")
+    public ResponseEntity<CashFlowSeriesDTO> getSeries(
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        Business business = businessRepository.findFirstByIsActiveTrueOrderByCreatedAtDesc()
+                .orElseThrow(() -> new RuntimeException("No active business found"));
+        
+        return ResponseEntity.ok(cashFlowService.getSeries(business, granularity, from, to));
+    }
+    
+    @GetMapping("/simulation")
+    @Operation(summary = "Simulate balance paths and get P10/P50/P90 bands with shortfall probability")
+    public ResponseEntity<CashFlowSimulationDTO> getSimulation(
+            @RequestParam(defaultValue = "90") int days,
+            @RequestParam(defaultValue = "" + CashFlowService.DEFAULT_SIMULATION_PATHS) int paths,
+            @RequestParam(required = false) Long seed) {
+        Business business = businessRepository.findFirstByIsActiveTrueOrderByCreatedAtDesc()
+                .orElseThrow(() -> new RuntimeException("No active business found"));
+        
+        return ResponseEntity.ok(cashFlowService.simulate(business, days, paths, seed));
+    }
+    
+    @PostMapping("/scenarios")
+    @Operation(summary = "Evaluate what-if scenarios (income changes, recurring payments, new hires) against the forecast")
+    public ResponseEntity<CashFlowScenarioDTO> evaluateScenarios(@RequestBody CashFlowScenarioRequestDTO request) {
+        Business business = businessRepository.findFirstByIsActiveTrueOrderByCreatedAtDesc()
+                .orElseThrow(() -> new RuntimeException("No active business found"));
+        
+        return ResponseEntity.ok(cashFlowScenarioService.evaluate(business, request));
+    }
+    
+    @GetMapping("/recurring")
+    @Operation(summary = "Get detected recurring payments with their period and next due date")
+    public ResponseEntity<List<RecurringPaymentDTO>> getRecurringPayments() {
+        Business business = businessRepository.findFirstByIsActiveTrueOrderByCreatedAtDesc()
+                .orElseThrow(() -> new RuntimeException("No active business found"));
+        
+        return ResponseEntity.ok(cashFlowService.getRecurringPayments(business));
+    }
+    
+    @GetMapping("/backtest")
+    @Operation(summary = "Backtest forecast accuracy at rolling cut-off dates (business history or synthetic dataset)")
+    public ResponseEntity<BacktestReportDTO> getBacktest(
+            @RequestParam(defaultValue = "" + ForecastBacktestService.DEFAULT_HORIZON_DAYS) int horizon,
+            @RequestParam(defaultValue = "" + ForecastBacktestService.DEFAULT_WINDOWS) int windows,
+            @RequestParam(defaultValue = "" + ForecastBacktestService.DEFAULT_STEP_DAYS) int step,
+            @RequestParam(defaultValue = "false") boolean synthetic,
+            @RequestParam(defaultValue = "" + ForecastBacktestService.DEFAULT_SYNTHETIC_SEED) long seed) {
+        if (synthetic) {
+            return ResponseEntity.ok(forecastBacktestService.backtestSynthetic(seed, horizon, windows, step));
+        }
+        Business business = businessRepository.findFirstByIsActiveTrueOrderByCreatedAtDesc()
+                .orElseThrow(() -> new RuntimeException("No active business found"));
+        
+        return ResponseEntity.ok(forecastBacktestService.backtestBusiness(business, horizon, windows, step));
+    }
+    
     @GetMapping("/analysis")
     @Operation(summary = "Get cash flow analysis for period")
     public ResponseEntity<CashFlowDTO> getCashFlowAnalysis() {
         Business business = businessRepository.findFirstByIsActiveTrueOrderByCreatedAtDesc()
                 .orElseThrow(() -> new RuntimeException("No active business found"));
         
-        LocalDateTime endDate = LocalDateTime.now();
-        LocalDateTime startDate = endDate.minusDays(30);
+        // Last 30 whole days, today included
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(29);
         
         CashFlowDTO analysis = cashFlowService.generateCashFlowAnalysis(business, startDate, endDate);
         return ResponseEntity.ok(analysis);
@@ -55,7 +127,7 @@ public class CashFlowController {
         Business business = businessRepository.findFirstByIsActiveTrueOrderByCreatedAtDesc()
                 .orElseThrow(() -> new RuntimeException("No active business found"));
         
-        List<CashFlowForecast> predictions = cashFlowService.generateForecast(business, 30);
+        List<CashFlowForecast> predictions = cashFlowService.getForecast(business, 30);
         return ResponseEntity.ok(predictions);
     }
     
@@ -65,8 +137,8 @@ public class CashFlowController {
         Business business = businessRepository.findFirstByIsActiveTrueOrderByCreatedAtDesc()
                 .orElseThrow(() -> new RuntimeException("No active business found"));
         
-        LocalDateTime endDate = LocalDateTime.now();
-        LocalDateTime startDate = endDate.minusDays(90); // 3 months
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(89); // 3 months, today included
         
         CashFlowDTO trends = cashFlowService.generateCashFlowAnalysis(business, startDate, endDate);
         return ResponseEntity.ok(trends);
@@ -79,19 +151,21 @@ public class CashFlowController {
                 .orElseThrow(() -> new RuntimeException("No active business found"));
         
         // Generate 30-day forecast
-        List<CashFlowForecast> forecasts = cashFlowService.generateForecast(business, 30);
+        List<CashFlowForecast> forecasts = cashFlowService.getForecast(business, 30);
         
         // Calculate average daily income and expenses
         java.math.BigDecimal avgDailyIncome = java.math.BigDecimal.ZERO;
         java.math.BigDecimal avgDailyExpenses = java.math.BigDecimal.ZERO;
         
         if (!forecasts.isEmpty()) {
+            long incomeSum = 0;
+            long expenseSum = 0;
             for (CashFlowForecast forecast : forecasts) {
-                avgDailyIncome = avgDailyIncome.add(forecast.getPredictedIncome());
-                avgDailyExpenses = avgDailyExpenses.add(forecast.getPredictedExpenses());
+                incomeSum += Money.toMinor(forecast.getPredictedIncome());
+                expenseSum += Money.toMinor(forecast.getPredictedExpenses());
             }
-            avgDailyIncome = avgDailyIncome.divide(java.math.BigDecimal.valueOf(forecasts.size()), 2, java.math.RoundingMode.HALF_UP);
-            avgDailyExpenses = avgDailyExpenses.divide(java.math.BigDecimal.valueOf(forecasts.size()), 2, java.math.RoundingMode.HALF_UP);
+            avgDailyIncome = Money.toDecimal(Money.divide(incomeSum, forecasts.size()));
+            avgDailyExpenses = Money.toDecimal(Money.divide(expenseSum, forecasts.size()));
         }
         
         // Prepare response
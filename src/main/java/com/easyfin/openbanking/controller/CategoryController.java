@@ -1,15 +1,19 @@
 package com.easyfin.openbanking.controller;
 
+import com.easyfin.openbanking.dto.JobProgressDTO;
 import com.easyfin.openbanking.enums.TransactionCategory;
 import com.easyfin.openbanking.model.Business;
 import com.easyfin.openbanking.model.Transaction;
 import com.easyfin.openbanking.repository.BusinessRepository;
 import com.easyfin.openbanking.repository.TransactionRepository;
 import com.easyfin.openbanking.service.CategorizationService;
+import com.easyfin.openbanking.service.CategoryRangeIndex;
+import com.easyfin.openbanking.service.RecategorizationService;
 import com.easyfin.openbanking.service.TransactionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -34,6 +38,8 @@ public class CategoryController {
     private final TransactionRepository transactionRepository;
     private final CategorizationService categorizationService;
     private final TransactionService transactionService;
+    private final CategoryRangeIndex categoryRangeIndex;
+    private final RecategorizationService recategorizationService;
     
     @GetMapping
     @Operation(summary = "Get all categories")
@@ -61,19 +67,24 @@ public class CategoryController {
         LocalDateTime endDate = LocalDateTime.now();
         LocalDateTime startDate = endDate.minusDays(30);
         
-        List<Object[]> data = transactionRepository.sumExpensesByCategory(
-                business.getId(), startDate, endDate);
-        
         Map<String, BigDecimal> spending = new HashMap<>();
-        for (Object[] row : data) {
-            TransactionCategory category = (TransactionCategory) row[0];
-            BigDecimal amount = (BigDecimal) row[1];
-            spending.put(category.getDisplayName(), amount);
-        }
+        categoryRangeIndex.breakdown(business.getId(), false, startDate.toLocalDate(), endDate.toLocalDate())
+                .forEach((category, amount) -> spending.put(category.getDisplayName(), amount));
         
         return ResponseEntity.ok(spending);
     }
     
+    @PostMapping("/recategorize")
+    @Operation(summary = "Start a bulk re-categorization job for uncategorized and low-confidence transactions")
+    public ResponseEntity<JobProgressDTO> recategorizeTransactions(
+            @RequestParam(defaultValue = "" + RecategorizationService.DEFAULT_MIN_CONFIDENCE) double minConfidence) {
+        Business business = businessRepository.findFirstByIsActiveTrueOrderByCreatedAtDesc()
+                .orElseThrow(() -> new RuntimeException("No active business found"));
+        
+        JobProgressDTO job = recategorizationService.startRecategorization(business.getId(), minConfidence);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+    
     @PostMapping("/{transactionId}/auto-categorize")
     @Operation(summary = "Auto-categorize transaction")
     public ResponseEntity<Map<String, Object>> autoCategorizeTransaction(@PathVariable Long transactionId) {
@@ -95,13 +106,11 @@ public class CategoryController {
         Business business = businessRepository.findFirstByIsActiveTrueOrderByCreatedAtDesc()
                 .orElseThrow(() -> new RuntimeException("No active business found"));
         
-        List<Transaction> taxDeductible = transactionRepository.findByBusinessIdAndIsTaxDeductibleTrue(business.getId());
-        
-        Map<String, BigDecimal> taxReady = taxDeductible.stream()
-                .collect(Collectors.groupingBy(
-                        t -> t.getCategory().getDisplayName(),
-                        Collectors.reducing(BigDecimal.ZERO, Transaction::getAmount, BigDecimal::add)
-                ));
+        // Grouped in the database from the daily rollups
+        Map<String, BigDecimal> taxReady = new HashMap<>();
+        for (Object[] row : transactionRepository.sumTaxDeductibleByCategory(business.getId())) {
+            taxReady.merge(((TransactionCategory) row[0]).getDisplayName(), (BigDecimal) row[1], BigDecimal::add);
+        }
         
         return ResponseEntity.ok(taxReady);
     }
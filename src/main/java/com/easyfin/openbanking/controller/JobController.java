@@ -0,0 +1,27 @@
+package com.easyfin.openbanking.controller;
+
+import com.easyfin.openbanking.dto.JobProgressDTO;
+import com.easyfin.openbanking.service.JobTracker;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Background job progress controller
+ */
+@RestController
+@RequestMapping("/api/v1/jobs")
+@RequiredArgsConstructor
+@Tag(name = "Jobs", description = "Background job progress endpoints")
+public class JobController {
+    
+    private final JobTracker jobTracker;
+    
+    @GetMapping("/{jobId}")
+    @Operation(summary = "Get background job progress")
+    public ResponseEntity<JobProgressDTO> getJobProgress(@PathVariable String jobId) {
+        return ResponseEntity.ok(jobTracker.getProgress(jobId));
+    }
+}
@@ -1,14 +1,26 @@
 package com.easyfin.openbanking.controller;
 
+import com.easyfin.openbanking.dto.JobProgressDTO;
 import com.easyfin.openbanking.dto.PayrollDTO;
+import com.easyfin.openbanking.dto.PayrollHistoryPageDTO;
+import com.easyfin.openbanking.dto.PayrollRateVersionDTO;
+import com.easyfin.openbanking.dto.PayrollSimulationDTO;
+import com.easyfin.openbanking.dto.PayrollSimulationRequestDTO;
 import com.easyfin.openbanking.model.Business;
 import com.easyfin.openbanking.model.Employee;
+import com.easyfin.openbanking.model.PayrollMonthlyAggregate;
 import com.easyfin.openbanking.repository.BusinessRepository;
 import com.easyfin.openbanking.repository.EmployeeRepository;
+import com.easyfin.openbanking.service.PayrollRateService;
+import com.easyfin.openbanking.service.PayrollRecalculationService;
 import com.easyfin.openbanking.service.PayrollService;
+import com.easyfin.openbanking.service.PayrollSimulationService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -28,6 +40,9 @@ import java.util.Map;
 public class PayrollController {
     
     private final PayrollService payrollService;
+    private final PayrollRateService payrollRateService;
+    private final PayrollRecalculationService payrollRecalculationService;
+    private final PayrollSimulationService payrollSimulationService;
     private final BusinessRepository businessRepository;
     private final EmployeeRepository employeeRepository;
     
@@ -53,31 +68,19 @@ public class PayrollController {
         Business business = businessRepository.findFirstByIsActiveTrueOrderByCreatedAtDesc()
                 .orElseThrow(() -> new RuntimeException("No active business found"));
         
-        List<Employee> employees = employeeRepository.findByBusinessIdAndIsActiveTrue(business.getId());
         LocalDate currentMonth = LocalDate.now().withDayOfMonth(1);
+        PayrollMonthlyAggregate aggregate = payrollService.getMonthlyAggregate(business.getId(), currentMonth);
         
-        BigDecimal totalGrossPayroll = BigDecimal.ZERO;
-        BigDecimal totalEmployerSsf = BigDecimal.ZERO;
-        BigDecimal totalEmployeeSsf = BigDecimal.ZERO;
-        BigDecimal totalIncomeTax = BigDecimal.ZERO;
-        BigDecimal totalNetPayroll = BigDecimal.ZERO;
-        BigDecimal totalEmployerCost = BigDecimal.ZERO;
-        
-        for (Employee employee : employees) {
-            PayrollDTO payroll = payrollService.calculatePayroll(employee, currentMonth);
-            totalGrossPayroll = totalGrossPayroll.add(payroll.getGrossSalary());
-            totalEmployerSsf = totalEmployerSsf.add(payroll.getEmployerSsfContribution());
-            totalEmployeeSsf = totalEmployeeSsf.add(payroll.getEmployeeSsfContribution());
-            totalIncomeTax = totalIncomeTax.add(payroll.getIncomeTax());
-            totalNetPayroll = totalNetPayroll.add(payroll.getNetSalary());
-            totalEmployerCost = totalEmployerCost.add(payroll.getTotalEmployerCost());
-        }
-        
+        BigDecimal totalGrossPayroll = aggregate.getGrossSalary();
+        BigDecimal totalEmployerSsf = aggregate.getEmployerSsf();
+        BigDecimal totalEmployeeSsf = aggregate.getEmployeeSsf();
+        BigDecimal totalIncomeTax = aggregate.getIncomeTax();
+        BigDecimal totalEmployerCost = aggregate.getTotalEmployerCost();
         BigDecimal totalTaxes = totalEmployerSsf.add(totalEmployeeSsf).add(totalIncomeTax);
         
         Map<String, Object> summary = new HashMap<>();
         summary.put("month", currentMonth);
-        summary.put("employeeCount", employees.size());
+        summary.put("employeeCount", aggregate.getEmployeeCount());
         summary.put("totalGrossPayroll", totalGrossPayroll);
         summary.put("totalTaxes", totalTaxes);
         summary.put("totalNetPayrollCost", totalEmployerCost);
@@ -107,44 +110,83 @@ public class PayrollController {
         Business business = businessRepository.findFirstByIsActiveTrueOrderByCreatedAtDesc()
                 .orElseThrow(() -> new RuntimeException("No active business found"));
         
-        List<Employee> employees = employeeRepository.findByBusinessIdAndIsActiveTrue(business.getId());
-        LocalDate currentMonth = LocalDate.now().withDayOfMonth(1);
-        
-        BigDecimal totalEmployerSsf = BigDecimal.ZERO;
-        BigDecimal totalEmployeeSsf = BigDecimal.ZERO;
-        BigDecimal totalIncomeTax = BigDecimal.ZERO;
-        
-        for (Employee employee : employees) {
-            PayrollDTO payroll = payrollService.calculatePayroll(employee, currentMonth);
-            totalEmployerSsf = totalEmployerSsf.add(payroll.getEmployerSsfContribution());
-            totalEmployeeSsf = totalEmployeeSsf.add(payroll.getEmployeeSsfContribution());
-            totalIncomeTax = totalIncomeTax.add(payroll.getIncomeTax());
-        }
+        PayrollMonthlyAggregate aggregate = payrollService.getMonthlyAggregate(business.getId(), LocalDate.now());
+        BigDecimal totalEmployerSsf = aggregate.getEmployerSsf();
+        BigDecimal totalEmployeeSsf = aggregate.getEmployeeSsf();
+        BigDecimal totalIncomeTax = aggregate.getIncomeTax();
         
         Map<String, Object> taxes = new HashMap<>();
         taxes.put("totalEmployerSSF", totalEmployerSsf);
         taxes.put("totalEmployeeSSF", totalEmployeeSsf);
         taxes.put("totalIncomeTax", totalIncomeTax);
         taxes.put("totalTaxBurden", totalEmployerSsf.add(totalEmployeeSsf).add(totalIncomeTax));
-        taxes.put("employeeCount", employees.size());
+        taxes.put("employeeCount", aggregate.getEmployeeCount());
         
         return ResponseEntity.ok(taxes);
     }
     
     @PostMapping("/process")
-    @Operation(summary = "Process payroll for month")
-    public ResponseEntity<String> processPayroll() {
-        return ResponseEntity.ok("Payroll processed successfully for " + LocalDate.now().getMonth());
+    @Operation(summary = "Start a payroll run for every active employee (defaults to the current month)")
+    public ResponseEntity<JobProgressDTO> processPayroll(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate month) {
+        Business business = businessRepository.findFirstByIsActiveTrueOrderByCreatedAtDesc()
+                .orElseThrow(() -> new RuntimeException("No active business found"));
+        
+        JobProgressDTO job = payrollService.startPayrollRun(business.getId(), month != null ? month : LocalDate.now());
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+    
+    @PostMapping("/simulate")
+    @Operation(summary = "Simulate salary changes and hires",
+               description = "Returns payroll totals and their change for the month and the twelve months from it.")
+    public ResponseEntity<PayrollSimulationDTO> simulatePayroll(@RequestBody PayrollSimulationRequestDTO request) {
+        Business business = businessRepository.findFirstByIsActiveTrueOrderByCreatedAtDesc()
+                .orElseThrow(() -> new RuntimeException("No active business found"));
+        
+        return ResponseEntity.ok(payrollSimulationService.simulate(business.getId(), request));
+    }
+    
+    @GetMapping("/rates")
+    @Operation(summary = "Get payroll rate versions (SSF and income tax brackets), oldest first")
+    public ResponseEntity<List<PayrollRateVersionDTO>> getRateVersions() {
+        return ResponseEntity.ok(payrollRateService.getVersions());
+    }
+    
+    @PostMapping("/rates")
+    @Operation(summary = "Add a payroll rate version effective from the first of a month",
+               description = "Stored payroll records keep their figures until POST /payroll/recalculate is run.")
+    public ResponseEntity<PayrollRateVersionDTO> createRateVersion(@RequestBody PayrollRateVersionDTO version) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(payrollRateService.createVersion(version));
+    }
+    
+    @PostMapping("/recalculate")
+    @Operation(summary = "Start recalculating unpaid payroll records of every business from a month on",
+               description = "Progress and the diff summary are reported through GET /jobs/{jobId}.")
+    public ResponseEntity<JobProgressDTO> recalculatePayroll(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from) {
+        JobProgressDTO job = payrollRecalculationService.startRecalculation(from);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
     }
     
     @GetMapping("/history")
-    @Operation(summary = "Get payroll history")
-    public ResponseEntity<List<PayrollDTO>> getPayrollHistory() {
+    @Operation(summary = "Get payroll history (paginated)",
+               description = "Returns one page of payroll records, newest month first. " +
+                             "When more rows exist, the X-Next-Cursor response header carries the token for the next page.")
+    public ResponseEntity<List<PayrollDTO>> getPayrollHistory(
+            @Parameter(description = "Continuation token from a previous X-Next-Cursor header")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (default 50, max 200)")
+            @RequestParam(required = false) Integer limit) {
         Business business = businessRepository.findFirstByIsActiveTrueOrderByCreatedAtDesc()
                 .orElseThrow(() -> new RuntimeException("No active business found"));
         
-        List<PayrollDTO> history = payrollService.getPayrollHistory(business.getId());
-        return ResponseEntity.ok(history);
+        PayrollHistoryPageDTO page = payrollService.getPayrollHistory(business.getId(), cursor, limit);
+        
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(TransactionController.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getPayrolls());
     }
 }
 
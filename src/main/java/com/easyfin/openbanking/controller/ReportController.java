@@ -1,12 +1,21 @@
 package com.easyfin.openbanking.controller;
 
+import com.easyfin.openbanking.exception.ResourceNotFoundException;
+import com.easyfin.openbanking.model.Business;
+import com.easyfin.openbanking.repository.BusinessRepository;
+import com.easyfin.openbanking.service.PayslipService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
 
 /**
  * PDF reports and export controller
@@ -17,6 +26,9 @@ import org.springframework.web.bind.annotation.*;
 @Tag(name = "Reports", description = "PDF and export endpoints")
 public class ReportController {
     
+    private final PayslipService payslipService;
+    private final BusinessRepository businessRepository;
+    
     @PostMapping("/pdf/receipts")
     @Operation(summary = "Generate consolidated receipts PDF")
     public ResponseEntity<String> generateReceiptsPdf() {
@@ -400,6 +412,29 @@ public class ReportController {
                 .body(pdfBytes);
     }
     
+    @GetMapping("/payslips")
+    @Operation(summary = "Download one PDF payslip per employee for a payroll month as a ZIP archive",
+               description = "Defaults to the current month. The archive is streamed while payslips are rendered, " +
+                             "so it has no Content-Length.")
+    public ResponseEntity<StreamingResponseBody> downloadPayslips(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate month) {
+        Business business = businessRepository.findFirstByIsActiveTrueOrderByCreatedAtDesc()
+                .orElseThrow(() -> new RuntimeException("No active business found"));
+        LocalDate payrollMonth = (month != null ? month : LocalDate.now()).withDayOfMonth(1);
+        
+        // Checked up front: once streaming starts the status can no longer change
+        if (payslipService.countPayslips(business.getId(), payrollMonth) == 0) {
+            throw new ResourceNotFoundException("Payroll", "month", payrollMonth);
+        }
+        
+        StreamingResponseBody archive = out -> payslipService.writeArchive(business.getId(), payrollMonth, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=EasyFin-Payslips-" + YearMonth.from(payrollMonth) + ".zip")
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .body(archive);
+    }
+    
     @GetMapping("/export/csv")
     @Operation(summary = "Export transactions as CSV")
     public ResponseEntity<String> exportToCsv() {
@@ -1,9 +1,11 @@
 package com.easyfin.openbanking.controller;
 
 import com.easyfin.openbanking.dto.TaxSummaryDTO;
+import com.easyfin.openbanking.enums.TransactionCategory;
 import com.easyfin.openbanking.model.Business;
 import com.easyfin.openbanking.model.Transaction;
 import com.easyfin.openbanking.repository.BusinessRepository;
+import com.easyfin.openbanking.repository.TransactionRepository;
 import com.easyfin.openbanking.service.TaxCalculationService;
 import com.easyfin.openbanking.service.TransactionService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -12,6 +14,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
@@ -28,6 +31,7 @@ public class TaxController {
     private final TaxCalculationService taxCalculationService;
     private final BusinessRepository businessRepository;
     private final TransactionService transactionService;
+    private final TransactionRepository transactionRepository;
     
     @GetMapping("/summary")
     @Operation(summary = "Get tax summary", description = "Returns tax summary with sadələşdirilmiş vergi calculations")
@@ -35,8 +39,8 @@ public class TaxController {
         Business business = businessRepository.findFirstByIsActiveTrueOrderByCreatedAtDesc()
                 .orElseThrow(() -> new RuntimeException("No active business found"));
         
-        LocalDateTime endDate = LocalDateTime.now();
-        LocalDateTime startDate = endDate.minusMonths(3); // Quarterly
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusMonths(3).plusDays(1); // Quarterly, today included
         
         TaxSummaryDTO summary = taxCalculationService.calculateTaxSummary(business, startDate, endDate);
         return ResponseEntity.ok(summary);
@@ -68,9 +72,7 @@ public class TaxController {
             @PathVariable Long transactionId,
             @RequestParam boolean isTaxDeductible) {
         
-        Transaction transaction = transactionService.getTransactionById(transactionId);
-        transaction.setIsTaxDeductible(isTaxDeductible);
-        Transaction updated = transactionService.saveTransaction(transaction);
+        Transaction updated = transactionService.updateTaxDeductible(transactionId, isTaxDeductible);
         
         Map<String, Object> response = new HashMap<>();
         response.put("id", updated.getId());
@@ -120,7 +122,7 @@ public class TaxController {
                 .orElseThrow(() -> new RuntimeException("No active business found"));
         
         TaxSummaryDTO summary = taxCalculationService.calculateTaxSummary(
-                business, LocalDateTime.now().minusMonths(3), LocalDateTime.now());
+                business, LocalDate.now().minusMonths(3).plusDays(1), LocalDate.now());
         
         Map<String, Object> deductions = new HashMap<>();
         deductions.put("totalDeductions", summary.getTotalDeductions());
@@ -141,36 +143,24 @@ public class TaxController {
         Business business = businessRepository.findFirstByIsActiveTrueOrderByCreatedAtDesc()
                 .orElseThrow(() -> new RuntimeException("No active business found"));
         
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime lastMonth = now.minusMonths(1);
-        LocalDateTime lastMonthStart = lastMonth.withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0);
-        LocalDateTime lastMonthEnd = lastMonth.withDayOfMonth(lastMonth.toLocalDate().lengthOfMonth())
-                .withHour(23).withMinute(59).withSecond(59);
+        LocalDate lastMonthStart = LocalDate.now().minusMonths(1).withDayOfMonth(1);
+        LocalDate lastMonthEnd = lastMonthStart.withDayOfMonth(lastMonthStart.lengthOfMonth());
         
-        // Get all deductible transactions for 2024
-        java.util.List<Transaction> allTransactions = transactionService.getDeductibleTransactions(business.getId());
-        
-        // Calculate total deductible
-        java.math.BigDecimal totalDeductible = allTransactions.stream()
-                .filter(t -> t.getIsTaxDeductible())
-                .map(Transaction::getAmount)
-                .reduce(java.math.BigDecimal.ZERO, java.math.BigDecimal::add);
+        // Deductible totals are grouped in the database from the daily rollups
+        java.math.BigDecimal totalDeductible = java.math.BigDecimal.ZERO;
+        java.util.Map<String, java.math.BigDecimal> categoryBreakdown = new java.util.HashMap<>();
+        for (Object[] row : transactionRepository.sumTaxDeductibleByCategory(business.getId())) {
+            java.math.BigDecimal amount = (java.math.BigDecimal) row[1];
+            totalDeductible = totalDeductible.add(amount);
+            String categoryName = getCategoryDisplayName(((TransactionCategory) row[0]).name());
+            categoryBreakdown.merge(categoryName, amount, java.math.BigDecimal::add);
+        }
         
         // Calculate last month deductible
-        java.math.BigDecimal lastMonthDeductible = allTransactions.stream()
-                .filter(t -> t.getIsTaxDeductible())
-                .filter(t -> t.getTransactionDate().isAfter(lastMonthStart) && 
-                            t.getTransactionDate().isBefore(lastMonthEnd))
-                .map(Transaction::getAmount)
-                .reduce(java.math.BigDecimal.ZERO, java.math.BigDecimal::add);
-        
-        // Calculate category breakdowns
-        java.util.Map<String, java.math.BigDecimal> categoryBreakdown = new java.util.HashMap<>();
-        for (Transaction t : allTransactions) {
-            if (t.getIsTaxDeductible() && t.getCategory() != null) {
-                String categoryName = getCategoryDisplayName(t.getCategory().name());
-                categoryBreakdown.merge(categoryName, t.getAmount(), java.math.BigDecimal::add);
-            }
+        java.math.BigDecimal lastMonthDeductible = transactionRepository.sumTaxDeductibleByBusinessIdAndDays(
+                business.getId(), lastMonthStart, lastMonthEnd);
+        if (lastMonthDeductible == null) {
+            lastMonthDeductible = java.math.BigDecimal.ZERO;
         }
         
         // Prepare response
@@ -190,10 +180,7 @@ public class TaxController {
         
         // Add recent deductible transactions (limit 10)
         java.util.List<Map<String, Object>> recentTransactions = new java.util.ArrayList<>();
-        allTransactions.stream()
-                .filter(t -> t.getIsTaxDeductible())
-                .sorted((a, b) -> b.getTransactionDate().compareTo(a.getTransactionDate()))
-                .limit(10)
+        transactionRepository.findTop10ByBusinessIdAndIsTaxDeductibleTrueOrderByTransactionDateDescIdDesc(business.getId())
                 .forEach(t -> {
                     Map<String, Object> txn = new HashMap<>();
                     txn.put("id", t.getId());
@@ -1,22 +1,28 @@
 package com.easyfin.openbanking.controller;
 
+import com.easyfin.openbanking.dto.BatchIngestResultDTO;
+import com.easyfin.openbanking.dto.RollupConsistencyDTO;
 import com.easyfin.openbanking.dto.TransactionDTO;
+import com.easyfin.openbanking.dto.TransactionPageDTO;
 import com.easyfin.openbanking.enums.TransactionCategory;
 import com.easyfin.openbanking.model.Business;
 import com.easyfin.openbanking.model.Transaction;
 import com.easyfin.openbanking.repository.BusinessRepository;
 import com.easyfin.openbanking.service.CategorizationService;
+import com.easyfin.openbanking.service.TransactionRollupService;
 import com.easyfin.openbanking.service.TransactionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Transaction management controller
@@ -30,26 +36,34 @@ public class TransactionController {
     private final TransactionService transactionService;
     private final BusinessRepository businessRepository;
     private final CategorizationService categorizationService;
+    private final TransactionRollupService transactionRollupService;
+    
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
     
     @GetMapping
-    @Operation(summary = "Get all transactions", 
-               description = "Returns all transactions with optional date and category filters")
+    @Operation(summary = "Get transactions (paginated)", 
+               description = "Returns one page of transactions, newest first, with optional date and category filters. " +
+                             "When more rows exist, the X-Next-Cursor response header carries the token for the next page.")
     public ResponseEntity<List<TransactionDTO>> getAllTransactions(
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
-            @RequestParam(required = false) TransactionCategory category) {
+            @RequestParam(required = false) TransactionCategory category,
+            @Parameter(description = "Continuation token from a previous X-Next-Cursor header")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (default 50, max 200)")
+            @RequestParam(required = false) Integer limit) {
         
         Business business = businessRepository.findFirstByIsActiveTrueOrderByCreatedAtDesc()
                 .orElseThrow(() -> new RuntimeException("No active business found"));
         
-        List<TransactionDTO> transactions;
-        if (startDate != null && endDate != null) {
-            transactions = transactionService.getTransactionsByDateRange(business.getId(), startDate, endDate);
-        } else {
-            transactions = transactionService.getAllTransactions(business.getId());
-        }
+        TransactionPageDTO page = transactionService.getTransactionPage(
+                business.getId(), startDate, endDate, category, cursor, limit);
         
-        return ResponseEntity.ok(transactions);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getTransactions());
     }
     
     @GetMapping("/{id}")
@@ -76,6 +90,17 @@ public class TransactionController {
         return dto;
     }
     
+    @PostMapping("/batch")
+    @Operation(summary = "Bulk ingest transactions", 
+               description = "Categorizes and persists up to 10,000 transactions in one call using batched inserts")
+    public ResponseEntity<BatchIngestResultDTO> ingestBatch(@RequestBody List<TransactionDTO> transactions) {
+        Business business = businessRepository.findFirstByIsActiveTrueOrderByCreatedAtDesc()
+                .orElseThrow(() -> new RuntimeException("No active business found"));
+        
+        BatchIngestResultDTO result = transactionService.ingestTransactions(business, transactions);
+        return ResponseEntity.status(HttpStatus.CREATED).body(result);
+    }
+    
     @PostMapping("/sync")
     @Operation(summary = "Simulate Open Banking sync", 
                description = "Simulates syncing transactions from bank account")
@@ -89,14 +114,34 @@ public class TransactionController {
             @PathVariable Long id,
             @RequestParam TransactionCategory category) {
         
-        Transaction transaction = transactionService.getTransactionById(id);
-        transaction.setCategory(category);
-        transaction.setIsTaxDeductible(category.isTaxDeductible());
-        Transaction updated = transactionService.saveTransaction(transaction);
-        
+        Transaction updated = transactionService.updateCategory(id, category);
         return ResponseEntity.ok(convertToDTO(updated));
     }
     
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Delete transaction")
+    public ResponseEntity<String> deleteTransaction(@PathVariable Long id) {
+        transactionService.deleteTransaction(id);
+        return ResponseEntity.ok("Transaction deleted successfully");
+    }
+    
+    @PostMapping("/rollups/backfill")
+    @Operation(summary = "Rebuild daily rollups", 
+               description = "Recomputes the daily aggregate table from raw transactions for every business")
+    public ResponseEntity<Map<Long, Integer>> backfillRollups() {
+        return ResponseEntity.ok(transactionRollupService.backfillAll());
+    }
+    
+    @GetMapping("/rollups/consistency")
+    @Operation(summary = "Verify daily rollups", 
+               description = "Compares the daily aggregate table against the raw transactions of the active business")
+    public ResponseEntity<RollupConsistencyDTO> checkRollupConsistency() {
+        Business business = businessRepository.findFirstByIsActiveTrueOrderByCreatedAtDesc()
+                .orElseThrow(() -> new RuntimeException("No active business found"));
+        
+        return ResponseEntity.ok(transactionRollupService.checkConsistency(business.getId()));
+    }
+    
     @PostMapping("/{id}/receipt")
     @Operation(summary = "Upload receipt", description = "Upload receipt for transaction")
     public ResponseEntity<String> uploadReceipt(@PathVariable Long id) {
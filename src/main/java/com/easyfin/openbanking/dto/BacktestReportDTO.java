@@ -0,0 +1,43 @@
+package com.easyfin.openbanking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BacktestReportDTO {
+    // "business" or "synthetic"
+    private String source;
+    private Integer horizonDays;
+    private Integer stepDays;
+    private Integer windows;
+    private List<ModelScore> models;
+    private List<WindowScore> windowScores;
+    private Long elapsedMillis;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ModelScore {
+        private String model;
+        
+        // Daily income and expense points pooled; MAPE skips days with no actual flow
+        private Double mape;
+        private Double rmse;
+        private Double meanFitMicros;
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class WindowScore {
+        private LocalDate cutoff;
+        private Double holtWintersMape;
+        private Double averageMape;
+    }
+}
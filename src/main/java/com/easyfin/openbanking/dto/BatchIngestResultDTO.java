@@ -0,0 +1,16 @@
+package com.easyfin.openbanking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchIngestResultDTO {
+    private Integer received;
+    private Integer persisted;
+    private Integer autoCategorized;
+    private Long elapsedMillis;
+    private Double rowsPerSecond;
+}
@@ -34,6 +34,10 @@ public class CashFlowDTO {
         private BigDecimal predictedIncome;
         private BigDecimal predictedExpenses;
         private BigDecimal predictedBalance;
+        
+        // 80% prediction interval for the balance
+        private BigDecimal predictedBalanceLow;
+        private BigDecimal predictedBalanceHigh;
         private Double confidence;
     }
 }
@@ -0,0 +1,49 @@
+package com.easyfin.openbanking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CashFlowScenarioDTO {
+    private LocalDate firstDay;
+    private Integer days;
+    private ScenarioResult baseline;
+    private List<ScenarioResult> scenarios;
+    private Long elapsedMicros;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ScenarioResult {
+        private String name;
+        private BigDecimal totalIncome;
+        private BigDecimal totalExpenses;
+        private BigDecimal endingBalance;
+        
+        // Against the baseline's ending balance
+        private BigDecimal endingBalanceChange;
+        private BigDecimal minimumBalance;
+        private LocalDate minimumBalanceDate;
+        private LocalDate firstNegativeDate;
+        private List<BalancePoint> path;
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BalancePoint {
+        private LocalDate date;
+        private BigDecimal income;
+        private BigDecimal expenses;
+        private BigDecimal balance;
+        private BigDecimal balanceLow;
+        private BigDecimal balanceHigh;
+    }
+}
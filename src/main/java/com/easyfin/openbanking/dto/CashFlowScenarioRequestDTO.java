@@ -0,0 +1,65 @@
+package com.easyfin.openbanking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CashFlowScenarioRequestDTO {
+    // Days from tomorrow; defaults to the full stored forecast horizon
+    private Integer days;
+    private List<Scenario> scenarios;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Scenario {
+        private String name;
+        
+        // E.g. -10 for income 10% lower than forecast
+        private Double incomeChangePercent;
+        private List<RecurringChange> recurring;
+        private List<NewEmployee> newEmployees;
+    }
+    
+    /**
+     * Changes a detected recurring payment with the same merchant (amount 0 removes it),
+     * or adds a new one when none matches
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RecurringChange {
+        private String merchantName;
+        private Boolean isIncome;
+        private BigDecimal amount;
+        
+        // New items only: "weekly" or "monthly" (default), and the day of month for monthly ones
+        private String period;
+        private Integer dayOfMonth;
+        
+        // Defaults to tomorrow
+        private LocalDate startDate;
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class NewEmployee {
+        private String position;
+        private BigDecimal monthlySalary;
+        private Integer count;
+        
+        // Defaults to the last day of the month
+        private Integer payDayOfMonth;
+        
+        // Defaults to tomorrow
+        private LocalDate startDate;
+    }
+}
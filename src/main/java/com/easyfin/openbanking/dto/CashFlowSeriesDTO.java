@@ -0,0 +1,38 @@
+package com.easyfin.openbanking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CashFlowSeriesDTO {
+    private String granularity;
+    
+    // from is aligned down to the start of its bucket
+    private LocalDate from;
+    private LocalDate to;
+    private List<Point> points;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Point {
+        private LocalDate periodStart;
+        private LocalDate periodEnd;
+        private BigDecimal income;
+        private BigDecimal expenses;
+        private BigDecimal netCashFlow;
+        
+        // Net change against the same span starting one month / one year earlier; percent is null without a base
+        private BigDecimal netChangeMoM;
+        private Double netChangeMoMPercent;
+        private BigDecimal netChangeYoY;
+        private Double netChangeYoYPercent;
+    }
+}
@@ -0,0 +1,37 @@
+package com.easyfin.openbanking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CashFlowSimulationDTO {
+    private Integer horizonDays;
+    private Integer paths;
+    private BigDecimal startingBalance;
+    
+    // Share of paths whose balance goes below zero on any day of the horizon
+    private Double probabilityOfShortfall;
+    
+    private List<RecurringPaymentDTO> recurring;
+    private List<BalanceBand> bands;
+    private Long elapsedMillis;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BalanceBand {
+        private LocalDate date;
+        private BigDecimal p10;
+        private BigDecimal p50;
+        private BigDecimal p90;
+        private Double probabilityNegative;
+    }
+    
+}
@@ -0,0 +1,28 @@
+package com.easyfin.openbanking.dto;
+
+import com.easyfin.openbanking.enums.JobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobProgressDTO {
+    private String jobId;
+    private String type;
+    private Long businessId;
+    private JobStatus status;
+    
+    // Items the job expects to visit, items visited so far, and items it changed
+    private Long total;
+    private Long processed;
+    private Long updated;
+    private Double percentComplete;
+    
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String message;
+}
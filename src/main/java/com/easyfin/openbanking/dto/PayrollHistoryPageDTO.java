@@ -0,0 +1,17 @@
+package com.easyfin.openbanking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PayrollHistoryPageDTO {
+    private List<PayrollDTO> payrolls;
+    
+    // Opaque continuation token, null on the last page
+    private String nextCursor;
+}
@@ -0,0 +1,38 @@
+package com.easyfin.openbanking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PayrollRateVersionDTO {
+    private Long id;
+    
+    // Any day of the first month the rates apply to
+    private LocalDate effectiveFrom;
+    private String description;
+    
+    // Each schedule needs at least one bracket; a flat rate is one bracket from 0
+    private List<Bracket> employeeSsf;
+    private List<Bracket> employerSsf;
+    private List<Bracket> incomeTax;
+    private LocalDateTime createdAt;
+    
+    /**
+     * Rate on the part of the monthly base above the threshold, e.g. 0.14 above 8000.00
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Bracket {
+        private BigDecimal threshold;
+        private BigDecimal rate;
+    }
+}
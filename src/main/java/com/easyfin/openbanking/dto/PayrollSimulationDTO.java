@@ -0,0 +1,46 @@
+package com.easyfin.openbanking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PayrollSimulationDTO {
+    private LocalDate month;
+    
+    // The year is the twelve months starting with the simulated month, each under its own rates
+    private Totals baselineMonth;
+    private Totals baselineYear;
+    private List<ScenarioResult> scenarios;
+    private Long elapsedMicros;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ScenarioResult {
+        private String name;
+        private Totals month;
+        private Totals monthChange;
+        private Totals year;
+        private Totals yearChange;
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Totals {
+        private Integer employeeCount;
+        private BigDecimal grossSalary;
+        private BigDecimal employeeSsf;
+        private BigDecimal employerSsf;
+        private BigDecimal incomeTax;
+        private BigDecimal netSalary;
+        private BigDecimal totalEmployerCost;
+    }
+}
@@ -0,0 +1,50 @@
+package com.easyfin.openbanking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PayrollSimulationRequestDTO {
+    // Any day of the first simulated month; defaults to the current month
+    private LocalDate month;
+    private List<Scenario> scenarios;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Scenario {
+        private String name;
+        private List<SalaryChange> salaryChanges;
+        private List<Hire> hires;
+    }
+    
+    /**
+     * New salary for an active employee, given either outright or as a percent change
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SalaryChange {
+        private Long employeeId;
+        private BigDecimal monthlySalary;
+        
+        // E.g. 10 for a 10% raise
+        private Double changePercent;
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Hire {
+        private String position;
+        private BigDecimal monthlySalary;
+        private Integer count;
+    }
+}
@@ -0,0 +1,24 @@
+package com.easyfin.openbanking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecurringPaymentDTO {
+    private String merchantName;
+    private Boolean isIncome;
+    
+    // "weekly" or "monthly"; day of month only for monthly items
+    private String period;
+    private Integer dayOfMonth;
+    private BigDecimal amount;
+    private Integer occurrences;
+    private LocalDate lastSeen;
+    private LocalDate nextDueDate;
+}
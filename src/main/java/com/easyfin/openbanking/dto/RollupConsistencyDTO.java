@@ -0,0 +1,21 @@
+package com.easyfin.openbanking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RollupConsistencyDTO {
+    private Long businessId;
+    private Integer rawBuckets;
+    private Integer rollupBuckets;
+    private Integer mismatchCount;
+    private Boolean consistent;
+    
+    // First few differing buckets, for diagnosis
+    private List<String> mismatches;
+}
@@ -0,0 +1,11 @@
+package com.easyfin.openbanking.enums;
+
+/**
+ * Lifecycle of a background job
+ */
+public enum JobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
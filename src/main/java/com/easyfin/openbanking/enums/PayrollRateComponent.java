@@ -0,0 +1,10 @@
+package com.easyfin.openbanking.enums;
+
+/**
+ * Payroll deduction or contribution a rate schedule applies to
+ */
+public enum PayrollRateComponent {
+    EMPLOYEE_SSF,  // On gross salary
+    EMPLOYER_SSF,  // On gross salary
+    INCOME_TAX     // On gross salary minus employee SSF
+}
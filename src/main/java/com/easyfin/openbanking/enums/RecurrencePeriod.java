@@ -0,0 +1,55 @@
+package com.easyfin.openbanking.enums;
+
+import java.time.LocalDate;
+
+/**
+ * Period of a recurring payment, with the spread of intervals accepted as one cycle
+ */
+public enum RecurrencePeriod {
+    WEEKLY(6, 8),
+    MONTHLY(26, 35);
+    
+    private final int minIntervalDays;
+    private final int maxIntervalDays;
+    
+    RecurrencePeriod(int minIntervalDays, int maxIntervalDays) {
+        this.minIntervalDays = minIntervalDays;
+        this.maxIntervalDays = maxIntervalDays;
+    }
+    
+    /**
+     * Parse a request parameter such as "monthly", ignoring case
+     */
+    public static RecurrencePeriod fromParam(String value) {
+        for (RecurrencePeriod period : values()) {
+            if (period.name().equalsIgnoreCase(value)) {
+                return period;
+            }
+        }
+        throw new IllegalArgumentException("period must be one of weekly, monthly");
+    }
+    
+    /**
+     * Whether the days between two payments count as one cycle of this period
+     */
+    public boolean matches(long intervalDays) {
+        return intervalDays >= minIntervalDays && intervalDays <= maxIntervalDays;
+    }
+    
+    /**
+     * Date a number of cycles after (or, if negative, before) a payment date
+     */
+    public LocalDate shift(LocalDate date, int cycles) {
+        return switch (this) {
+            case WEEKLY -> date.plusWeeks(cycles);
+            case MONTHLY -> date.plusMonths(cycles);
+        };
+    }
+    
+    /**
+     * Days a payment may be overdue before the series is treated as stopped
+     */
+    public int graceDays() {
+        return maxIntervalDays / 2;
+    }
+}
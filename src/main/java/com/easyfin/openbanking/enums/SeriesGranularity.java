@@ -0,0 +1,48 @@
+package com.easyfin.openbanking.enums;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Bucket size of a time series; weeks start on Monday
+ */
+public enum SeriesGranularity {
+    DAY,
+    WEEK,
+    MONTH;
+    
+    /**
+     * Parse a request parameter such as "day", ignoring case
+     */
+    public static SeriesGranularity fromParam(String value) {
+        for (SeriesGranularity granularity : values()) {
+            if (granularity.name().equalsIgnoreCase(value)) {
+                return granularity;
+            }
+        }
+        throw new IllegalArgumentException("granularity must be one of day, week, month");
+    }
+    
+    /**
+     * First day of the bucket containing a date
+     */
+    public LocalDate bucketStart(LocalDate date) {
+        return switch (this) {
+            case DAY -> date;
+            case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> date.withDayOfMonth(1);
+        };
+    }
+    
+    /**
+     * First day of the following bucket
+     */
+    public LocalDate nextBucket(LocalDate bucketStart) {
+        return switch (this) {
+            case DAY -> bucketStart.plusDays(1);
+            case WEEK -> bucketStart.plusWeeks(1);
+            case MONTH -> bucketStart.plusMonths(1);
+        };
+    }
+}
@@ -0,0 +1,37 @@
+package com.easyfin.openbanking.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Closing balance of a business at the end of a day: the net of every transaction dated on or before it.
+ * Backdated writes shift every later snapshot, so a snapshot stays exact once written.
+ */
+@Entity
+@Table(name = "balance_snapshots", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_balance_snapshot_business_date", columnNames = {"business_id", "snapshotDate"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceSnapshot {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "balance_snapshots_seq")
+    @SequenceGenerator(name = "balance_snapshots_seq", sequenceName = "balance_snapshots_seq", allocationSize = 50)
+    private Long id;
+    
+    @Column(name = "business_id", nullable = false)
+    private Long businessId;
+    
+    @Column(nullable = false)
+    private LocalDate snapshotDate;
+    
+    @Column(nullable = false, precision = 17, scale = 2)
+    private BigDecimal closingBalance;
+}
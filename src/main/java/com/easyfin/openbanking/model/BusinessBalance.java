@@ -0,0 +1,29 @@
+package com.easyfin.openbanking.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Running balance of a business: the net of every transaction it has, moved by each transaction write
+ */
+@Entity
+@Table(name = "business_balances")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BusinessBalance {
+    
+    @Id
+    @Column(name = "business_id")
+    private Long businessId;
+    
+    @Column(nullable = false, precision = 17, scale = 2)
+    private BigDecimal balance;
+    
+    private LocalDateTime updatedAt;
+}
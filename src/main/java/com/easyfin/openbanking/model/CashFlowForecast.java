@@ -7,21 +7,30 @@ import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 /**
  * Cash flow forecast entity for financial predictions
  */
 @Entity
-@Table(name = "cash_flow_forecasts")
+@Table(name = "cash_flow_forecasts", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_cash_flow_forecast_business_date", columnNames = {"business_id", "forecastDate"})
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class CashFlowForecast {
     
+    // Pooled sequence so a forecast horizon is written in one JDBC batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cash_flow_forecasts_seq")
+    @SequenceGenerator(name = "cash_flow_forecasts_seq", sequenceName = "cash_flow_forecasts_seq", allocationSize = 50)
     private Long id;
     
+    // Bumped on every upsert, so concurrent refreshes of the same day can't silently overwrite each other
+    @Version
+    private Long version;
+    
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "business_id")
     private Business business;
@@ -38,6 +47,13 @@ public class CashFlowForecast {
     @Column(precision = 15, scale = 2)
     private BigDecimal predictedBalance;
     
+    // 80% prediction interval for the balance
+    @Column(precision = 15, scale = 2)
+    private BigDecimal predictedBalanceLow;
+    
+    @Column(precision = 15, scale = 2)
+    private BigDecimal predictedBalanceHigh;
+    
     private Double confidence;
     
     @Column(length = 500)
@@ -46,6 +62,9 @@ public class CashFlowForecast {
     @Column(updatable = false)
     private LocalDate createdAt;
     
+    // Start of the computation that produced this row; compared against the latest transaction change
+    private LocalDateTime computedAt;
+    
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDate.now();
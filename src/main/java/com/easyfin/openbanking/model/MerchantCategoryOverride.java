@@ -0,0 +1,40 @@
+package com.easyfin.openbanking.model;
+
+import com.easyfin.openbanking.enums.TransactionCategory;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A business's own category for a merchant, recorded when a user corrects a transaction.
+ * Takes precedence over keyword matching for that business only.
+ */
+@Entity
+@Table(name = "merchant_category_overrides", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_merchant_category_override", columnNames = {"business_id", "merchant_key"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MerchantCategoryOverride {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "business_id", nullable = false)
+    private Long businessId;
+    
+    // Normalized merchant name, see CategorizationService.normalizeMerchant
+    @Column(name = "merchant_key", nullable = false)
+    private String merchantKey;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TransactionCategory category;
+    
+    private LocalDateTime updatedAt;
+}
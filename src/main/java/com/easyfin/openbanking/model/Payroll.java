@@ -12,14 +12,20 @@ import java.time.LocalDate;
  * Payroll entity for employee salary processing
  */
 @Entity
-@Table(name = "payroll")
+@Table(name = "payroll", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_payroll_employee_month", columnNames = {"employee_id", "payrollMonth"})
+}, indexes = {
+        @Index(name = "idx_payroll_business_month", columnList = "business_id, payrollMonth, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Payroll {
     
+    // Pooled sequence so a payroll run is written in JDBC batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payroll_seq")
+    @SequenceGenerator(name = "payroll_seq", sequenceName = "payroll_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,64 @@
+package com.easyfin.openbanking.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Payroll totals of a business for one month. A month with a payroll run is summed from its payroll
+ * rows and left alone after that. Any other month is built once from the active employees, then moved
+ * by each salary change, hire or deactivation for the current and later months.
+ */
+@Entity
+@Table(name = "payroll_monthly_aggregates", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_payroll_aggregate_business_month", columnNames = {"business_id", "payrollMonth"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PayrollMonthlyAggregate {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payroll_monthly_aggregates_seq")
+    @SequenceGenerator(name = "payroll_monthly_aggregates_seq", sequenceName = "payroll_monthly_aggregates_seq", allocationSize = 50)
+    private Long id;
+    
+    @Column(name = "business_id", nullable = false)
+    private Long businessId;
+    
+    // First day of the month
+    @Column(nullable = false)
+    private LocalDate payrollMonth;
+    
+    @Column(nullable = false)
+    private Integer employeeCount;
+    
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal grossSalary;
+    
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal employeeSsf;
+    
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal employerSsf;
+    
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal incomeTax;
+    
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal netSalary;
+    
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal totalEmployerCost;
+    
+    // Summed from the month's payroll rows rather than projected from the active employees
+    @Column(nullable = false)
+    private Boolean fromPayrollRun;
+    
+    private LocalDateTime updatedAt;
+}
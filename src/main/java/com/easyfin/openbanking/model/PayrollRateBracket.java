@@ -0,0 +1,30 @@
+package com.easyfin.openbanking.model;
+
+import com.easyfin.openbanking.enums.PayrollRateComponent;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * One band of a progressive schedule: the rate applies to the part of the monthly base above
+ * the threshold, up to the next band's threshold
+ */
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PayrollRateBracket {
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PayrollRateComponent component;
+    
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal threshold;
+    
+    @Column(nullable = false, precision = 9, scale = 6)
+    private BigDecimal rate;
+}
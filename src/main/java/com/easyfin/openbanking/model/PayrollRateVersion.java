@@ -0,0 +1,41 @@
+package com.easyfin.openbanking.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SSF and income tax schedules in force from a month until the next version
+ */
+@Entity
+@Table(name = "payroll_rate_versions")
+@Data
+@NoArgsConstructor
+public class PayrollRateVersion {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    // Always the first of a month
+    @Column(nullable = false, unique = true)
+    private LocalDate effectiveFrom;
+    
+    private String description;
+    
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "payroll_rate_brackets", joinColumns = @JoinColumn(name = "version_id"))
+    private List<PayrollRateBracket> brackets = new ArrayList<>();
+    
+    private LocalDateTime createdAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,82 @@
+package com.easyfin.openbanking.model;
+
+import com.easyfin.openbanking.enums.RecurrencePeriod;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A cluster of transactions with one normalized merchant, direction and similar amount.
+ * Interval counts are kept as transactions arrive; the period is set once most intervals agree.
+ */
+@Entity
+@Table(name = "recurring_payments", indexes = {
+        @Index(name = "idx_recurring_business_merchant", columnList = "business_id, merchantKey")
+})
+@Data
+@NoArgsConstructor
+public class RecurringPayment {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "recurring_payments_seq")
+    @SequenceGenerator(name = "recurring_payments_seq", sequenceName = "recurring_payments_seq", allocationSize = 50)
+    private Long id;
+    
+    @Column(name = "business_id", nullable = false)
+    private Long businessId;
+    
+    @Column(nullable = false)
+    private String merchantKey;
+    
+    // Latest raw merchant name, for display
+    @Column(nullable = false)
+    private String merchantName;
+    
+    @Column(nullable = false)
+    private Boolean isIncome;
+    
+    // Mean amount of the cluster
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal amount;
+    
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal minAmount;
+    
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal maxAmount;
+    
+    @Column(nullable = false)
+    private Integer occurrences;
+    
+    // Gaps measured between consecutive payments, and how many of them matched each period
+    @Column(nullable = false)
+    private Integer intervals;
+    
+    @Column(nullable = false)
+    private Integer weeklyIntervals;
+    
+    @Column(nullable = false)
+    private Integer monthlyIntervals;
+    
+    @Column(nullable = false)
+    private LocalDate firstSeen;
+    
+    @Column(nullable = false)
+    private LocalDate lastSeen;
+    
+    // Null until the intervals settle on a period
+    @Enumerated(EnumType.STRING)
+    private RecurrencePeriod period;
+    
+    private LocalDate nextDueDate;
+    
+    // Set when a payment it counted was deleted or changed direction; the next read replays the business
+    @Column(nullable = false)
+    private Boolean stale = false;
+    
+    private LocalDateTime updatedAt;
+}
@@ -13,14 +13,19 @@ import java.time.LocalDateTime;
  * Transaction entity representing financial transactions
  */
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        @Index(name = "idx_transactions_business_date", columnList = "business_id, transactionDate, id"),
+        @Index(name = "idx_transactions_business_category_date", columnList = "business_id, category, transactionDate, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Transaction {
     
+    // Pooled sequence so Hibernate can batch inserts (IDENTITY forces one round-trip per row)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false)
@@ -48,6 +53,10 @@ public class Transaction {
     @Column(columnDefinition = "boolean default false")
     private Boolean isIncome = false;
     
+    // Direction was taken from the category rather than the source, so it follows recategorization
+    @Column(columnDefinition = "boolean default false")
+    private Boolean isIncomeInferred = false;
+    
     private Double categorizationConfidence;
     
     @Column(length = 100)
@@ -0,0 +1,68 @@
+package com.easyfin.openbanking.model;
+
+import com.easyfin.openbanking.enums.TransactionCategory;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Per-day transaction totals for a business, split by category, direction and deductibility.
+ * Maintained alongside every transaction write so aggregates never scan raw rows.
+ */
+@Entity
+@Table(name = "transaction_daily_rollups", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_transaction_daily_rollup",
+                columnNames = {"business_id", "rollupDate", "category", "isIncome", "isTaxDeductible"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionDailyRollup {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_daily_rollups_seq")
+    @SequenceGenerator(name = "transaction_daily_rollups_seq", sequenceName = "transaction_daily_rollups_seq", allocationSize = 50)
+    private Long id;
+    
+    @Column(name = "business_id", nullable = false)
+    private Long businessId;
+    
+    @Column(nullable = false)
+    private LocalDate rollupDate;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TransactionCategory category;
+    
+    @Column(nullable = false)
+    private Boolean isIncome;
+    
+    @Column(nullable = false)
+    private Boolean isTaxDeductible;
+    
+    @Column(nullable = false, precision = 17, scale = 2)
+    private BigDecimal totalAmount;
+    
+    @Column(nullable = false)
+    private Long transactionCount;
+    
+    /**
+     * Rollup bucket a transaction falls into
+     */
+    public record Key(Long businessId, LocalDate date, TransactionCategory category,
+                      boolean income, boolean taxDeductible) {
+        
+        public static Key of(Transaction t) {
+            return new Key(
+                    t.getBusiness().getId(),
+                    t.getTransactionDate().toLocalDate(),
+                    t.getCategory(),
+                    Boolean.TRUE.equals(t.getIsIncome()),
+                    Boolean.TRUE.equals(t.getIsTaxDeductible()));
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.easyfin.openbanking.repository;
+
+import com.easyfin.openbanking.model.BalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Repository for BalanceSnapshot entity
+ */
+@Repository
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, Long> {
+    
+    Optional<BalanceSnapshot> findFirstByBusinessIdAndSnapshotDateLessThanEqualOrderBySnapshotDateDesc(
+            Long businessId, LocalDate date);
+    
+    Optional<BalanceSnapshot> findFirstByBusinessIdOrderBySnapshotDateDesc(Long businessId);
+    
+    @Modifying
+    @Query("DELETE FROM BalanceSnapshot s WHERE s.businessId = :businessId")
+    int deleteByBusinessId(@Param("businessId") Long businessId);
+}
@@ -0,0 +1,23 @@
+package com.easyfin.openbanking.repository;
+
+import com.easyfin.openbanking.model.BusinessBalance;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Repository for BusinessBalance entity
+ */
+@Repository
+public interface BusinessBalanceRepository extends JpaRepository<BusinessBalance, Long> {
+    
+    // Serializes snapshotting against transaction writes, which update this row first
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM BusinessBalance b WHERE b.businessId = :businessId")
+    Optional<BusinessBalance> findForUpdate(@Param("businessId") Long businessId);
+}
@@ -2,7 +2,11 @@ package com.easyfin.openbanking.repository;
 
 import com.easyfin.openbanking.enums.TaxStatus;
 import com.easyfin.openbanking.model.Business;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -21,5 +25,10 @@ public interface BusinessRepository extends JpaRepository<Business, Long> {
     List<Business> findByIsActiveTrue();
     
     Optional<Business> findFirstByIsActiveTrueOrderByCreatedAtDesc();
+    
+    // Serializes a business's transaction-derived writes (rollup buckets, recurring clusters) until commit
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Business b WHERE b.id = :id")
+    Optional<Business> findForUpdate(@Param("id") Long id);
 }
 
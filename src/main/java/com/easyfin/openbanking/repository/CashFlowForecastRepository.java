@@ -2,6 +2,7 @@ package com.easyfin.openbanking.repository;
 
 import com.easyfin.openbanking.model.CashFlowForecast;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -26,5 +27,26 @@ public interface CashFlowForecastRepository extends JpaRepository<CashFlowForeca
            "ORDER BY c.forecastDate ASC")
     List<CashFlowForecast> findFutureForecasts(@Param("businessId") Long businessId,
                                                 @Param("startDate") LocalDate startDate);
+    
+    // Stored forecast window with the business fetched, since responses serialize it
+    @Query("SELECT c FROM CashFlowForecast c JOIN FETCH c.business WHERE c.business.id = :businessId " +
+           "AND c.forecastDate >= :startDate " +
+           "AND c.forecastDate <= :endDate " +
+           "ORDER BY c.forecastDate ASC")
+    List<CashFlowForecast> findForecastWindow(@Param("businessId") Long businessId,
+                                              @Param("startDate") LocalDate startDate,
+                                              @Param("endDate") LocalDate endDate);
+    
+    @Query("SELECT COUNT(c) AS rowCount, MIN(c.computedAt) AS oldestComputedAt " +
+           "FROM CashFlowForecast c WHERE c.business.id = :businessId " +
+           "AND c.forecastDate >= :startDate " +
+           "AND c.forecastDate <= :endDate")
+    ForecastFreshness findFreshness(@Param("businessId") Long businessId,
+                                    @Param("startDate") LocalDate startDate,
+                                    @Param("endDate") LocalDate endDate);
+    
+    @Modifying
+    @Query("DELETE FROM CashFlowForecast c WHERE c.forecastDate < :cutoff")
+    int deleteByForecastDateBefore(@Param("cutoff") LocalDate cutoff);
 }
 
@@ -1,9 +1,13 @@
 package com.easyfin.openbanking.repository;
 
 import com.easyfin.openbanking.model.Employee;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 /**
@@ -18,6 +22,19 @@ public interface EmployeeRepository extends JpaRepository<Employee, Long> {
     
     Long countByBusinessIdAndIsActiveTrue(Long businessId);
     
+    @Query("SELECT e.monthlySalary FROM Employee e WHERE e.business.id = :businessId AND e.isActive = true")
+    List<BigDecimal> findActiveSalaries(@Param("businessId") Long businessId);
+    
+    // (id, monthlySalary) rows in id order, for the payroll simulation snapshot
+    @Query("SELECT e.id, e.monthlySalary FROM Employee e WHERE e.business.id = :businessId AND e.isActive = true " +
+           "ORDER BY e.id")
+    List<Object[]> findActiveIdsAndSalaries(@Param("businessId") Long businessId);
+    
+    // Keyset chunk of active employees in id order, for payroll runs
+    @Query("SELECT e FROM Employee e WHERE e.business.id = :businessId AND e.isActive = true " +
+           "AND e.id > :afterId ORDER BY e.id")
+    List<Employee> findActiveChunk(@Param("businessId") Long businessId, @Param("afterId") long afterId, Limit limit);
+    
     List<Employee> findByIsActiveTrueOrderByMonthlySalaryDesc();
 }
 
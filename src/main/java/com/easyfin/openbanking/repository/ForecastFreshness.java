@@ -0,0 +1,13 @@
+package com.easyfin.openbanking.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * How much of a forecast window is stored, and when its oldest row was computed
+ */
+public interface ForecastFreshness {
+    
+    Long getRowCount();
+    
+    LocalDateTime getOldestComputedAt();
+}
@@ -0,0 +1,19 @@
+package com.easyfin.openbanking.repository;
+
+import com.easyfin.openbanking.model.MerchantCategoryOverride;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for MerchantCategoryOverride entity
+ */
+@Repository
+public interface MerchantCategoryOverrideRepository extends JpaRepository<MerchantCategoryOverride, Long> {
+    
+    List<MerchantCategoryOverride> findByBusinessId(Long businessId);
+    
+    Optional<MerchantCategoryOverride> findByBusinessIdAndMerchantKey(Long businessId, String merchantKey);
+}
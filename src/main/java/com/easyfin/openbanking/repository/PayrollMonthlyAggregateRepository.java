@@ -0,0 +1,33 @@
+package com.easyfin.openbanking.repository;
+
+import com.easyfin.openbanking.model.PayrollMonthlyAggregate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for PayrollMonthlyAggregate entity
+ */
+@Repository
+public interface PayrollMonthlyAggregateRepository extends JpaRepository<PayrollMonthlyAggregate, Long> {
+    
+    Optional<PayrollMonthlyAggregate> findByBusinessIdAndPayrollMonth(Long businessId, LocalDate payrollMonth);
+    
+    @Modifying
+    @Query("DELETE FROM PayrollMonthlyAggregate a WHERE a.businessId = :businessId AND a.payrollMonth = :payrollMonth")
+    int deleteMonth(@Param("businessId") Long businessId, @Param("payrollMonth") LocalDate payrollMonth);
+    
+    @Query("SELECT DISTINCT a.businessId FROM PayrollMonthlyAggregate a WHERE a.payrollMonth >= :fromMonth")
+    List<Long> findBusinessIdsFromMonth(@Param("fromMonth") LocalDate fromMonth);
+    
+    // Rebuilt on next read, with whatever rates are in force by then
+    @Modifying
+    @Query("DELETE FROM PayrollMonthlyAggregate a WHERE a.businessId = :businessId AND a.payrollMonth >= :fromMonth")
+    int deleteFromMonth(@Param("businessId") Long businessId, @Param("fromMonth") LocalDate fromMonth);
+}
@@ -0,0 +1,19 @@
+package com.easyfin.openbanking.repository;
+
+import com.easyfin.openbanking.model.PayrollRateVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repository for PayrollRateVersion entity
+ */
+@Repository
+public interface PayrollRateVersionRepository extends JpaRepository<PayrollRateVersion, Long> {
+    
+    List<PayrollRateVersion> findAllByOrderByEffectiveFromAsc();
+    
+    boolean existsByEffectiveFrom(LocalDate effectiveFrom);
+}
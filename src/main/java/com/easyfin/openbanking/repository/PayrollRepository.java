@@ -1,6 +1,8 @@
 package com.easyfin.openbanking.repository;
 
+import com.easyfin.openbanking.dto.PayrollDTO;
 import com.easyfin.openbanking.model.Payroll;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -8,6 +10,7 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,20 +24,75 @@ public interface PayrollRepository extends JpaRepository<Payroll, Long> {
     
     List<Payroll> findByBusinessIdOrderByPayrollMonthDesc(Long businessId);
     
+    // Keyset page of history rows strictly after the (cursorMonth, cursorId) position, newest first,
+    // projected straight into DTOs with the employee name joined in one statement
+    @Query("SELECT new com.easyfin.openbanking.dto.PayrollDTO(p.id, e.id, CONCAT(e.firstName, ' ', e.lastName), " +
+           "p.payrollMonth, p.grossSalary, p.employeeSsfContribution, p.employerSsfContribution, " +
+           "p.incomeTax, p.netSalary, p.totalEmployerCost, p.isPaid, p.paidDate) " +
+           "FROM Payroll p JOIN p.employee e WHERE p.business.id = :businessId " +
+           "AND (p.payrollMonth < :cursorMonth " +
+           "OR (p.payrollMonth = :cursorMonth AND p.id < :cursorId)) " +
+           "ORDER BY p.payrollMonth DESC, p.id DESC")
+    List<PayrollDTO> findHistoryPageBefore(@Param("businessId") Long businessId,
+                                           @Param("cursorMonth") LocalDate cursorMonth,
+                                           @Param("cursorId") Long cursorId,
+                                           Limit limit);
+    
+    // Keyset chunk of one month's rows in id order, projected like the history page
+    @Query("SELECT new com.easyfin.openbanking.dto.PayrollDTO(p.id, e.id, CONCAT(e.firstName, ' ', e.lastName), " +
+           "p.payrollMonth, p.grossSalary, p.employeeSsfContribution, p.employerSsfContribution, " +
+           "p.incomeTax, p.netSalary, p.totalEmployerCost, p.isPaid, p.paidDate) " +
+           "FROM Payroll p JOIN p.employee e WHERE p.business.id = :businessId " +
+           "AND p.payrollMonth = :payrollMonth AND p.id > :afterId ORDER BY p.id")
+    List<PayrollDTO> findMonthChunk(@Param("businessId") Long businessId,
+                                    @Param("payrollMonth") LocalDate payrollMonth,
+                                    @Param("afterId") Long afterId,
+                                    Limit limit);
+    
+    long countByBusinessIdAndPayrollMonth(Long businessId, LocalDate payrollMonth);
+    
     List<Payroll> findByEmployeeId(Long employeeId);
     
     Optional<Payroll> findByEmployeeIdAndPayrollMonth(Long employeeId, LocalDate payrollMonth);
     
+    // Bulk form of the (employee, payrollMonth) lookup: which of these employees already have the month
+    @Query("SELECT p.employee.id FROM Payroll p WHERE p.payrollMonth = :payrollMonth " +
+           "AND p.employee.id IN :employeeIds")
+    List<Long> findEmployeeIdsWithPayroll(@Param("payrollMonth") LocalDate payrollMonth,
+                                          @Param("employeeIds") Collection<Long> employeeIds);
+    
     List<Payroll> findByBusinessIdAndPayrollMonth(Long businessId, LocalDate payrollMonth);
     
     List<Payroll> findByBusinessIdAndIsPaidFalse(Long businessId);
     
+    // Cost actually run, served from the run months' aggregates. A month whose payroll rows have no run
+    // aggregate yet (dropped for new rates, or not built since) is summed from the rows themselves.
+    default BigDecimal sumTotalPayrollCostByBusinessAndDateRange(Long businessId, LocalDate startDate, LocalDate endDate) {
+        BigDecimal aggregated = sumRunAggregateCost(businessId, startDate, endDate);
+        BigDecimal unaggregated = sumCostWithoutRunAggregate(businessId, startDate, endDate);
+        if (aggregated == null || unaggregated == null) {
+            return aggregated != null ? aggregated : unaggregated;
+        }
+        return aggregated.add(unaggregated);
+    }
+    
+    @Query("SELECT SUM(a.totalEmployerCost) FROM PayrollMonthlyAggregate a " +
+           "WHERE a.businessId = :businessId " +
+           "AND a.fromPayrollRun = true " +
+           "AND a.payrollMonth >= :startDate " +
+           "AND a.payrollMonth <= :endDate")
+    BigDecimal sumRunAggregateCost(@Param("businessId") Long businessId,
+                                   @Param("startDate") LocalDate startDate,
+                                   @Param("endDate") LocalDate endDate);
+    
     @Query("SELECT SUM(p.totalEmployerCost) FROM Payroll p " +
            "WHERE p.business.id = :businessId " +
            "AND p.payrollMonth >= :startDate " +
-           "AND p.payrollMonth <= :endDate")
-    BigDecimal sumTotalPayrollCostByBusinessAndDateRange(@Param("businessId") Long businessId,
-                                                          @Param("startDate") LocalDate startDate,
-                                                          @Param("endDate") LocalDate endDate);
+           "AND p.payrollMonth <= :endDate " +
+           "AND NOT EXISTS (SELECT 1 FROM PayrollMonthlyAggregate a WHERE a.businessId = :businessId " +
+           "AND a.payrollMonth = p.payrollMonth AND a.fromPayrollRun = true)")
+    BigDecimal sumCostWithoutRunAggregate(@Param("businessId") Long businessId,
+                                          @Param("startDate") LocalDate startDate,
+                                          @Param("endDate") LocalDate endDate);
 }
 
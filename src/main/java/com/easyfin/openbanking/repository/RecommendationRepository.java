@@ -18,6 +18,8 @@ public interface RecommendationRepository extends JpaRepository<Recommendation,
     
     List<Recommendation> findByBusinessIdAndIsActedUponFalse(Long businessId);
     
+    Long countByBusinessIdAndIsActedUponFalse(Long businessId);
+    
     List<Recommendation> findByBusinessIdAndCategory(Long businessId, String category);
     
     List<Recommendation> findByBusinessIdAndCategoryAndIsActedUponFalse(Long businessId, String category);
@@ -0,0 +1,34 @@
+package com.easyfin.openbanking.repository;
+
+import com.easyfin.openbanking.model.RecurringPayment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for RecurringPayment entity
+ */
+@Repository
+public interface RecurringPaymentRepository extends JpaRepository<RecurringPayment, Long> {
+    
+    List<RecurringPayment> findByBusinessIdAndMerchantKeyIn(Long businessId, Collection<String> merchantKeys);
+    
+    List<RecurringPayment> findByBusinessIdAndPeriodIsNotNull(Long businessId);
+    
+    boolean existsByBusinessId(Long businessId);
+    
+    boolean existsByBusinessIdAndStaleTrue(Long businessId);
+    
+    @Modifying
+    @Query("UPDATE RecurringPayment r SET r.stale = true WHERE r.businessId = :businessId")
+    int markStaleByBusinessId(@Param("businessId") Long businessId);
+    
+    @Modifying
+    @Query("DELETE FROM RecurringPayment r WHERE r.businessId = :businessId")
+    int deleteByBusinessId(@Param("businessId") Long businessId);
+}
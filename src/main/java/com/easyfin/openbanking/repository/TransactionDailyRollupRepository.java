@@ -0,0 +1,73 @@
+package com.easyfin.openbanking.repository;
+
+import com.easyfin.openbanking.model.TransactionDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repository for TransactionDailyRollup entity
+ */
+@Repository
+public interface TransactionDailyRollupRepository extends JpaRepository<TransactionDailyRollup, Long> {
+    
+    List<TransactionDailyRollup> findByBusinessId(Long businessId);
+    
+    boolean existsByBusinessId(Long businessId);
+    
+    // Daily totals per category and direction, collapsing the deductible split
+    @Query("SELECT r.rollupDate, r.category, r.isIncome, SUM(r.totalAmount) " +
+           "FROM TransactionDailyRollup r WHERE r.businessId = :businessId " +
+           "GROUP BY r.rollupDate, r.category, r.isIncome")
+    List<Object[]> sumDailyByCategoryAndDirection(@Param("businessId") Long businessId);
+    
+    // Daily totals per direction over a window, for building forecast series
+    @Query("SELECT r.rollupDate, r.isIncome, SUM(r.totalAmount) " +
+           "FROM TransactionDailyRollup r WHERE r.businessId = :businessId " +
+           "AND r.rollupDate >= :startDate " +
+           "AND r.rollupDate <= :endDate " +
+           "GROUP BY r.rollupDate, r.isIncome")
+    List<Object[]> sumDailyByDirection(@Param("businessId") Long businessId,
+                                       @Param("startDate") LocalDate startDate,
+                                       @Param("endDate") LocalDate endDate);
+    
+    // Net flow (income minus expenses) per day, oldest first, for rebuilding the balance ledger
+    @Query("SELECT r.rollupDate, SUM(CASE WHEN r.isIncome = true THEN r.totalAmount ELSE -r.totalAmount END) " +
+           "FROM TransactionDailyRollup r WHERE r.businessId = :businessId " +
+           "GROUP BY r.rollupDate ORDER BY r.rollupDate")
+    List<Object[]> sumNetByDay(@Param("businessId") Long businessId);
+    
+    @Query("SELECT r.rollupDate, SUM(CASE WHEN r.isIncome = true THEN r.totalAmount ELSE -r.totalAmount END) " +
+           "FROM TransactionDailyRollup r WHERE r.businessId = :businessId " +
+           "AND r.rollupDate > :afterDate " +
+           "AND r.rollupDate <= :throughDate " +
+           "GROUP BY r.rollupDate ORDER BY r.rollupDate")
+    List<Object[]> sumNetByDayBetween(@Param("businessId") Long businessId,
+                                      @Param("afterDate") LocalDate afterDate,
+                                      @Param("throughDate") LocalDate throughDate);
+    
+    // Net flow over (afterDate, throughDate], the tail added to a balance snapshot
+    @Query("SELECT COALESCE(SUM(CASE WHEN r.isIncome = true THEN r.totalAmount ELSE -r.totalAmount END), 0) " +
+           "FROM TransactionDailyRollup r WHERE r.businessId = :businessId " +
+           "AND r.rollupDate > :afterDate " +
+           "AND r.rollupDate <= :throughDate")
+    BigDecimal sumNetBetween(@Param("businessId") Long businessId,
+                             @Param("afterDate") LocalDate afterDate,
+                             @Param("throughDate") LocalDate throughDate);
+    
+    @Query("SELECT COALESCE(SUM(CASE WHEN r.isIncome = true THEN r.totalAmount ELSE -r.totalAmount END), 0) " +
+           "FROM TransactionDailyRollup r WHERE r.businessId = :businessId " +
+           "AND r.rollupDate <= :throughDate")
+    BigDecimal sumNetThrough(@Param("businessId") Long businessId,
+                             @Param("throughDate") LocalDate throughDate);
+    
+    @Modifying
+    @Query("DELETE FROM TransactionDailyRollup r WHERE r.businessId = :businessId")
+    int deleteByBusinessId(@Param("businessId") Long businessId);
+}
@@ -2,12 +2,14 @@ package com.easyfin.openbanking.repository;
 
 import com.easyfin.openbanking.enums.TransactionCategory;
 import com.easyfin.openbanking.model.Transaction;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -19,11 +21,15 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     
     List<Transaction> findByBusinessId(Long businessId);
     
+    boolean existsByBusinessId(Long businessId);
+    
     List<Transaction> findByBusinessIdOrderByTransactionDateDesc(Long businessId);
     
-    List<Transaction> findByBusinessIdAndCategory(Long businessId, TransactionCategory category);
+    List<Transaction> findTop5ByBusinessIdOrderByTransactionDateDescIdDesc(Long businessId);
     
-    List<Transaction> findByBusinessIdAndIsTaxDeductibleTrue(Long businessId);
+    List<Transaction> findTop10ByBusinessIdAndIsTaxDeductibleTrueOrderByTransactionDateDescIdDesc(Long businessId);
+    
+    List<Transaction> findByBusinessIdAndCategory(Long businessId, TransactionCategory category);
     
     List<Transaction> findByBusinessIdAndCategoryOrderByTransactionDateDesc(Long businessId, TransactionCategory category);
     
@@ -37,50 +43,105 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
                                                      @Param("startDate") LocalDateTime startDate,
                                                      @Param("endDate") LocalDateTime endDate);
     
-    @Query("SELECT SUM(t.amount) FROM Transaction t WHERE t.business.id = :businessId " +
-           "AND t.isIncome = true " +
+    // Keyset page: rows strictly after the (cursorDate, cursorId) position, newest first; a null category matches all
+    @Query("SELECT t FROM Transaction t WHERE t.business.id = :businessId " +
+           "AND (:category IS NULL OR t.category = :category) " +
            "AND t.transactionDate >= :startDate " +
-           "AND t.transactionDate <= :endDate")
-    BigDecimal sumIncomeByBusinessIdAndDateRange(@Param("businessId") Long businessId,
-                                                  @Param("startDate") LocalDateTime startDate,
-                                                  @Param("endDate") LocalDateTime endDate);
+           "AND t.transactionDate <= :endDate " +
+           "AND (t.transactionDate < :cursorDate " +
+           "OR (t.transactionDate = :cursorDate AND t.id < :cursorId)) " +
+           "ORDER BY t.transactionDate DESC, t.id DESC")
+    List<Transaction> findPageBefore(@Param("businessId") Long businessId,
+                                     @Param("category") TransactionCategory category,
+                                     @Param("startDate") LocalDateTime startDate,
+                                     @Param("endDate") LocalDateTime endDate,
+                                     @Param("cursorDate") LocalDateTime cursorDate,
+                                     @Param("cursorId") Long cursorId,
+                                     Limit limit);
     
-    @Query("SELECT SUM(t.amount) FROM Transaction t WHERE t.business.id = :businessId " +
-           "AND t.isIncome = false " +
-           "AND t.transactionDate >= :startDate " +
-           "AND t.transactionDate <= :endDate")
-    BigDecimal sumExpensesByBusinessIdAndDateRange(@Param("businessId") Long businessId,
-                                                    @Param("startDate") LocalDateTime startDate,
-                                                    @Param("endDate") LocalDateTime endDate);
+    // Recategorization candidates in id order: uncategorized, or categorized below the confidence threshold
+    @Query("SELECT t FROM Transaction t WHERE t.business.id = :businessId " +
+           "AND t.id > :afterId " +
+           "AND (t.category = :uncategorized OR t.categorizationConfidence IS NULL " +
+           "OR t.categorizationConfidence < :minConfidence) " +
+           "ORDER BY t.id")
+    List<Transaction> findRecategorizationChunk(@Param("businessId") Long businessId,
+                                                @Param("uncategorized") TransactionCategory uncategorized,
+                                                @Param("minConfidence") double minConfidence,
+                                                @Param("afterId") Long afterId,
+                                                Limit limit);
     
-    @Query("SELECT SUM(t.amount) FROM Transaction t WHERE t.business.id = :businessId " +
-           "AND t.isTaxDeductible = true " +
-           "AND t.transactionDate >= :startDate " +
-           "AND t.transactionDate <= :endDate")
-    BigDecimal sumTaxDeductibleByBusinessIdAndDateRange(@Param("businessId") Long businessId,
-                                                         @Param("startDate") LocalDateTime startDate,
-                                                         @Param("endDate") LocalDateTime endDate);
+    @Query("SELECT COUNT(t) FROM Transaction t WHERE t.business.id = :businessId " +
+           "AND (t.category = :uncategorized OR t.categorizationConfidence IS NULL " +
+           "OR t.categorizationConfidence < :minConfidence)")
+    long countRecategorizationCandidates(@Param("businessId") Long businessId,
+                                         @Param("uncategorized") TransactionCategory uncategorized,
+                                         @Param("minConfidence") double minConfidence);
+    
+    // Oldest first, the order the recurring-payment detector expects when replaying history
+    @Query("SELECT t.merchantName, t.isIncome, t.transactionDate, t.amount FROM Transaction t " +
+           "WHERE t.business.id = :businessId ORDER BY t.transactionDate, t.id")
+    List<Object[]> findRecurringReplayByBusinessId(@Param("businessId") Long businessId);
     
-    @Query("SELECT t.category, SUM(t.amount) FROM Transaction t " +
+    // Aggregates below are answered from transaction_daily_rollups rather than raw rows,
+    // so their cost depends on the number of days in range. Both bounds are whole days, inclusive.
+    
+    @Query("SELECT SUM(r.totalAmount) FROM TransactionDailyRollup r WHERE r.businessId = :businessId " +
+           "AND r.isIncome = true " +
+           "AND r.rollupDate >= :startDate " +
+           "AND r.rollupDate <= :endDate")
+    BigDecimal sumIncomeByBusinessIdAndDays(@Param("businessId") Long businessId,
+                                            @Param("startDate") LocalDate startDate,
+                                            @Param("endDate") LocalDate endDate);
+    
+    @Query("SELECT SUM(r.totalAmount) FROM TransactionDailyRollup r WHERE r.businessId = :businessId " +
+           "AND r.isIncome = false " +
+           "AND r.rollupDate >= :startDate " +
+           "AND r.rollupDate <= :endDate")
+    BigDecimal sumExpensesByBusinessIdAndDays(@Param("businessId") Long businessId,
+                                              @Param("startDate") LocalDate startDate,
+                                              @Param("endDate") LocalDate endDate);
+    
+    @Query("SELECT SUM(r.totalAmount) FROM TransactionDailyRollup r WHERE r.businessId = :businessId " +
+           "AND r.isTaxDeductible = true " +
+           "AND r.rollupDate >= :startDate " +
+           "AND r.rollupDate <= :endDate")
+    BigDecimal sumTaxDeductibleByBusinessIdAndDays(@Param("businessId") Long businessId,
+                                                   @Param("startDate") LocalDate startDate,
+                                                   @Param("endDate") LocalDate endDate);
+    
+    // Income, expense and deductible totals in one scan via conditional sums
+    @Query("SELECT COALESCE(SUM(CASE WHEN r.isIncome = true THEN r.totalAmount ELSE 0 END), 0) AS totalIncome, " +
+           "COALESCE(SUM(CASE WHEN r.isIncome = false THEN r.totalAmount ELSE 0 END), 0) AS totalExpenses, " +
+           "COALESCE(SUM(CASE WHEN r.isTaxDeductible = true THEN r.totalAmount ELSE 0 END), 0) AS taxDeductible " +
+           "FROM TransactionDailyRollup r WHERE r.businessId = :businessId " +
+           "AND r.rollupDate >= :startDate " +
+           "AND r.rollupDate <= :endDate")
+    TransactionTotals sumTotalsByBusinessIdAndDays(@Param("businessId") Long businessId,
+                                                   @Param("startDate") LocalDate startDate,
+                                                   @Param("endDate") LocalDate endDate);
+    
+    @Query("SELECT r.category, SUM(r.totalAmount) FROM TransactionDailyRollup r " +
+           "WHERE r.businessId = :businessId " +
+           "AND r.isIncome = false " +
+           "AND r.rollupDate >= :startDate " +
+           "AND r.rollupDate <= :endDate " +
+           "GROUP BY r.category")
+    List<Object[]> sumExpensesByCategoryAndDays(@Param("businessId") Long businessId,
+                                                @Param("startDate") LocalDate startDate,
+                                                @Param("endDate") LocalDate endDate);
+    
+    // Deductible totals per category over the whole history
+    @Query("SELECT r.category, SUM(r.totalAmount) FROM TransactionDailyRollup r " +
+           "WHERE r.businessId = :businessId " +
+           "AND r.isTaxDeductible = true " +
+           "GROUP BY r.category")
+    List<Object[]> sumTaxDeductibleByCategory(@Param("businessId") Long businessId);
+    
+    // Raw per-day buckets, used to backfill and verify the rollup table
+    @Query("SELECT CAST(t.transactionDate AS LocalDate), t.category, t.isIncome, t.isTaxDeductible, " +
+           "SUM(t.amount), COUNT(t) FROM Transaction t " +
            "WHERE t.business.id = :businessId " +
-           "AND t.isIncome = false " +
-           "AND t.transactionDate >= :startDate " +
-           "AND t.transactionDate <= :endDate " +
-           "GROUP BY t.category")
-    List<Object[]> sumExpensesByCategory(@Param("businessId") Long businessId,
-                                         @Param("startDate") LocalDateTime startDate,
-                                         @Param("endDate") LocalDateTime endDate);
-    
-    // Find income transactions by date range
-    List<Transaction> findByBusinessIdAndIsIncomeTrueAndTransactionDateBetween(
-            Long businessId, 
-            LocalDateTime startDate, 
-            LocalDateTime endDate);
-    
-    // Find expense transactions by date range
-    List<Transaction> findByBusinessIdAndIsIncomeFalseAndTransactionDateBetween(
-            Long businessId, 
-            LocalDateTime startDate, 
-            LocalDateTime endDate);
+           "GROUP BY CAST(t.transactionDate AS LocalDate), t.category, t.isIncome, t.isTaxDeductible")
+    List<Object[]> sumDailyBucketsFromRawByBusinessId(@Param("businessId") Long businessId);
 }
-
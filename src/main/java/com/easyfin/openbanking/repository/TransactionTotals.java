@@ -0,0 +1,15 @@
+package com.easyfin.openbanking.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Period totals computed in a single pass over transactions
+ */
+public interface TransactionTotals {
+    
+    BigDecimal getTotalIncome();
+    
+    BigDecimal getTotalExpenses();
+    
+    BigDecimal getTaxDeductible();
+}
@@ -0,0 +1,220 @@
+package com.easyfin.openbanking.service;
+
+import com.easyfin.openbanking.model.BalanceSnapshot;
+import com.easyfin.openbanking.model.Business;
+import com.easyfin.openbanking.model.BusinessBalance;
+import com.easyfin.openbanking.repository.BalanceSnapshotRepository;
+import com.easyfin.openbanking.repository.BusinessBalanceRepository;
+import com.easyfin.openbanking.repository.BusinessRepository;
+import com.easyfin.openbanking.repository.TransactionDailyRollupRepository;
+import com.easyfin.openbanking.util.Money;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Running-balance ledger: a per-business balance moved by every transaction write, plus daily
+ * closing-balance snapshots. The balance on any date is the nearest snapshot plus the rollup net
+ * flow since it, so reads never sum the whole history.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BalanceLedgerService {
+    
+    private static final String ADD_TO_BALANCE_SQL =
+            "UPDATE business_balances SET balance = balance + ?, updated_at = ? WHERE business_id = ?";
+    
+    private static final String SHIFT_SNAPSHOTS_SQL =
+            "UPDATE balance_snapshots SET closing_balance = closing_balance + ? " +
+            "WHERE business_id = ? AND snapshot_date >= ?";
+    
+    private final BusinessBalanceRepository balanceRepository;
+    private final BalanceSnapshotRepository snapshotRepository;
+    private final TransactionDailyRollupRepository rollupRepository;
+    private final BusinessRepository businessRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    
+    /**
+     * Move balances by per-day net deltas of a transaction write, after its rollups are updated
+     */
+    @Transactional
+    public void apply(Map<Long, Map<LocalDate, BigDecimal>> netDeltas) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> shifts = new ArrayList<>();
+        netDeltas.forEach((businessId, byDay) -> {
+            BigDecimal total = BigDecimal.ZERO;
+            boolean moved = false;
+            for (BigDecimal delta : byDay.values()) {
+                total = total.add(delta);
+                moved |= delta.signum() != 0;
+            }
+            if (!moved) {
+                return; // Recategorization only
+            }
+            
+            // The balance row is updated first so its lock orders this write against snapshotting
+            if (jdbcTemplate.update(ADD_TO_BALANCE_SQL, total, now, businessId) == 0) {
+                rebuild(businessId); // First write for this business; rollups already include it
+                return;
+            }
+            byDay.forEach((date, delta) -> {
+                if (delta.signum() != 0) {
+                    shifts.add(new Object[]{delta, businessId, date});
+                }
+            });
+        });
+        if (!shifts.isEmpty()) {
+            jdbcTemplate.batchUpdate(SHIFT_SNAPSHOTS_SQL, shifts);
+        }
+    }
+    
+    /**
+     * Rebuild a business's running balance and daily snapshots through yesterday from its rollups
+     */
+    @Transactional
+    public int rebuild(Long businessId) {
+        BusinessBalance balance = balanceRepository.findForUpdate(businessId)
+                .orElseGet(() -> new BusinessBalance(businessId, null, null));
+        LocalDate lastClosedDay = LocalDate.now().minusDays(1);
+        snapshotRepository.deleteByBusinessId(businessId);
+        
+        List<BalanceSnapshot> snapshots = new ArrayList<>();
+        long total = 0;
+        long closing = 0;
+        LocalDate next = null;
+        for (Object[] row : rollupRepository.sumNetByDay(businessId)) {
+            LocalDate date = (LocalDate) row[0];
+            long net = Money.toMinor((BigDecimal) row[1]);
+            total += net;
+            if (date.isAfter(lastClosedDay)) {
+                continue; // Counts towards the running balance but no day is closed yet
+            }
+            fill(snapshots, businessId, next, date.minusDays(1), closing);
+            closing += net;
+            snapshots.add(snapshot(businessId, date, closing));
+            next = date.plusDays(1);
+        }
+        fill(snapshots, businessId, next, lastClosedDay, closing);
+        snapshotRepository.saveAllAndFlush(snapshots);
+        
+        balance.setBalance(Money.toDecimal(total));
+        balance.setUpdatedAt(LocalDateTime.now());
+        balanceRepository.saveAndFlush(balance);
+        log.debug("Rebuilt balance ledger for business {} with {} snapshots", businessId, snapshots.size());
+        return snapshots.size();
+    }
+    
+    /**
+     * Closing balance at the end of a day: the nearest snapshot plus the net flow since it
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal balanceAt(Long businessId, LocalDate date) {
+        Optional<BalanceSnapshot> snapshot = snapshotRepository
+                .findFirstByBusinessIdAndSnapshotDateLessThanEqualOrderBySnapshotDateDesc(businessId, date);
+        if (snapshot.isEmpty()) {
+            return rollupRepository.sumNetThrough(businessId, date);
+        }
+        if (snapshot.get().getSnapshotDate().equals(date)) {
+            return snapshot.get().getClosingBalance();
+        }
+        return snapshot.get().getClosingBalance()
+                .add(rollupRepository.sumNetBetween(businessId, snapshot.get().getSnapshotDate(), date));
+    }
+    
+    /**
+     * Current running balance of a business
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal currentBalance(Long businessId) {
+        return balanceRepository.findById(businessId)
+                .map(BusinessBalance::getBalance)
+                .orElseGet(() -> rollupRepository.sumNetThrough(businessId, LocalDate.now()));
+    }
+    
+    /**
+     * Close every day up to yesterday for active businesses
+     */
+    @Scheduled(cron = "${easyfin.ledger.snapshot-cron:0 1 0 * * *}")
+    public void takeSnapshots() {
+        for (Business business : businessRepository.findByIsActiveTrue()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> closeDays(business.getId()));
+            } catch (RuntimeException e) {
+                log.warn("Balance snapshot failed for business {}", business.getId(), e);
+            }
+        }
+    }
+    
+    /**
+     * Build the ledger for businesses that don't have one yet
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeMissing() {
+        for (Business business : businessRepository.findAll()) {
+            if (!balanceRepository.existsById(business.getId())) {
+                transactionTemplate.executeWithoutResult(status -> rebuild(business.getId()));
+            }
+        }
+    }
+    
+    private void closeDays(Long businessId) {
+        if (balanceRepository.findForUpdate(businessId).isEmpty()) {
+            rebuild(businessId);
+            return;
+        }
+        Optional<BalanceSnapshot> latest = snapshotRepository.findFirstByBusinessIdOrderBySnapshotDateDesc(businessId);
+        if (latest.isEmpty()) {
+            rebuild(businessId);
+            return;
+        }
+        
+        LocalDate lastClosedDay = LocalDate.now().minusDays(1);
+        LocalDate from = latest.get().getSnapshotDate();
+        if (!from.isBefore(lastClosedDay)) {
+            return;
+        }
+        
+        Map<LocalDate, Long> netByDay = new HashMap<>();
+        for (Object[] row : rollupRepository.sumNetByDayBetween(businessId, from, lastClosedDay)) {
+            netByDay.put((LocalDate) row[0], Money.toMinor((BigDecimal) row[1]));
+        }
+        List<BalanceSnapshot> snapshots = new ArrayList<>();
+        long closing = Money.toMinor(latest.get().getClosingBalance());
+        for (LocalDate date = from.plusDays(1); !date.isAfter(lastClosedDay); date = date.plusDays(1)) {
+            closing += netByDay.getOrDefault(date, 0L);
+            snapshots.add(snapshot(businessId, date, closing));
+        }
+        snapshotRepository.saveAll(snapshots);
+    }
+    
+    // Days without transactions close at the previous balance
+    private void fill(List<BalanceSnapshot> snapshots, Long businessId, LocalDate from, LocalDate through, long closing) {
+        if (from == null) {
+            return;
+        }
+        for (LocalDate date = from; !date.isAfter(through); date = date.plusDays(1)) {
+            snapshots.add(snapshot(businessId, date, closing));
+        }
+    }
+    
+    private BalanceSnapshot snapshot(Long businessId, LocalDate date, long closing) {
+        return new BalanceSnapshot(null, businessId, date, Money.toDecimal(closing));
+    }
+}
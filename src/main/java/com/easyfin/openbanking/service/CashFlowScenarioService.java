@@ -0,0 +1,299 @@
+package com.easyfin.openbanking.service;
+
+import com.easyfin.openbanking.dto.CashFlowScenarioDTO;
+import com.easyfin.openbanking.dto.CashFlowScenarioRequestDTO;
+import com.easyfin.openbanking.enums.RecurrencePeriod;
+import com.easyfin.openbanking.model.Business;
+import com.easyfin.openbanking.model.CashFlowForecast;
+import com.easyfin.openbanking.model.RecurringPayment;
+import com.easyfin.openbanking.util.Money;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What-if scenarios over the stored forecast. The forecast and the due days of detected recurring
+ * payments are cached per business as qəpik arrays; a scenario only adds daily deltas to them, so
+ * evaluating it never touches transactions and many scenarios fit in one request.
+ */
+@Service
+@RequiredArgsConstructor
+public class CashFlowScenarioService {
+    
+    public static final int MAX_SCENARIOS = 50;
+    
+    private static final int MAX_CACHED_BASELINES = 1000;
+    
+    private final CashFlowService cashFlowService;
+    private final RecurringPaymentService recurringPaymentService;
+    private final PayrollService payrollService;
+    
+    // An evicted baseline is just rebuilt on next use
+    private final Map<Long, Baseline> baselines = Caffeine.newBuilder()
+            .maximumSize(MAX_CACHED_BASELINES)
+            .<Long, Baseline>build()
+            .asMap();
+    // A cached baseline is only used on the day it was built, so a change more than a day old can't outdate it
+    private final Map<Long, LocalDateTime> lastTransactionChange = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofDays(1))
+            .<Long, LocalDateTime>build()
+            .asMap();
+    
+    /**
+     * Evaluate scenarios against the baseline forecast for the next N days
+     */
+    public CashFlowScenarioDTO evaluate(Business business, CashFlowScenarioRequestDTO request) {
+        int days = request.getDays() != null ? request.getDays() : CashFlowService.FORECAST_HORIZON_DAYS;
+        if (days < 1 || days > CashFlowService.FORECAST_HORIZON_DAYS) {
+            throw new IllegalArgumentException("days must be between 1 and " + CashFlowService.FORECAST_HORIZON_DAYS);
+        }
+        List<CashFlowScenarioRequestDTO.Scenario> scenarios = request.getScenarios();
+        if (scenarios == null || scenarios.isEmpty()) {
+            throw new IllegalArgumentException("At least one scenario is required");
+        }
+        if (scenarios.size() > MAX_SCENARIOS) {
+            throw new IllegalArgumentException("At most " + MAX_SCENARIOS + " scenarios per request");
+        }
+        
+        long started = System.nanoTime();
+        Baseline baseline = baseline(business);
+        CashFlowScenarioDTO.ScenarioResult base = result("baseline", baseline, days, new long[days], new long[days]);
+        
+        List<CashFlowScenarioDTO.ScenarioResult> results = new ArrayList<>(scenarios.size());
+        for (int s = 0; s < scenarios.size(); s++) {
+            CashFlowScenarioRequestDTO.Scenario scenario = scenarios.get(s);
+            long[] incomeDelta = new long[days];
+            long[] expenseDelta = new long[days];
+            applyIncomeChange(baseline, scenario.getIncomeChangePercent(), incomeDelta);
+            if (scenario.getRecurring() != null) {
+                for (CashFlowScenarioRequestDTO.RecurringChange change : scenario.getRecurring()) {
+                    applyRecurringChange(baseline, change, incomeDelta, expenseDelta);
+                }
+            }
+            if (scenario.getNewEmployees() != null) {
+                for (CashFlowScenarioRequestDTO.NewEmployee hire : scenario.getNewEmployees()) {
+                    applyNewEmployee(baseline, hire, expenseDelta);
+                }
+            }
+            
+            String name = scenario.getName() != null ? scenario.getName() : "scenario " + (s + 1);
+            CashFlowScenarioDTO.ScenarioResult result = result(name, baseline, days, incomeDelta, expenseDelta);
+            result.setEndingBalanceChange(result.getEndingBalance().subtract(base.getEndingBalance()));
+            results.add(result);
+        }
+        
+        return new CashFlowScenarioDTO(baseline.firstDay(), days, base, results,
+                (System.nanoTime() - started) / 1_000);
+    }
+    
+    /**
+     * Drop cached baselines once transaction changes commit
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionsChanged(TransactionRollupService.TransactionsChangedEvent event) {
+        LocalDateTime changedAt = LocalDateTime.now();
+        event.businessIds().forEach(id -> {
+            lastTransactionChange.merge(id, changedAt, (previous, current) -> previous.isAfter(current) ? previous : current);
+            baselines.remove(id);
+        });
+    }
+    
+    private Baseline baseline(Business business) {
+        LocalDate firstDay = LocalDate.now().plusDays(1);
+        Baseline cached = baselines.get(business.getId());
+        LocalDateTime lastChange = lastTransactionChange.get(business.getId());
+        if (cached != null && cached.firstDay().equals(firstDay)
+                && (lastChange == null || cached.builtAt().isAfter(lastChange))) {
+            return cached;
+        }
+        
+        // Taken before reading, so a change committed meanwhile leaves this baseline stale
+        LocalDateTime builtAt = LocalDateTime.now();
+        int horizon = CashFlowService.FORECAST_HORIZON_DAYS;
+        List<CashFlowForecast> forecast = cashFlowService.getForecast(business, horizon);
+        long[] income = new long[horizon];
+        long[] expenses = new long[horizon];
+        long[] balance = new long[horizon];
+        long[] halfWidth = new long[horizon];
+        for (CashFlowForecast day : forecast) {
+            int i = (int) ChronoUnit.DAYS.between(firstDay, day.getForecastDate());
+            income[i] = Money.toMinor(day.getPredictedIncome());
+            expenses[i] = Money.toMinor(day.getPredictedExpenses());
+            balance[i] = Money.toMinor(day.getPredictedBalance());
+            halfWidth[i] = Money.toMinor(day.getPredictedBalanceHigh()) - balance[i];
+        }
+        
+        List<ScheduledPayment> recurring = new ArrayList<>();
+        for (RecurringPayment payment : recurringPaymentService.findActive(business.getId(), firstDay.minusDays(1))) {
+            List<Integer> dueDays = new ArrayList<>();
+            for (int cycle = 1; ; cycle++) {
+                int day = (int) ChronoUnit.DAYS.between(firstDay, payment.getPeriod().shift(payment.getLastSeen(), cycle));
+                if (day >= horizon) {
+                    break;
+                }
+                if (day >= 0) {
+                    dueDays.add(day);
+                }
+            }
+            recurring.add(new ScheduledPayment(payment.getMerchantKey(), payment.getIsIncome(),
+                    Money.toMinor(payment.getAmount()), dueDays.stream().mapToInt(Integer::intValue).toArray()));
+        }
+        
+        Baseline built = new Baseline(firstDay, income, expenses, balance, halfWidth, recurring, builtAt);
+        baselines.put(business.getId(), built);
+        return built;
+    }
+    
+    private void applyIncomeChange(Baseline baseline, Double percent, long[] incomeDelta) {
+        if (percent == null || percent == 0) {
+            return;
+        }
+        if (percent < -100) {
+            throw new IllegalArgumentException("incomeChangePercent must be at least -100");
+        }
+        long ratePpm = Money.rate(percent / 100);
+        for (int i = 0; i < incomeDelta.length; i++) {
+            incomeDelta[i] += Money.applyRate(baseline.income()[i], ratePpm);
+        }
+    }
+    
+    private void applyRecurringChange(Baseline baseline, CashFlowScenarioRequestDTO.RecurringChange change,
+                                      long[] incomeDelta, long[] expenseDelta) {
+        long amount = Money.toMinor(change.getAmount());
+        if (amount < 0) {
+            throw new IllegalArgumentException("Recurring amount must not be negative");
+        }
+        int from = startIndex(baseline, change.getStartDate());
+        
+        // The largest detected item of the same merchant and direction, if any
+        String key = CategorizationService.normalizeMerchant(change.getMerchantName());
+        ScheduledPayment existing = null;
+        for (ScheduledPayment payment : baseline.recurring()) {
+            if (payment.merchantKey().equals(key)
+                    && (change.getIsIncome() == null || payment.income() == change.getIsIncome())
+                    && (existing == null || payment.amount() > existing.amount())) {
+                existing = payment;
+            }
+        }
+        
+        if (existing != null) {
+            long[] delta = existing.income() ? incomeDelta : expenseDelta;
+            for (int day : existing.dueDays()) {
+                if (day >= from && day < delta.length) {
+                    delta[day] += amount - existing.amount();
+                }
+            }
+            return;
+        }
+        
+        if (amount == 0) {
+            throw new IllegalArgumentException("New recurring payment " + change.getMerchantName() + " needs an amount");
+        }
+        long[] delta = Boolean.TRUE.equals(change.getIsIncome()) ? incomeDelta : expenseDelta;
+        LocalDate start = baseline.firstDay().plusDays(from);
+        RecurrencePeriod period = change.getPeriod() != null
+                ? RecurrencePeriod.fromParam(change.getPeriod()) : RecurrencePeriod.MONTHLY;
+        if (period == RecurrencePeriod.WEEKLY) {
+            for (int day = from; day < delta.length; day += 7) {
+                delta[day] += amount;
+            }
+        } else {
+            addMonthly(baseline, delta, start, change.getDayOfMonth() != null ? change.getDayOfMonth() : start.getDayOfMonth(), amount);
+        }
+    }
+    
+    private void applyNewEmployee(Baseline baseline, CashFlowScenarioRequestDTO.NewEmployee hire, long[] expenseDelta) {
+        if (hire.getMonthlySalary() == null || hire.getMonthlySalary().signum() <= 0) {
+            throw new IllegalArgumentException("New employee needs a positive monthlySalary");
+        }
+        int count = hire.getCount() != null ? hire.getCount() : 1;
+        if (count < 1) {
+            throw new IllegalArgumentException("New employee count must be at least 1");
+        }
+        LocalDate start = baseline.firstDay().plusDays(startIndex(baseline, hire.getStartDate()));
+        // Gross salary plus employer SSF, as the payroll run would charge it in the first month
+        long monthlyCost = payrollService.calculateAmounts(hire.getMonthlySalary(), start).totalEmployerCost() * count;
+        int payDay = hire.getPayDayOfMonth() != null ? hire.getPayDayOfMonth() : 31;
+        addMonthly(baseline, expenseDelta, start, payDay, monthlyCost);
+    }
+    
+    // Add an amount on a day of every month from start on, clamped to short months
+    private void addMonthly(Baseline baseline, long[] delta, LocalDate start, int dayOfMonth, long amount) {
+        if (dayOfMonth < 1 || dayOfMonth > 31) {
+            throw new IllegalArgumentException("dayOfMonth must be between 1 and 31");
+        }
+        for (LocalDate month = start.withDayOfMonth(1); ; month = month.plusMonths(1)) {
+            LocalDate date = month.withDayOfMonth(Math.min(dayOfMonth, month.lengthOfMonth()));
+            int day = (int) ChronoUnit.DAYS.between(baseline.firstDay(), date);
+            if (day >= delta.length) {
+                return;
+            }
+            if (!date.isBefore(start)) {
+                delta[day] += amount;
+            }
+        }
+    }
+    
+    private int startIndex(Baseline baseline, LocalDate startDate) {
+        if (startDate == null || !startDate.isAfter(baseline.firstDay())) {
+            return 0;
+        }
+        return (int) Math.min(ChronoUnit.DAYS.between(baseline.firstDay(), startDate), Integer.MAX_VALUE);
+    }
+    
+    private CashFlowScenarioDTO.ScenarioResult result(String name, Baseline baseline, int days,
+                                                      long[] incomeDelta, long[] expenseDelta) {
+        List<CashFlowScenarioDTO.BalancePoint> path = new ArrayList<>(days);
+        long totalIncome = 0;
+        long totalExpenses = 0;
+        long shift = 0;
+        long minimum = Long.MAX_VALUE;
+        LocalDate minimumDate = null;
+        LocalDate firstNegative = null;
+        for (int i = 0; i < days; i++) {
+            long income = baseline.income()[i] + incomeDelta[i];
+            long expenses = baseline.expenses()[i] + expenseDelta[i];
+            shift += incomeDelta[i] - expenseDelta[i];
+            long balance = baseline.balance()[i] + shift;
+            LocalDate date = baseline.firstDay().plusDays(i);
+            
+            totalIncome += income;
+            totalExpenses += expenses;
+            if (balance < minimum) {
+                minimum = balance;
+                minimumDate = date;
+            }
+            if (balance < 0 && firstNegative == null) {
+                firstNegative = date;
+            }
+            // Deltas are exact, so they move the baseline's 80% band without widening it
+            path.add(new CashFlowScenarioDTO.BalancePoint(date, Money.toDecimal(income), Money.toDecimal(expenses),
+                    Money.toDecimal(balance),
+                    Money.toDecimal(balance - baseline.halfWidth()[i]),
+                    Money.toDecimal(balance + baseline.halfWidth()[i])));
+        }
+        return new CashFlowScenarioDTO.ScenarioResult(name, Money.toDecimal(totalIncome), Money.toDecimal(totalExpenses),
+                path.get(days - 1).getBalance(), BigDecimal.ZERO.setScale(2), Money.toDecimal(minimum), minimumDate,
+                firstNegative, path);
+    }
+    
+    /**
+     * Stored forecast as daily qəpik arrays from firstDay, with detected recurring payments' due days
+     */
+    private record Baseline(LocalDate firstDay, long[] income, long[] expenses, long[] balance, long[] halfWidth,
+                            List<ScheduledPayment> recurring, LocalDateTime builtAt) {
+    }
+    
+    private record ScheduledPayment(String merchantKey, boolean income, long amount, int[] dueDays) {
+    }
+}
@@ -1,20 +1,38 @@
 package com.easyfin.openbanking.service;
 
 import com.easyfin.openbanking.dto.CashFlowDTO;
+import com.easyfin.openbanking.dto.CashFlowSeriesDTO;
+import com.easyfin.openbanking.dto.CashFlowSimulationDTO;
+import com.easyfin.openbanking.dto.RecurringPaymentDTO;
+import com.easyfin.openbanking.enums.RecurrencePeriod;
+import com.easyfin.openbanking.enums.SeriesGranularity;
 import com.easyfin.openbanking.model.Business;
 import com.easyfin.openbanking.model.CashFlowForecast;
+import com.easyfin.openbanking.model.RecurringPayment;
 import com.easyfin.openbanking.repository.CashFlowForecastRepository;
+import com.easyfin.openbanking.repository.ForecastFreshness;
+import com.easyfin.openbanking.repository.TransactionDailyRollupRepository;
 import com.easyfin.openbanking.repository.TransactionRepository;
+import com.easyfin.openbanking.repository.TransactionTotals;
+import com.easyfin.openbanking.util.Money;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Service for cash flow forecasting and analysis
@@ -23,64 +41,75 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class CashFlowService {
     
+    // Days stored per business; reads may ask for any prefix of it
+    public static final int FORECAST_HORIZON_DAYS = 90;
+    
+    public static final int DEFAULT_SIMULATION_PATHS = 20_000;
+    private static final int MIN_SIMULATION_PATHS = 1_000;
+    private static final int MAX_SIMULATION_PATHS = 50_000;
+    
+    // Longest span a series request may cover
+    private static final int MAX_SERIES_DAYS = 3 * 366;
+    
+    // Half a year of daily history feeds the seasonal model and the simulation
+    private static final int HISTORY_DAYS = 182;
+    
+    private static final int REFRESH_LOCK_STRIPES = 64;
+    
     private final TransactionRepository transactionRepository;
     private final CashFlowForecastRepository forecastRepository;
+    private final TransactionDailyRollupRepository rollupRepository;
+    private final ForecastEngine forecastEngine;
+    private final CashFlowSimulator cashFlowSimulator;
+    private final BalanceLedgerService balanceLedgerService;
+    private final RecurringPaymentService recurringPaymentService;
+    private final CategoryRangeIndex categoryRangeIndex;
+    private final TransactionTemplate transactionTemplate;
+    
+    // A change more than a day old can't outdate a forecast computed today, and older ones are stale by date
+    private final Map<Long, LocalDateTime> lastTransactionChange = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofDays(1))
+            .<Long, LocalDateTime>build()
+            .asMap();
+    // Striped rather than one per business, so the lock set stays fixed however many businesses refresh
+    private final Object[] refreshLocks = IntStream.range(0, REFRESH_LOCK_STRIPES)
+            .mapToObj(i -> new Object())
+            .toArray();
+    private final LocalDateTime startedAt = LocalDateTime.now();
     
     /**
-     * Generate cash flow analysis with category breakdowns
+     * Generate cash flow analysis with category breakdowns over whole days [startDate, endDate]
      */
-    public CashFlowDTO generateCashFlowAnalysis(Business business, LocalDateTime startDate, LocalDateTime endDate) {
-        BigDecimal totalIncome = transactionRepository.sumIncomeByBusinessIdAndDateRange(
-                business.getId(), startDate, endDate);
-        BigDecimal totalExpenses = transactionRepository.sumExpensesByBusinessIdAndDateRange(
+    public CashFlowDTO generateCashFlowAnalysis(Business business, LocalDate startDate, LocalDate endDate) {
+        TransactionTotals totals = transactionRepository.sumTotalsByBusinessIdAndDays(
                 business.getId(), startDate, endDate);
-        
-        totalIncome = totalIncome != null ? totalIncome : BigDecimal.ZERO;
-        totalExpenses = totalExpenses != null ? totalExpenses : BigDecimal.ZERO;
+        BigDecimal totalIncome = totals.getTotalIncome();
+        BigDecimal totalExpenses = totals.getTotalExpenses();
         
         BigDecimal netCashFlow = totalIncome.subtract(totalExpenses);
         
         CashFlowDTO dto = new CashFlowDTO();
-        dto.setPeriodStart(startDate.toLocalDate());
-        dto.setPeriodEnd(endDate.toLocalDate());
+        dto.setPeriodStart(startDate);
+        dto.setPeriodEnd(endDate);
         dto.setTotalIncome(totalIncome);
         dto.setTotalExpenses(totalExpenses);
         dto.setNetCashFlow(netCashFlow);
-        dto.setCurrentBalance(netCashFlow); // Simplified
-        
-        // Calculate income breakdown by category
-        var incomeBreakdown = transactionRepository.findByBusinessIdAndIsIncomeTrueAndTransactionDateBetween(
-                business.getId(), startDate, endDate)
-                .stream()
-                .collect(Collectors.groupingBy(
-                        t -> t.getCategory() != null ? t.getCategory().name() : "Other",
-                        Collectors.reducing(BigDecimal.ZERO,
-                                t -> t.getAmount(),
-                                BigDecimal::add)
-                ));
-        dto.setIncomeByCategory(incomeBreakdown);
-        
-        // Calculate expense breakdown by category
-        var expenseBreakdown = transactionRepository.findByBusinessIdAndIsIncomeFalseAndTransactionDateBetween(
-                business.getId(), startDate, endDate)
-                .stream()
-                .collect(Collectors.groupingBy(
-                        t -> t.getCategory() != null ? t.getCategory().name() : "Other",
-                        Collectors.reducing(BigDecimal.ZERO,
-                                t -> t.getAmount(),
-                                BigDecimal::add)
-                ));
-        dto.setExpensesByCategory(expenseBreakdown);
+        dto.setCurrentBalance(balanceLedgerService.balanceAt(business.getId(), endDate));
+        
+        // Category breakdowns from the in-memory range index
+        dto.setIncomeByCategory(categoryBreakdown(business.getId(), true, startDate, endDate));
+        dto.setExpensesByCategory(categoryBreakdown(business.getId(), false, startDate, endDate));
         
         // Get forecasts
-        List<CashFlowForecast> forecasts = forecastRepository.findFutureForecasts(
-                business.getId(), LocalDate.now());
+        List<CashFlowForecast> forecasts = getForecast(business, 30);
         dto.setForecast(forecasts.stream()
                 .map(f -> new CashFlowDTO.ForecastItem(
                         f.getForecastDate(),
                         f.getPredictedIncome(),
                         f.getPredictedExpenses(),
                         f.getPredictedBalance(),
+                        f.getPredictedBalanceLow(),
+                        f.getPredictedBalanceHigh(),
                         f.getConfidence()
                 ))
                 .collect(Collectors.toList()));
@@ -88,45 +117,348 @@ public class CashFlowService {
         return dto;
     }
     
+    private Map<String, BigDecimal> categoryBreakdown(Long businessId, boolean income,
+                                                      LocalDate startDate, LocalDate endDate) {
+        Map<String, BigDecimal> breakdown = new HashMap<>();
+        categoryRangeIndex.breakdown(businessId, income, startDate, endDate)
+                .forEach((category, amount) -> breakdown.put(category.name(), amount));
+        return breakdown;
+    }
+    
     /**
-     * Generate cash flow forecast for next N days
+     * Income, expenses and net per day, week or month, with month-over-month and year-over-year changes
      */
-    public List<CashFlowForecast> generateForecast(Business business, int days) {
-        List<CashFlowForecast> forecasts = new ArrayList<>();
+    public CashFlowSeriesDTO getSeries(Business business, String granularityParam, LocalDate from, LocalDate to) {
+        SeriesGranularity granularity = SeriesGranularity.fromParam(granularityParam);
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = granularity.bucketStart(from != null ? from : end.minusYears(1).plusDays(1));
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        if (ChronoUnit.DAYS.between(start, end) >= MAX_SERIES_DAYS) {
+            throw new IllegalArgumentException("Series may span at most " + MAX_SERIES_DAYS + " days");
+        }
         
-        // Get historical averages
-        LocalDateTime endDate = LocalDateTime.now();
-        LocalDateTime startDate = endDate.minusDays(30);
+        // One grouped query covers the range and the year before it, which every comparison falls in
+        LocalDate origin = granularity.bucketStart(start.minusYears(1));
+        int days = (int) ChronoUnit.DAYS.between(origin, end) + 1;
+        long[] incomePrefix = new long[days + 1];
+        long[] expensePrefix = new long[days + 1];
+        for (Object[] row : rollupRepository.sumDailyByDirection(business.getId(), origin, end)) {
+            int day = (int) ChronoUnit.DAYS.between(origin, (LocalDate) row[0]);
+            long amount = Money.toMinor((BigDecimal) row[2]);
+            if (Boolean.TRUE.equals(row[1])) {
+                incomePrefix[day + 1] += amount;
+            } else {
+                expensePrefix[day + 1] += amount;
+            }
+        }
+        for (int i = 1; i <= days; i++) {
+            incomePrefix[i] += incomePrefix[i - 1];
+            expensePrefix[i] += expensePrefix[i - 1];
+        }
         
-        BigDecimal avgIncome = transactionRepository.sumIncomeByBusinessIdAndDateRange(
-                business.getId(), startDate, endDate);
-        BigDecimal avgExpenses = transactionRepository.sumExpensesByBusinessIdAndDateRange(
-                business.getId(), startDate, endDate);
+        List<CashFlowSeriesDTO.Point> points = new ArrayList<>();
+        for (LocalDate bucket = start; !bucket.isAfter(end); bucket = granularity.nextBucket(bucket)) {
+            LocalDate bucketEnd = granularity.nextBucket(bucket).minusDays(1);
+            if (bucketEnd.isAfter(end)) {
+                bucketEnd = end;
+            }
+            long income = rangeSum(incomePrefix, origin, bucket, bucketEnd);
+            long expenses = rangeSum(expensePrefix, origin, bucket, bucketEnd);
+            long net = income - expenses;
+            
+            long monthAgo = comparisonNet(incomePrefix, expensePrefix, origin, granularity,
+                    bucket.minusMonths(1), bucket, bucketEnd);
+            long yearAgo = comparisonNet(incomePrefix, expensePrefix, origin, granularity,
+                    bucket.minusYears(1), bucket, bucketEnd);
+            points.add(new CashFlowSeriesDTO.Point(bucket, bucketEnd,
+                    Money.toDecimal(income), Money.toDecimal(expenses), Money.toDecimal(net),
+                    Money.toDecimal(net - monthAgo), percentChange(net, monthAgo),
+                    Money.toDecimal(net - yearAgo), percentChange(net, yearAgo)));
+        }
+        return new CashFlowSeriesDTO(granularity.name().toLowerCase(), start, end, points);
+    }
+    
+    /**
+     * Get the stored forecast for the next N days, recomputing it first if it is stale
+     */
+    public List<CashFlowForecast> getForecast(Business business, int days) {
+        if (days < 1 || days > FORECAST_HORIZON_DAYS) {
+            throw new IllegalArgumentException("days must be between 1 and " + FORECAST_HORIZON_DAYS);
+        }
+        LocalDate firstDay = LocalDate.now().plusDays(1);
+        if (isStale(business.getId(), firstDay)) {
+            refreshForecast(business);
+        }
+        return forecastRepository.findForecastWindow(business.getId(), firstDay, firstDay.plusDays(days - 1));
+    }
+    
+    /**
+     * Recompute and upsert the full forecast horizon for a business
+     */
+    public void refreshForecast(Business business) {
+        // One refresh per business at a time; the transaction commits before the lock is released
+        synchronized (refreshLocks[Math.floorMod(business.getId().hashCode(), REFRESH_LOCK_STRIPES)]) {
+            LocalDate firstDay = LocalDate.now().plusDays(1);
+            if (!isStale(business.getId(), firstDay)) {
+                return; // Another request refreshed it while we waited
+            }
+            transactionTemplate.executeWithoutResult(status -> upsertForecast(business, firstDay));
+        }
+    }
+    
+    /**
+     * Simulate the balance over the next N days by resampling weekday flows around detected recurring payments
+     */
+    public CashFlowSimulationDTO simulate(Business business, int days, int paths, Long seed) {
+        if (days < 1 || days > FORECAST_HORIZON_DAYS) {
+            throw new IllegalArgumentException("days must be between 1 and " + FORECAST_HORIZON_DAYS);
+        }
+        if (paths < MIN_SIMULATION_PATHS || paths > MAX_SIMULATION_PATHS) {
+            throw new IllegalArgumentException("paths must be between " + MIN_SIMULATION_PATHS
+                    + " and " + MAX_SIMULATION_PATHS);
+        }
+        long started = System.nanoTime();
         
-        avgIncome = avgIncome != null ? avgIncome.divide(BigDecimal.valueOf(30), 2, RoundingMode.HALF_UP) : BigDecimal.ZERO;
-        avgExpenses = avgExpenses != null ? avgExpenses.divide(BigDecimal.valueOf(30), 2, RoundingMode.HALF_UP) : BigDecimal.ZERO;
+        LocalDate today = LocalDate.now();
+        LocalDate lastDay = today.minusDays(1);
+        DailySeries history = loadDailySeries(business.getId(), lastDay.minusDays(HISTORY_DAYS - 1), lastDay);
+        List<RecurringPayment> recurring = recurringPaymentService.findActive(business.getId(), today);
         
-        // Generate forecasts for next N days
-        BigDecimal runningBalance = avgIncome.subtract(avgExpenses).multiply(BigDecimal.valueOf(30)); // Starting balance
+        // Take recurring items out of the history so they are replayed on schedule rather than resampled
+        removeRecurring(history, recurring);
+        double[] residualNet = new double[history.length()];
+        for (int i = 0; i < history.length(); i++) {
+            residualNet[i] = history.income()[i] - history.expenses()[i];
+        }
         
-        for (int i = 1; i <= days; i++) {
-            LocalDate forecastDate = LocalDate.now().plusDays(i);
-            
-            CashFlowForecast forecast = new CashFlowForecast();
-            forecast.setBusiness(business);
-            forecast.setForecastDate(forecastDate);
-            forecast.setPredictedIncome(avgIncome);
-            forecast.setPredictedExpenses(avgExpenses);
+        // Today is not in the history, so the simulation starts there and reports from tomorrow
+        double[] scheduledIncome = new double[days + 1];
+        double[] scheduledExpenses = new double[days + 1];
+        scheduleRecurring(recurring, today, scheduledIncome, scheduledExpenses);
+        double[] scheduled = new double[days + 1];
+        for (int step = 0; step <= days; step++) {
+            scheduled[step] = scheduledIncome[step] - scheduledExpenses[step];
+        }
+        
+        // Closing balance of yesterday, the last day in the history
+        double startingBalance = Money.toMinor(balanceLedgerService.balanceAt(business.getId(), lastDay));
+        int firstWeekday = history.firstDay().getDayOfWeek().getValue() - 1;
+        SplittableRandom random = seed != null ? new SplittableRandom(seed) : new SplittableRandom();
+        CashFlowSimulator.SimulationResult result = cashFlowSimulator.simulate(
+                residualNet, history.length(), firstWeekday, scheduled, startingBalance, 1, days, paths, random);
+        
+        List<CashFlowSimulationDTO.BalanceBand> bands = new ArrayList<>(days);
+        for (int i = 0; i < days; i++) {
+            bands.add(new CashFlowSimulationDTO.BalanceBand(
+                    today.plusDays(i + 1),
+                    Money.toDecimal(Math.round(result.p10()[i])),
+                    Money.toDecimal(Math.round(result.p50()[i])),
+                    Money.toDecimal(Math.round(result.p90()[i])),
+                    result.probabilityNegative()[i]));
+        }
+        List<RecurringPaymentDTO> recurringItems = recurring.stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+        
+        return new CashFlowSimulationDTO(days, paths, Money.toDecimal(Math.round(startingBalance)),
+                result.probabilityOfShortfall(), recurringItems, bands,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+    
+    /**
+     * Get detected recurring payments that have not lapsed, soonest due first
+     */
+    public List<RecurringPaymentDTO> getRecurringPayments(Business business) {
+        return recurringPaymentService.findActive(business.getId(), LocalDate.now()).stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Mark forecasts stale once transaction changes commit
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionsChanged(TransactionRollupService.TransactionsChangedEvent event) {
+        LocalDateTime changedAt = LocalDateTime.now();
+        event.businessIds().forEach(id -> lastTransactionChange.merge(id, changedAt,
+                (previous, current) -> previous.isAfter(current) ? previous : current));
+    }
+    
+    private boolean isStale(Long businessId, LocalDate firstDay) {
+        ForecastFreshness freshness = forecastRepository.findFreshness(
+                businessId, firstDay, firstDay.plusDays(FORECAST_HORIZON_DAYS - 1));
+        if (freshness.getRowCount() < FORECAST_HORIZON_DAYS || freshness.getOldestComputedAt() == null) {
+            return true;
+        }
+        LocalDateTime computedAt = freshness.getOldestComputedAt();
+        // Without a recorded change since startup, rows computed by an earlier process can't be trusted
+        LocalDateTime lastChange = lastTransactionChange.getOrDefault(businessId, startedAt);
+        return computedAt.toLocalDate().isBefore(LocalDate.now()) || !computedAt.isAfter(lastChange);
+    }
+    
+    private void upsertForecast(Business business, LocalDate firstDay) {
+        // Taken before reading history, so a change committed mid-computation still marks the result stale
+        LocalDateTime computedAt = LocalDateTime.now();
+        
+        // Complete days only: history ends yesterday, so today is the first forecast step and is skipped
+        LocalDate lastDay = firstDay.minusDays(2);
+        DailySeries history = loadDailySeries(business.getId(), lastDay.minusDays(HISTORY_DAYS - 1), lastDay);
+        
+        // Recurring payments are forecast on their due days; the model only sees what is left
+        List<RecurringPayment> recurring = recurringPaymentService.findActive(business.getId(), lastDay.plusDays(1));
+        removeRecurring(history, recurring);
+        double[] scheduledIncome = new double[FORECAST_HORIZON_DAYS + 1];
+        double[] scheduledExpenses = new double[FORECAST_HORIZON_DAYS + 1];
+        scheduleRecurring(recurring, lastDay.plusDays(1), scheduledIncome, scheduledExpenses);
+        
+        ForecastEngine.CashFlowProjection projection = forecastEngine.project(history.income(), history.expenses(),
+                history.length(), scheduledIncome, scheduledExpenses, 1, FORECAST_HORIZON_DAYS,
+                Money.toMinor(balanceLedgerService.balanceAt(business.getId(), lastDay)));
+        
+        Map<LocalDate, CashFlowForecast> existing = new HashMap<>();
+        for (CashFlowForecast stored : forecastRepository.findForecastWindow(
+                business.getId(), firstDay, firstDay.plusDays(FORECAST_HORIZON_DAYS - 1))) {
+            existing.put(stored.getForecastDate(), stored);
+        }
+        
+        // Upsert the horizon, updating stored days in place
+        List<CashFlowForecast> forecasts = new ArrayList<>(FORECAST_HORIZON_DAYS);
+        for (int i = 0; i < FORECAST_HORIZON_DAYS; i++) {
+            LocalDate forecastDate = firstDay.plusDays(i);
             
-            runningBalance = runningBalance.add(avgIncome).subtract(avgExpenses);
-            forecast.setPredictedBalance(runningBalance);
-            forecast.setConfidence(0.75); // 75% confidence
+            CashFlowForecast forecast = existing.get(forecastDate);
+            if (forecast == null) {
+                forecast = new CashFlowForecast();
+                forecast.setBusiness(business);
+                forecast.setForecastDate(forecastDate);
+            }
+            forecast.setPredictedIncome(Money.toDecimal(Math.round(projection.income()[i])));
+            forecast.setPredictedExpenses(Money.toDecimal(Math.round(projection.expenses()[i])));
+            forecast.setPredictedBalance(Money.toDecimal(Math.round(projection.balance()[i])));
+            forecast.setPredictedBalanceLow(Money.toDecimal(Math.round(projection.balanceLow()[i])));
+            forecast.setPredictedBalanceHigh(Money.toDecimal(Math.round(projection.balanceHigh()[i])));
+            forecast.setConfidence(projection.confidence()[i]);
+            forecast.setComputedAt(computedAt);
             
             forecasts.add(forecast);
         }
         
-        // Save all forecasts
-        return forecastRepository.saveAll(forecasts);
+        forecastRepository.saveAll(forecasts);
+    }
+    
+    // Net over the bucket containing the shifted date, trimmed to the length of the current (possibly partial) bucket
+    private long comparisonNet(long[] incomePrefix, long[] expensePrefix, LocalDate origin,
+                               SeriesGranularity granularity, LocalDate shifted, LocalDate bucket, LocalDate bucketEnd) {
+        LocalDate from = granularity.bucketStart(shifted);
+        LocalDate through = from.plusDays(ChronoUnit.DAYS.between(bucket, bucketEnd));
+        LocalDate naturalEnd = granularity.nextBucket(from).minusDays(1);
+        if (through.isAfter(naturalEnd)) {
+            through = naturalEnd;
+        }
+        return rangeSum(incomePrefix, origin, from, through) - rangeSum(expensePrefix, origin, from, through);
+    }
+    
+    private long rangeSum(long[] prefix, LocalDate origin, LocalDate from, LocalDate through) {
+        int fromIndex = (int) ChronoUnit.DAYS.between(origin, from);
+        int throughIndex = (int) ChronoUnit.DAYS.between(origin, through);
+        return prefix[throughIndex + 1] - prefix[fromIndex];
+    }
+    
+    private Double percentChange(long current, long previous) {
+        if (previous == 0) {
+            return null;
+        }
+        return Math.round(10_000.0 * (current - previous) / Math.abs(previous)) / 100.0;
+    }
+    
+    /**
+     * Daily income and expense totals in qəpik, starting at the business's first active day in the window
+     */
+    public DailySeries loadDailySeries(Long businessId, LocalDate startDate, LocalDate endDate) {
+        List<Object[]> rows = rollupRepository.sumDailyByDirection(businessId, startDate, endDate);
+        
+        LocalDate firstActive = endDate.plusDays(1);
+        for (Object[] row : rows) {
+            LocalDate date = (LocalDate) row[0];
+            if (date.isBefore(firstActive)) {
+                firstActive = date;
+            }
+        }
+        
+        int length = (int) (endDate.toEpochDay() - firstActive.toEpochDay() + 1);
+        double[] income = new double[Math.max(length, 0)];
+        double[] expenses = new double[Math.max(length, 0)];
+        for (Object[] row : rows) {
+            int day = (int) (((LocalDate) row[0]).toEpochDay() - firstActive.toEpochDay());
+            double amount = Money.toMinor((BigDecimal) row[2]);
+            if (Boolean.TRUE.equals(row[1])) {
+                income[day] += amount;
+            } else {
+                expenses[day] += amount;
+            }
+        }
+        return new DailySeries(firstActive, income, expenses, Math.max(length, 0));
+    }
+    
+    private RecurringPaymentDTO convertToDTO(RecurringPayment payment) {
+        return new RecurringPaymentDTO(
+                payment.getMerchantName(),
+                payment.getIsIncome(),
+                payment.getPeriod().name().toLowerCase(),
+                payment.getPeriod() == RecurrencePeriod.MONTHLY ? payment.getLastSeen().getDayOfMonth() : null,
+                payment.getAmount(),
+                payment.getOccurrences(),
+                payment.getLastSeen(),
+                payment.getNextDueDate());
+    }
+    
+    /**
+     * Subtract past payments of recurring items from a daily series, back from each item's last payment
+     */
+    private void removeRecurring(DailySeries history, List<RecurringPayment> recurring) {
+        for (RecurringPayment payment : recurring) {
+            double amount = Money.toMinor(payment.getAmount());
+            double[] series = payment.getIsIncome() ? history.income() : history.expenses();
+            LocalDate from = payment.getFirstSeen().isAfter(history.firstDay()) ? payment.getFirstSeen() : history.firstDay();
+            for (int cycle = 0; ; cycle--) {
+                LocalDate date = payment.getPeriod().shift(payment.getLastSeen(), cycle);
+                if (date.isBefore(from)) {
+                    break;
+                }
+                int day = (int) ChronoUnit.DAYS.between(history.firstDay(), date);
+                if (day < history.length()) {
+                    series[day] = Math.max(0, series[day] - amount);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Add upcoming payments of recurring items to daily arrays indexed from firstDay, in qəpik
+     */
+    private void scheduleRecurring(List<RecurringPayment> recurring, LocalDate firstDay,
+                                   double[] income, double[] expenses) {
+        for (RecurringPayment payment : recurring) {
+            double amount = Money.toMinor(payment.getAmount());
+            double[] series = payment.getIsIncome() ? income : expenses;
+            for (int cycle = 1; ; cycle++) {
+                int day = (int) ChronoUnit.DAYS.between(firstDay, payment.getPeriod().shift(payment.getLastSeen(), cycle));
+                if (day >= series.length) {
+                    break;
+                }
+                // A cycle already overdue stays out of the forecast; the series lapses after its grace days
+                if (day >= 0) {
+                    series[day] += amount;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Daily totals from firstDay onwards, the first length entries of each array in use
+     */
+    public record DailySeries(LocalDate firstDay, double[] income, double[] expenses, int length) {
     }
 }
-
@@ -0,0 +1,169 @@
+package com.easyfin.openbanking.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Monte Carlo cash balance simulation by day-of-week bootstrap.
+ * Each simulated day draws a historical residual net flow from the same weekday and adds the
+ * scheduled recurring flows for that date. All paths advance one day at a time in parallel
+ * blocks, each with its own split of one root generator, over a single balance array; each day's
+ * percentiles are selected from a reused scratch copy, so memory is O(paths) whatever the horizon.
+ */
+@Component
+public class CashFlowSimulator {
+    
+    private static final int DAYS_PER_WEEK = 7;
+    private static final int BLOCK_SIZE = 1024;
+    
+    /**
+     * Per-day balance percentiles and probability of a negative balance, plus the
+     * probability that a path goes negative on any day of the horizon
+     */
+    public record SimulationResult(double[] p10, double[] p50, double[] p90,
+                                   double[] probabilityNegative, double probabilityOfShortfall) {
+    }
+    
+    /**
+     * Simulate the balance for the horizon after skipping the first steps.
+     *
+     * @param residualNet daily net flows of the history with recurring items removed
+     * @param length      number of history days in use
+     * @param firstWeekday weekday of residualNet[0], 0 = Monday
+     * @param scheduled   recurring net flow for each of the skip + horizon steps
+     */
+    public SimulationResult simulate(double[] residualNet, int length, int firstWeekday, double[] scheduled,
+                                     double startingBalance, int skip, int horizon, int paths, SplittableRandom root) {
+        int steps = skip + horizon;
+        
+        // Residuals grouped by weekday into one flat array, poolStart[w]..poolStart[w + 1)
+        double[] pool = new double[length];
+        int[] poolStart = new int[DAYS_PER_WEEK + 1];
+        for (int i = 0; i < length; i++) {
+            poolStart[(firstWeekday + i) % DAYS_PER_WEEK + 1]++;
+        }
+        for (int w = 0; w < DAYS_PER_WEEK; w++) {
+            poolStart[w + 1] += poolStart[w];
+        }
+        int[] fill = Arrays.copyOf(poolStart, DAYS_PER_WEEK);
+        for (int i = 0; i < length; i++) {
+            pool[fill[(firstWeekday + i) % DAYS_PER_WEEK]++] = residualNet[i];
+        }
+        
+        // Sampling range per step; a weekday without history falls back to the whole pool
+        int[] stepFrom = new int[steps];
+        int[] stepSize = new int[steps];
+        for (int step = 0; step < steps; step++) {
+            int weekday = (firstWeekday + length + step) % DAYS_PER_WEEK;
+            stepFrom[step] = poolStart[weekday];
+            stepSize[step] = poolStart[weekday + 1] - poolStart[weekday];
+            if (stepSize[step] == 0) {
+                stepFrom[step] = 0;
+                stepSize[step] = length;
+            }
+        }
+        
+        // Split generators up front so results are reproducible whatever the thread scheduling
+        int blocks = (paths + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        SplittableRandom[] generators = new SplittableRandom[blocks];
+        for (int b = 0; b < blocks; b++) {
+            generators[b] = root.split();
+        }
+        
+        double[] balances = new double[paths];
+        Arrays.fill(balances, startingBalance);
+        boolean[] wentNegative = new boolean[paths];
+        double[] scratch = new double[paths];
+        int[] negativeToday = new int[blocks];
+        
+        double[] p10 = new double[horizon];
+        double[] p50 = new double[horizon];
+        double[] p90 = new double[horizon];
+        double[] probabilityNegative = new double[horizon];
+        int k10 = (int) Math.round(0.1 * (paths - 1));
+        int k50 = (int) Math.round(0.5 * (paths - 1));
+        int k90 = (int) Math.round(0.9 * (paths - 1));
+        for (int step = 0; step < steps; step++) {
+            int current = step;
+            boolean reported = step >= skip;
+            IntStream.range(0, blocks).parallel().forEach(b -> {
+                SplittableRandom random = generators[b];
+                int end = Math.min(paths, (b + 1) * BLOCK_SIZE);
+                int negative = 0;
+                for (int path = b * BLOCK_SIZE; path < end; path++) {
+                    double residual = stepSize[current] > 0
+                            ? pool[stepFrom[current] + random.nextInt(stepSize[current])] : 0;
+                    double balance = balances[path] + residual + scheduled[current];
+                    balances[path] = balance;
+                    if (reported && balance < 0) {
+                        negative++;
+                        wentNegative[path] = true;
+                    }
+                }
+                negativeToday[b] = negative;
+            });
+            if (!reported) {
+                continue;
+            }
+            
+            // Selection reorders, so it works on a copy and the paths carry on from their own balances
+            int day = step - skip;
+            System.arraycopy(balances, 0, scratch, 0, paths);
+            select(scratch, 0, paths - 1, k10);
+            select(scratch, k10, paths - 1, k50);
+            select(scratch, k50, paths - 1, k90);
+            p10[day] = scratch[k10];
+            p50[day] = scratch[k50];
+            p90[day] = scratch[k90];
+            long negative = 0;
+            for (int count : negativeToday) {
+                negative += count;
+            }
+            probabilityNegative[day] = (double) negative / paths;
+        }
+        
+        long totalShortfalls = 0;
+        for (boolean negative : wentNegative) {
+            if (negative) {
+                totalShortfalls++;
+            }
+        }
+        return new SimulationResult(p10, p50, p90, probabilityNegative, (double) totalShortfalls / paths);
+    }
+    
+    // Quickselect: puts the k-th smallest of [low, high] at k, with nothing larger before it and nothing smaller after
+    private static void select(double[] values, int low, int high, int k) {
+        while (low < high) {
+            double pivot = median(values[low], values[(low + high) >>> 1], values[high]);
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    double swap = values[i];
+                    values[i++] = values[j];
+                    values[j--] = swap;
+                }
+            }
+            if (k <= j) {
+                high = j;
+            } else if (k >= i) {
+                low = i;
+            } else {
+                return;
+            }
+        }
+    }
+    
+    private static double median(double a, double b, double c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+}
@@ -1,10 +1,21 @@
 package com.easyfin.openbanking.service;
 
 import com.easyfin.openbanking.enums.TransactionCategory;
+import com.easyfin.openbanking.model.MerchantCategoryOverride;
 import com.easyfin.openbanking.model.Transaction;
+import com.easyfin.openbanking.repository.BusinessRepository;
+import com.easyfin.openbanking.repository.MerchantCategoryOverrideRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -13,7 +24,9 @@ import java.util.Map;
 @Service
 public class CategorizationService {
     
-    private static final Map<String, TransactionCategory> MERCHANT_KEYWORDS = new HashMap<>();
+    // Insertion-ordered so the compiled automaton is identical on every start
+    private static final Map<String, TransactionCategory> MERCHANT_KEYWORDS = new LinkedHashMap<>();
+    private static final KeywordMatcher MATCHER;
     
     static {
         // Food suppliers and ingredients
@@ -69,51 +82,172 @@ public class CategorizationService {
         MERCHANT_KEYWORDS.put("office", TransactionCategory.OFFICE_SUPPLIES);
         MERCHANT_KEYWORDS.put("stationery", TransactionCategory.OFFICE_SUPPLIES);
         MERCHANT_KEYWORDS.put("paper", TransactionCategory.OFFICE_SUPPLIES);
+        
+        MATCHER = new KeywordMatcher(MERCHANT_KEYWORDS);
     }
     
+    private static final double KEYWORD_CONFIDENCE = 0.85;
+    private static final double FALLBACK_CONFIDENCE = 0.50;
+    private static final double USER_CONFIDENCE = 1.0;
+    
     /**
-     * Auto-categorize transaction based on merchant name and description
+     * Category resolved for a transaction and how sure it is; category is null when nothing matched
      */
-    public void categorizeTransaction(Transaction transaction) {
-        String searchText = (transaction.getMerchantName() + " " + 
-                            (transaction.getDescription() != null ? transaction.getDescription() : ""))
-                            .toLowerCase();
+    public record Resolution(TransactionCategory category, double confidence) {
         
-        TransactionCategory detectedCategory = TransactionCategory.UNCATEGORIZED;
-        double confidence = 0.0;
+        static final Resolution NONE = new Resolution(null, 0.0);
         
-        // Check for keyword matches
-        for (Map.Entry<String, TransactionCategory> entry : MERCHANT_KEYWORDS.entrySet()) {
-            if (searchText.contains(entry.getKey())) {
-                detectedCategory = entry.getValue();
-                confidence = 0.85; // High confidence for keyword match
-                break;
-            }
+        static Resolution keyword(TransactionCategory category) {
+            return category != null ? new Resolution(category, KEYWORD_CONFIDENCE) : NONE;
+        }
+    }
+    
+    // Normalized merchant name -> keyword match, bounded by size and age. Holds no per-business state:
+    // user corrections live in merchant_category_overrides and are consulted before this cache
+    private final Cache<String, Resolution> merchantCache;
+    private final MerchantCategoryOverrideRepository overrideRepository;
+    private final BusinessRepository businessRepository;
+    
+    public CategorizationService(MeterRegistry meterRegistry,
+                                 MerchantCategoryOverrideRepository overrideRepository,
+                                 BusinessRepository businessRepository,
+                                 @Value("${easyfin.categorization.cache.max-size:10000}") long maxSize,
+                                 @Value("${easyfin.categorization.cache.ttl-minutes:60}") long ttlMinutes) {
+        this.overrideRepository = overrideRepository;
+        this.businessRepository = businessRepository;
+        this.merchantCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, merchantCache, "merchantCategory");
+    }
+    
+    /**
+     * Auto-categorize transaction based on its business's corrections, merchant name and description
+     */
+    public void categorizeTransaction(Transaction transaction) {
+        // One keyed lookup for this merchant rather than the business's whole override table
+        Map<String, TransactionCategory> overrides = new HashMap<>();
+        String key = normalizeMerchant(transaction.getMerchantName());
+        if (key != null) {
+            overrideRepository.findByBusinessIdAndMerchantKey(transaction.getBusiness().getId(), key)
+                    .ifPresent(override -> overrides.put(key, override.getCategory()));
+        }
+        categorizeTransaction(transaction, overrides);
+    }
+    
+    /**
+     * Auto-categorize transaction against overrides already loaded for its business
+     */
+    public void categorizeTransaction(Transaction transaction, Map<String, TransactionCategory> overrides) {
+        applyResult(transaction, resolve(transaction.getMerchantName(), transaction.getDescription(), overrides));
+    }
+    
+    /**
+     * Merchant corrections recorded for a business, keyed by normalized merchant name. Load once per batch
+     * or chunk and pass to resolve.
+     */
+    public Map<String, TransactionCategory> overridesFor(Long businessId) {
+        Map<String, TransactionCategory> overrides = new HashMap<>();
+        for (MerchantCategoryOverride override : overrideRepository.findByBusinessId(businessId)) {
+            overrides.put(override.getMerchantKey(), override.getCategory());
+        }
+        return overrides;
+    }
+    
+    /**
+     * Resolve a category from merchant name and description without touching any entity. Safe to call
+     * from multiple threads.
+     */
+    public Resolution resolve(String merchantName, String description, Map<String, TransactionCategory> overrides) {
+        // Merchant name decides when it has a correction or a keyword, otherwise fall back to the description
+        Resolution resolution = resolveMerchant(merchantName, overrides);
+        if (resolution.category() == null) {
+            resolution = Resolution.keyword(MATCHER.findBestMatch(description));
         }
+        return resolution;
+    }
+    
+    /**
+     * Apply a resolution to a transaction; an inferred direction follows the category
+     */
+    public void applyResult(Transaction transaction, Resolution resolution) {
+        TransactionCategory detectedCategory = TransactionCategory.UNCATEGORIZED;
+        double confidence = FALLBACK_CONFIDENCE; // Nothing matched
         
-        // If no keyword match, use partial matching for lower confidence
-        if (detectedCategory == TransactionCategory.UNCATEGORIZED) {
-            confidence = 0.50; // Lower confidence for fallback
+        if (resolution.category() != null) {
+            detectedCategory = resolution.category();
+            confidence = resolution.confidence();
         }
         
         transaction.setCategory(detectedCategory);
         transaction.setCategorizationConfidence(confidence);
         transaction.setIsTaxDeductible(detectedCategory.isTaxDeductible());
+        if (Boolean.TRUE.equals(transaction.getIsIncomeInferred())) {
+            transaction.setIsIncome(detectedCategory.isIncome());
+        }
     }
     
     /**
-     * Get categorization confidence score
+     * Remember a user's category for a merchant, so the business's later transactions from it resolve to the
+     * correction instead of the keyword match. Runs in the caller's transaction and rolls back with it.
      */
-    public double getConfidenceScore(String merchantName, TransactionCategory category) {
-        String searchText = merchantName.toLowerCase();
-        
-        for (Map.Entry<String, TransactionCategory> entry : MERCHANT_KEYWORDS.entrySet()) {
-            if (searchText.contains(entry.getKey()) && entry.getValue() == category) {
-                return 0.85;
+    public void recordCorrection(Long businessId, String merchantName, TransactionCategory category) {
+        String key = normalizeMerchant(merchantName);
+        if (key == null) {
+            return;
+        }
+        // One row per business and merchant: the business row lock keeps two first corrections from both inserting
+        businessRepository.findForUpdate(businessId);
+        MerchantCategoryOverride override = overrideRepository.findByBusinessIdAndMerchantKey(businessId, key)
+                .orElseGet(() -> new MerchantCategoryOverride(null, businessId, key, null, null));
+        override.setCategory(category);
+        override.setUpdatedAt(LocalDateTime.now());
+        overrideRepository.save(override);
+    }
+    
+    private Resolution resolveMerchant(String merchantName, Map<String, TransactionCategory> overrides) {
+        String key = normalizeMerchant(merchantName);
+        if (key == null) {
+            return Resolution.NONE;
+        }
+        TransactionCategory corrected = overrides.get(key);
+        if (corrected != null) {
+            return new Resolution(corrected, USER_CONFIDENCE);
+        }
+        return merchantCache.get(key, k -> Resolution.keyword(MATCHER.findBestMatch(k)));
+    }
+    
+    /**
+     * Lowercase and collapse digits and punctuation, so "Daily Sales - 2024-01-05" and
+     * "Daily Sales - 2024-01-06" share one entry
+     */
+    static String normalizeMerchant(String merchantName) {
+        if (merchantName == null) {
+            return null;
+        }
+        StringBuilder normalized = new StringBuilder(merchantName.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < merchantName.length(); i++) {
+            char c = merchantName.charAt(i);
+            if (Character.isLetter(c)) {
+                if (pendingSpace && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                normalized.append(Character.toLowerCase(c));
+                pendingSpace = false;
+            } else {
+                pendingSpace = true;
             }
         }
-        
-        return 0.50;
+        return normalized.length() == 0 ? null : normalized.toString();
+    }
+    
+    /**
+     * Get categorization confidence score
+     */
+    public double getConfidenceScore(String merchantName, TransactionCategory category) {
+        return MATCHER.containsCategory(merchantName, category) ? KEYWORD_CONFIDENCE : FALLBACK_CONFIDENCE;
     }
 }
-
@@ -0,0 +1,301 @@
+package com.easyfin.openbanking.service;
+
+import com.easyfin.openbanking.enums.TransactionCategory;
+import com.easyfin.openbanking.repository.TransactionDailyRollupRepository;
+import com.easyfin.openbanking.util.Money;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory per-business index of daily totals by category and direction.
+ * Each series is a Fenwick tree over days, so any [from, to] total or category breakdown
+ * costs O(log days) and new or edited transactions are O(log days) point updates.
+ * Indexes are built lazily from the daily rollup and held in a bounded cache that evicts idle ones.
+ */
+@Slf4j
+@Component
+public class CategoryRangeIndex {
+    
+    private static final TransactionCategory[] CATEGORIES = TransactionCategory.values();
+    
+    // Room past today so writes dated in the near future don't force a rebuild
+    private static final int FUTURE_HEADROOM_DAYS = 400;
+    
+    private final TransactionDailyRollupRepository rollupRepository;
+    
+    // Size- and idle-bounded; eviction is amortized by the cache, so reads never sweep every index.
+    // Writes to one business's entry go through per-key compute, which orders caching against point updates.
+    private final Cache<Long, BusinessIndex> indexes;
+    
+    // Only held while a commit or a rebuild is in progress for the business, then dropped
+    private final Map<Long, CommitTracker> trackers = new ConcurrentHashMap<>();
+    
+    public CategoryRangeIndex(TransactionDailyRollupRepository rollupRepository,
+                              @Value("${easyfin.range-index.max-businesses:1000}") int maxBusinesses,
+                              @Value("${easyfin.range-index.idle-minutes:30}") long idleMinutes) {
+        this.rollupRepository = rollupRepository;
+        this.indexes = Caffeine.newBuilder()
+                .maximumSize(maxBusinesses)
+                .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+                .build();
+    }
+    
+    /**
+     * A change to one day's total for a category and direction, in qəpik
+     */
+    public record PointUpdate(Long businessId, LocalDate date, TransactionCategory category,
+                              boolean income, long amountMinor) {
+    }
+    
+    /**
+     * Category breakdown for a direction over [from, to], omitting categories with no activity
+     */
+    public Map<TransactionCategory, BigDecimal> breakdown(Long businessId, boolean income, LocalDate from, LocalDate to) {
+        BusinessIndex index = getOrBuild(businessId);
+        Map<TransactionCategory, BigDecimal> result = new EnumMap<>(TransactionCategory.class);
+        for (TransactionCategory category : CATEGORIES) {
+            int series = series(category, income);
+            if (index.hasSeries(series)) {
+                long total = index.sum(series, from.toEpochDay(), to.toEpochDay());
+                if (total != 0) {
+                    result.put(category, Money.toDecimal(total));
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Total for a direction over [from, to]
+     */
+    public BigDecimal total(Long businessId, boolean income, LocalDate from, LocalDate to) {
+        BusinessIndex index = getOrBuild(businessId);
+        long total = 0;
+        for (TransactionCategory category : CATEGORIES) {
+            int series = series(category, income);
+            if (index.hasSeries(series)) {
+                total += index.sum(series, from.toEpochDay(), to.toEpochDay());
+            }
+        }
+        return Money.toDecimal(total);
+    }
+    
+    /**
+     * Queue point updates to be applied once the surrounding transaction commits
+     */
+    public void registerUpdates(List<PointUpdate> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            applyCommitted(updates);
+            return;
+        }
+        
+        Collection<Long> businessIds = updates.stream().map(PointUpdate::businessId).distinct().toList();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean committing;
+            
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                // Flag the write before it becomes visible, so a concurrent rebuild knows it may already include it
+                businessIds.forEach(id -> acquire(id, true));
+                committing = true;
+            }
+            
+            @Override
+            public void afterCompletion(int status) {
+                if (!committing) {
+                    return;
+                }
+                if (status == STATUS_COMMITTED) {
+                    applyCommitted(updates);
+                }
+                businessIds.forEach(id -> release(id, true));
+            }
+        });
+    }
+    
+    /**
+     * Drop a business's index so the next read rebuilds it from the rollup
+     */
+    public void invalidate(Long businessId) {
+        indexes.invalidate(businessId);
+    }
+    
+    private void applyCommitted(List<PointUpdate> updates) {
+        for (PointUpdate update : updates) {
+            // Outside the indexed window, the index is dropped and rebuilt with a wider window on next access
+            indexes.asMap().computeIfPresent(update.businessId(), (id, index) -> index.add(
+                    series(update.category(), update.income()), update.date().toEpochDay(), update.amountMinor())
+                    ? index : null);
+        }
+    }
+    
+    private BusinessIndex getOrBuild(Long businessId) {
+        BusinessIndex index = indexes.getIfPresent(businessId);
+        if (index != null) {
+            return index;
+        }
+        
+        CommitTracker tracker = acquire(businessId, false);
+        try {
+            int inFlight = tracker.inFlight.get();
+            long commits = tracker.commits.get();
+            
+            BusinessIndex built = build(businessId);
+            
+            // Only cache if no write could have landed both in our read and in a later point update. Checked inside
+            // the compute, so a commit flagged after it finds the cached index when it applies its update.
+            indexes.asMap().compute(businessId, (id, cached) -> cached != null ? cached
+                    : inFlight == 0 && tracker.commits.get() == commits ? built : null);
+            return built;
+        } finally {
+            release(businessId, false);
+        }
+    }
+    
+    private BusinessIndex build(Long businessId) {
+        List<Object[]> rows = rollupRepository.sumDailyByCategoryAndDirection(businessId);
+        
+        long today = LocalDate.now().toEpochDay();
+        long minDay = today;
+        long maxDay = today;
+        for (Object[] row : rows) {
+            long day = ((LocalDate) row[0]).toEpochDay();
+            minDay = Math.min(minDay, day);
+            maxDay = Math.max(maxDay, day);
+        }
+        
+        BusinessIndex index = new BusinessIndex(minDay, (int) (maxDay - minDay + 1 + FUTURE_HEADROOM_DAYS));
+        for (Object[] row : rows) {
+            int series = series((TransactionCategory) row[1], Boolean.TRUE.equals(row[2]));
+            long amountMinor = Money.toMinor((BigDecimal) row[3]);
+            index.setPoint(series, ((LocalDate) row[0]).toEpochDay(), amountMinor);
+        }
+        index.heapify();
+        
+        log.debug("Built range index for business {} over {} days", businessId, index.size);
+        return index;
+    }
+    
+    // Counts change inside compute, so a tracker can't be dropped between being looked up and being marked busy
+    private CommitTracker acquire(Long businessId, boolean commit) {
+        return trackers.compute(businessId, (id, tracker) -> {
+            CommitTracker current = tracker != null ? tracker : new CommitTracker();
+            if (commit) {
+                current.inFlight.incrementAndGet();
+                current.commits.incrementAndGet();
+            } else {
+                current.builds.incrementAndGet();
+            }
+            return current;
+        });
+    }
+    
+    private void release(Long businessId, boolean commit) {
+        trackers.computeIfPresent(businessId, (id, tracker) -> {
+            (commit ? tracker.inFlight : tracker.builds).decrementAndGet();
+            return tracker.inFlight.get() == 0 && tracker.builds.get() == 0 ? null : tracker;
+        });
+    }
+    
+    private static int series(TransactionCategory category, boolean income) {
+        return (income ? CATEGORIES.length : 0) + category.ordinal();
+    }
+    
+    /**
+     * Commits in progress and completed for one business, used to detect races with a rebuild.
+     * A rebuild holds the tracker it read, so a fresh one after an idle gap still starts from zero safely.
+     */
+    private static final class CommitTracker {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicLong commits = new AtomicLong();
+        private final AtomicInteger builds = new AtomicInteger();
+    }
+    
+    /**
+     * Fenwick trees for one business, one per (direction, category), allocated on first use
+     */
+    private static final class BusinessIndex {
+        private final long originDay;
+        private final int size;
+        private final long[][] trees = new long[CATEGORIES.length * 2][];
+        
+        BusinessIndex(long originDay, int size) {
+            this.originDay = originDay;
+            this.size = size;
+        }
+        
+        boolean hasSeries(int series) {
+            return trees[series] != null;
+        }
+        
+        void setPoint(int series, long day, long value) {
+            tree(series)[(int) (day - originDay) + 1] += value;
+        }
+        
+        // Linear-time construction over the point values written by setPoint
+        void heapify() {
+            for (long[] tree : trees) {
+                if (tree == null) {
+                    continue;
+                }
+                for (int i = 1; i <= size; i++) {
+                    int parent = i + (i & -i);
+                    if (parent <= size) {
+                        tree[parent] += tree[i];
+                    }
+                }
+            }
+        }
+        
+        synchronized boolean add(int series, long day, long delta) {
+            long offset = day - originDay;
+            if (offset < 0 || offset >= size) {
+                return false;
+            }
+            long[] tree = tree(series);
+            for (int i = (int) offset + 1; i <= size; i += i & -i) {
+                tree[i] += delta;
+            }
+            return true;
+        }
+        
+        synchronized long sum(int series, long fromDay, long toDay) {
+            return prefix(trees[series], toDay) - prefix(trees[series], fromDay - 1);
+        }
+        
+        private long prefix(long[] tree, long day) {
+            long offset = Math.min(day - originDay, size - 1);
+            long total = 0;
+            for (int i = (int) offset + 1; i > 0; i -= i & -i) {
+                total += tree[i];
+            }
+            return total;
+        }
+        
+        private long[] tree(int series) {
+            if (trees[series] == null) {
+                trees[series] = new long[size + 1];
+            }
+            return trees[series];
+        }
+    }
+}
@@ -1,29 +1,35 @@
 package com.easyfin.openbanking.service;
 
 import com.easyfin.openbanking.dto.DashboardDTO;
-import com.easyfin.openbanking.enums.TransactionCategory;
 import com.easyfin.openbanking.model.Business;
-import com.easyfin.openbanking.model.Transaction;
 import com.easyfin.openbanking.repository.AlertRepository;
 import com.easyfin.openbanking.repository.EmployeeRepository;
 import com.easyfin.openbanking.repository.RecommendationRepository;
 import com.easyfin.openbanking.repository.TransactionRepository;
-import lombok.RequiredArgsConstructor;
+import com.easyfin.openbanking.repository.TransactionTotals;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * Service for dashboard data aggregation
  */
 @Service
-@RequiredArgsConstructor
 public class DashboardService {
     
     private final TransactionRepository transactionRepository;
@@ -31,33 +37,86 @@ public class DashboardService {
     private final AlertRepository alertRepository;
     private final RecommendationRepository recommendationRepository;
     private final TaxCalculationService taxCalculationService;
+    private final CategoryRangeIndex categoryRangeIndex;
+    private final BalanceLedgerService balanceLedgerService;
+    private final ThreadPoolTaskExecutor queryExecutor;
+    private final TransactionTemplate readOnlyTransaction;
+    private final MeterRegistry meterRegistry;
+    
+    public DashboardService(TransactionRepository transactionRepository,
+                            EmployeeRepository employeeRepository,
+                            AlertRepository alertRepository,
+                            RecommendationRepository recommendationRepository,
+                            TaxCalculationService taxCalculationService,
+                            CategoryRangeIndex categoryRangeIndex,
+                            BalanceLedgerService balanceLedgerService,
+                            @Qualifier("queryExecutor") ThreadPoolTaskExecutor queryExecutor,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry) {
+        this.transactionRepository = transactionRepository;
+        this.employeeRepository = employeeRepository;
+        this.alertRepository = alertRepository;
+        this.recommendationRepository = recommendationRepository;
+        this.taxCalculationService = taxCalculationService;
+        this.categoryRangeIndex = categoryRangeIndex;
+        this.balanceLedgerService = balanceLedgerService;
+        this.queryExecutor = queryExecutor;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.meterRegistry = meterRegistry;
+    }
     
     /**
      * Get dashboard summary
      */
     public DashboardDTO getDashboardSummary(Business business) {
-        LocalDateTime endDate = LocalDateTime.now();
-        LocalDateTime startDate = endDate.minusDays(30);
-        
-        // Get financial metrics for the period
-        BigDecimal totalIncome = transactionRepository.sumIncomeByBusinessIdAndDateRange(
-                business.getId(), startDate, endDate);
-        BigDecimal totalExpenses = transactionRepository.sumExpensesByBusinessIdAndDateRange(
-                business.getId(), startDate, endDate);
-        BigDecimal taxDeductible = transactionRepository.sumTaxDeductibleByBusinessIdAndDateRange(
-                business.getId(), startDate, endDate);
-        
-        totalIncome = totalIncome != null ? totalIncome : BigDecimal.ZERO;
-        totalExpenses = totalExpenses != null ? totalExpenses : BigDecimal.ZERO;
-        taxDeductible = taxDeductible != null ? taxDeductible : BigDecimal.ZERO;
+        Long businessId = business.getId();
+        // Last 30 whole days, today included
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(29);
+        
+        // Independent reads run concurrently, each timed as dashboard.subquery{query=...}
+        CompletableFuture<TransactionTotals> totalsQuery = fanOut("totals",
+                () -> transactionRepository.sumTotalsByBusinessIdAndDays(businessId, startDate, endDate));
+        CompletableFuture<BigDecimal> balanceQuery = fanOut("balance",
+                () -> balanceLedgerService.currentBalance(businessId));
+        CompletableFuture<Long> employeesQuery = fanOut("activeEmployees",
+                () -> employeeRepository.countByBusinessIdAndIsActiveTrue(businessId));
+        CompletableFuture<Long> alertsQuery = fanOut("unreadAlerts",
+                () -> alertRepository.countByBusinessIdAndIsDismissedFalse(businessId));
+        CompletableFuture<Long> recommendationsQuery = fanOut("pendingRecommendations",
+                () -> recommendationRepository.countByBusinessIdAndIsActedUponFalse(businessId));
+        CompletableFuture<List<DashboardDTO.RecentTransaction>> recentQuery = fanOut("recentTransactions",
+                () -> transactionRepository.findTop5ByBusinessIdOrderByTransactionDateDescIdDesc(businessId)
+                        .stream()
+                        .map(t -> new DashboardDTO.RecentTransaction(
+                                t.getId(),
+                                t.getMerchantName(),
+                                t.getAmount(),
+                                t.getCategory().getDisplayName(),
+                                t.getTransactionDate().format(DateTimeFormatter.ISO_LOCAL_DATE)
+                        ))
+                        .collect(Collectors.toList()));
+        CompletableFuture<Map<String, BigDecimal>> spendingQuery = fanOut("spendingByCategory", () -> {
+            Map<String, BigDecimal> spending = new HashMap<>();
+            categoryRangeIndex.breakdown(businessId, false, startDate, endDate)
+                    .forEach((category, amount) -> spending.put(category.getDisplayName(), amount));
+            return spending;
+        });
+        
+        // Get financial metrics for the period (single round-trip)
+        TransactionTotals totals = join(totalsQuery);
+        BigDecimal totalIncome = totals.getTotalIncome();
+        BigDecimal totalExpenses = totals.getTotalExpenses();
+        BigDecimal taxDeductible = totals.getTaxDeductible();
         
         BigDecimal netCashFlow = totalIncome.subtract(totalExpenses);
         BigDecimal estimatedTaxSavings = taxCalculationService.calculateTaxSavings(
                 totalIncome, business.getTaxStatus());
         
         // Calculate balance information
-        // Total Balance = All income - all expenses
-        BigDecimal totalBalance = totalIncome.subtract(totalExpenses);
+        // Total Balance = running balance from the ledger (all income - all expenses to date)
+        BigDecimal totalBalance = join(balanceQuery);
         
         // Pending Balance = Tax deductible amount (money in tax processing)
         // This money will be available after tax filing (~2 weeks)
@@ -67,35 +126,15 @@ public class DashboardService {
         BigDecimal availableBalance = totalBalance.subtract(pendingBalance);
         
         // Get counts
-        Integer activeEmployees = employeeRepository.countByBusinessIdAndIsActiveTrue(business.getId()).intValue();
-        Integer unreadAlerts = alertRepository.countByBusinessIdAndIsDismissedFalse(business.getId()).intValue();
-        Integer pendingRecommendations = recommendationRepository.findByBusinessIdAndIsActedUponFalse(business.getId()).size();
+        Integer activeEmployees = join(employeesQuery).intValue();
+        Integer unreadAlerts = join(alertsQuery).intValue();
+        Integer pendingRecommendations = join(recommendationsQuery).intValue();
         
         // Get recent transactions
-        List<Transaction> recentTrans = transactionRepository.findByBusinessIdOrderByTransactionDateDesc(business.getId())
-                .stream()
-                .limit(5)
-                .collect(Collectors.toList());
-        
-        List<DashboardDTO.RecentTransaction> recentTransactions = recentTrans.stream()
-                .map(t -> new DashboardDTO.RecentTransaction(
-                        t.getId(),
-                        t.getMerchantName(),
-                        t.getAmount(),
-                        t.getCategory().getDisplayName(),
-                        t.getTransactionDate().format(DateTimeFormatter.ISO_LOCAL_DATE)
-                ))
-                .collect(Collectors.toList());
+        List<DashboardDTO.RecentTransaction> recentTransactions = join(recentQuery);
         
         // Get spending by category
-        List<Object[]> categoryData = transactionRepository.sumExpensesByCategory(
-                business.getId(), startDate, endDate);
-        Map<String, BigDecimal> spendingByCategory = new HashMap<>();
-        for (Object[] row : categoryData) {
-            TransactionCategory category = (TransactionCategory) row[0];
-            BigDecimal amount = (BigDecimal) row[1];
-            spendingByCategory.put(category.getDisplayName(), amount);
-        }
+        Map<String, BigDecimal> spendingByCategory = join(spendingQuery);
         
         // Build DTO
         DashboardDTO dto = new DashboardDTO();
@@ -130,5 +169,28 @@ public class DashboardService {
         
         return dto;
     }
+    
+    private <T> CompletableFuture<T> fanOut(String query, Supplier<T> read) {
+        Timer timer = Timer.builder("dashboard.subquery")
+                .description("Latency of each concurrent read behind /dashboard/summary")
+                .tag("query", query)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        // Each read gets its own read-only transaction on the worker thread
+        return CompletableFuture.supplyAsync(
+                () -> timer.record(() -> readOnlyTransaction.execute(status -> read.get())), queryExecutor);
+    }
+    
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // Surface the query's own exception so the usual error handling applies
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
 }
 
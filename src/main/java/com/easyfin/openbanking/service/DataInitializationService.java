@@ -30,10 +30,11 @@ public class DataInitializationService {
     private final BusinessRepository businessRepository;
     private final EmployeeRepository employeeRepository;
     private final TransactionRepository transactionRepository;
-    private final PayrollRepository payrollRepository;
     private final AlertRepository alertRepository;
     private final RecommendationRepository recommendationRepository;
     private final CategorizationService categorizationService;
+    private final TransactionService transactionService;
+    private final PayrollService payrollService;
     
     private final Random random = new Random();
     
@@ -57,8 +58,8 @@ public class DataInitializationService {
         // 3. Create Transactions
         List<Transaction> transactions = createTransactions(business);
         
-        // 4. Create Payroll Records
-        createPayrollRecords(business, employees);
+        // 4. Create Payroll Records through the regular month-end run
+        payrollService.runPayroll(business.getId(), LocalDate.now());
         
         // 5. Create Alerts
         createAlerts(business, transactions);
@@ -205,7 +206,8 @@ public class DataInitializationService {
                 "Bolt - Supply Delivery", new BigDecimal("25.00"), 
                 false, TransactionCategory.TRAVEL));
         
-        return transactions;
+        // One batched insert instead of a round-trip per row
+        return transactionService.createTransactions(transactions);
     }
     
     private Transaction createTransaction(Business business, LocalDateTime date, 
@@ -223,7 +225,7 @@ public class DataInitializationService {
         transaction.setIsTaxDeductible(category.isTaxDeductible());
         transaction.setCategorizationConfidence(0.85);
         
-        return transactionRepository.save(transaction);
+        return transaction;
     }
     
     private BigDecimal randomAmount(int min, int max) {
@@ -231,35 +233,6 @@ public class DataInitializationService {
         return BigDecimal.valueOf(amount).setScale(2, BigDecimal.ROUND_HALF_UP);
     }
     
-    private void createPayrollRecords(Business business, List<Employee> employees) {
-        LocalDate currentMonth = LocalDate.now().withDayOfMonth(1);
-        
-        for (Employee employee : employees) {
-            Payroll payroll = new Payroll();
-            payroll.setBusiness(business);
-            payroll.setEmployee(employee);
-            payroll.setPayrollMonth(currentMonth);
-            payroll.setGrossSalary(employee.getMonthlySalary());
-            
-            // Calculate SSF and taxes
-            BigDecimal employeeSsf = employee.getMonthlySalary().multiply(new BigDecimal("0.03"));
-            BigDecimal employerSsf = employee.getMonthlySalary().multiply(new BigDecimal("0.22"));
-            BigDecimal incomeTax = employee.getMonthlySalary().subtract(employeeSsf)
-                    .multiply(new BigDecimal("0.14"));
-            BigDecimal netSalary = employee.getMonthlySalary().subtract(employeeSsf).subtract(incomeTax);
-            BigDecimal totalCost = employee.getMonthlySalary().add(employerSsf);
-            
-            payroll.setEmployeeSsfContribution(employeeSsf);
-            payroll.setEmployerSsfContribution(employerSsf);
-            payroll.setIncomeTax(incomeTax);
-            payroll.setNetSalary(netSalary);
-            payroll.setTotalEmployerCost(totalCost);
-            payroll.setIsPaid(false);
-            
-            payrollRepository.save(payroll);
-        }
-    }
-    
     private void createAlerts(Business business, List<Transaction> transactions) {
         // Low balance alert
         Alert lowBalance = new Alert();
@@ -17,6 +17,7 @@ import java.util.stream.Collectors;
 public class EmployeeService {
     
     private final EmployeeRepository employeeRepository;
+    private final PayrollService payrollService;
     
     /**
      * Get all employees for a business
@@ -37,10 +38,11 @@ public class EmployeeService {
     }
     
     /**
-     * Save employee
+     * Save employee and move the monthly payroll aggregates by the change
      */
     public Employee saveEmployee(Employee employee) {
-        return employeeRepository.save(employee);
+        return payrollService.changeEmployee(employee.getBusiness().getId(), employee.getId(),
+                () -> employeeRepository.save(employee));
     }
     
     /**
@@ -49,7 +51,7 @@ public class EmployeeService {
     public void deleteEmployee(Long id) {
         Employee employee = getEmployeeById(id);
         employee.setIsActive(false);
-        employeeRepository.save(employee);
+        saveEmployee(employee);
     }
     
     private EmployeeDTO convertToDTO(Employee e) {
@@ -0,0 +1,54 @@
+package com.easyfin.openbanking.service;
+
+import com.easyfin.openbanking.dto.BacktestReportDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Command-line mode: run the synthetic backtest once, log the report and exit.
+ * Enabled with --easyfin.backtest.run=true (add --spring.main.web-application-type=none to skip the server).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "easyfin.backtest.run", havingValue = "true")
+public class ForecastBacktestCommand implements ApplicationRunner {
+    
+    private final ForecastBacktestService backtestService;
+    private final ConfigurableApplicationContext context;
+    private final long seed;
+    private final int horizon;
+    private final int windows;
+    private final int step;
+    
+    public ForecastBacktestCommand(ForecastBacktestService backtestService,
+                                   ConfigurableApplicationContext context,
+                                   @Value("${easyfin.backtest.seed:" + ForecastBacktestService.DEFAULT_SYNTHETIC_SEED + "}") long seed,
+                                   @Value("${easyfin.backtest.horizon:" + ForecastBacktestService.DEFAULT_HORIZON_DAYS + "}") int horizon,
+                                   @Value("${easyfin.backtest.windows:" + ForecastBacktestService.DEFAULT_WINDOWS + "}") int windows,
+                                   @Value("${easyfin.backtest.step:" + ForecastBacktestService.DEFAULT_STEP_DAYS + "}") int step) {
+        this.backtestService = backtestService;
+        this.context = context;
+        this.seed = seed;
+        this.horizon = horizon;
+        this.windows = windows;
+        this.step = step;
+    }
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        BacktestReportDTO report = backtestService.backtestSynthetic(seed, horizon, windows, step);
+        log.info("Backtest: seed={} horizon={}d windows={} step={}d elapsed={}ms",
+                seed, report.getHorizonDays(), report.getWindows(), report.getStepDays(), report.getElapsedMillis());
+        for (BacktestReportDTO.ModelScore model : report.getModels()) {
+            log.info("  {}: MAPE={}% RMSE={} AZN fit={}us",
+                    model.getModel(), model.getMape(), model.getRmse(), model.getMeanFitMicros());
+        }
+        System.exit(SpringApplication.exit(context, () -> 0));
+    }
+}
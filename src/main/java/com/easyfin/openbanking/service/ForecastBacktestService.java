@@ -0,0 +1,176 @@
+package com.easyfin.openbanking.service;
+
+import com.easyfin.openbanking.dto.BacktestReportDTO;
+import com.easyfin.openbanking.model.Business;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Replays daily history at rolling cut-off dates, forecasts as of each cut-off and scores the
+ * forecast against what actually happened. The seasonal engine is compared with the flat
+ * 30-day average it replaced; windows are independent and run in parallel.
+ */
+@Service
+@RequiredArgsConstructor
+public class ForecastBacktestService {
+    
+    public static final int DEFAULT_HORIZON_DAYS = 30;
+    public static final int DEFAULT_WINDOWS = 8;
+    public static final int DEFAULT_STEP_DAYS = 7;
+    public static final long DEFAULT_SYNTHETIC_SEED = 42L;
+    
+    private static final int MAX_WINDOWS = 52;
+    private static final int MAX_HISTORY_DAYS = 364;
+    private static final int MIN_TRAINING_DAYS = 28;
+    private static final int BASELINE_DAYS = 30;
+    
+    private final CashFlowService cashFlowService;
+    private final ForecastEngine forecastEngine;
+    
+    /**
+     * Backtest against a business's own rollup history
+     */
+    public BacktestReportDTO backtestBusiness(Business business, int horizon, int windows, int step) {
+        LocalDate lastDay = LocalDate.now().minusDays(1);
+        CashFlowService.DailySeries series = cashFlowService.loadDailySeries(
+                business.getId(), lastDay.minusDays(MAX_HISTORY_DAYS - 1), lastDay);
+        return run("business", series, horizon, windows, step);
+    }
+    
+    /**
+     * Backtest against the deterministic synthetic dataset
+     */
+    public BacktestReportDTO backtestSynthetic(long seed, int horizon, int windows, int step) {
+        return run("synthetic", SyntheticCashFlow.generate(seed), horizon, windows, step);
+    }
+    
+    private BacktestReportDTO run(String source, CashFlowService.DailySeries series,
+                                  int horizon, int windows, int step) {
+        if (horizon < 1 || horizon > CashFlowService.FORECAST_HORIZON_DAYS) {
+            throw new IllegalArgumentException("horizon must be between 1 and " + CashFlowService.FORECAST_HORIZON_DAYS);
+        }
+        if (windows < 1 || windows > MAX_WINDOWS) {
+            throw new IllegalArgumentException("windows must be between 1 and " + MAX_WINDOWS);
+        }
+        if (step < 1) {
+            throw new IllegalArgumentException("step must be at least 1");
+        }
+        
+        // Latest cut-off leaves a full horizon of actuals; earlier ones step back from it
+        int latestCutoff = series.length() - horizon;
+        if (latestCutoff < MIN_TRAINING_DAYS) {
+            throw new IllegalArgumentException("Not enough history for a " + horizon + "-day backtest");
+        }
+        int count = Math.min(windows, (latestCutoff - MIN_TRAINING_DAYS) / step + 1);
+        
+        long started = System.nanoTime();
+        List<WindowResult> results = IntStream.range(0, count).parallel()
+                .mapToObj(k -> evaluate(series, latestCutoff - k * step, horizon))
+                .toList();
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        
+        Errors holtWinters = new Errors();
+        Errors average = new Errors();
+        long holtWintersNanos = 0;
+        long averageNanos = 0;
+        List<BacktestReportDTO.WindowScore> windowScores = new ArrayList<>(count);
+        for (WindowResult result : results) {
+            holtWinters.merge(result.holtWinters());
+            average.merge(result.average());
+            holtWintersNanos += result.holtWintersNanos();
+            averageNanos += result.averageNanos();
+            windowScores.add(new BacktestReportDTO.WindowScore(
+                    series.firstDay().plusDays(result.cutoff()),
+                    result.holtWinters().mape(),
+                    result.average().mape()));
+        }
+        
+        List<BacktestReportDTO.ModelScore> models = List.of(
+                new BacktestReportDTO.ModelScore("holt-winters", holtWinters.mape(), holtWinters.rmse(),
+                        round(holtWintersNanos / 1_000.0 / count)),
+                new BacktestReportDTO.ModelScore("30-day-average", average.mape(), average.rmse(),
+                        round(averageNanos / 1_000.0 / count)));
+        return new BacktestReportDTO(source, horizon, step, count, models, windowScores, elapsedMillis);
+    }
+    
+    // Forecast both models from series[0, cutoff) and score them on series[cutoff, cutoff + horizon)
+    private WindowResult evaluate(CashFlowService.DailySeries series, int cutoff, int horizon) {
+        long started = System.nanoTime();
+        ForecastEngine.SeriesForecast income = forecastEngine.forecast(series.income(), cutoff, horizon);
+        ForecastEngine.SeriesForecast expenses = forecastEngine.forecast(series.expenses(), cutoff, horizon);
+        long holtWintersNanos = System.nanoTime() - started;
+        
+        started = System.nanoTime();
+        double averageIncome = trailingMean(series.income(), cutoff);
+        double averageExpenses = trailingMean(series.expenses(), cutoff);
+        long averageNanos = System.nanoTime() - started;
+        
+        Errors holtWinters = new Errors();
+        Errors average = new Errors();
+        for (int h = 0; h < horizon; h++) {
+            holtWinters.add(series.income()[cutoff + h], Math.max(0, income.mean()[h]));
+            holtWinters.add(series.expenses()[cutoff + h], Math.max(0, expenses.mean()[h]));
+            average.add(series.income()[cutoff + h], averageIncome);
+            average.add(series.expenses()[cutoff + h], averageExpenses);
+        }
+        return new WindowResult(cutoff, holtWinters, average, holtWintersNanos, averageNanos);
+    }
+    
+    // The baseline the seasonal engine replaced: mean of the last 30 days
+    private static double trailingMean(double[] values, int cutoff) {
+        int from = Math.max(0, cutoff - BASELINE_DAYS);
+        double sum = 0;
+        for (int i = from; i < cutoff; i++) {
+            sum += values[i];
+        }
+        return cutoff > from ? sum / (cutoff - from) : 0;
+    }
+    
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+    
+    private record WindowResult(int cutoff, Errors holtWinters, Errors average,
+                                long holtWintersNanos, long averageNanos) {
+    }
+    
+    // Running error sums over daily points in qəpik
+    private static final class Errors {
+        private double absolutePercent;
+        private int percentPoints;
+        private double squared;
+        private int points;
+        
+        void add(double actual, double predicted) {
+            double error = actual - predicted;
+            squared += error * error;
+            points++;
+            if (actual != 0) {
+                absolutePercent += Math.abs(error / actual);
+                percentPoints++;
+            }
+        }
+        
+        void merge(Errors other) {
+            absolutePercent += other.absolutePercent;
+            percentPoints += other.percentPoints;
+            squared += other.squared;
+            points += other.points;
+        }
+        
+        // Percent
+        Double mape() {
+            return percentPoints > 0 ? round(100 * absolutePercent / percentPoints) : null;
+        }
+        
+        // In AZN
+        Double rmse() {
+            return points > 0 ? round(Math.sqrt(squared / points) / 100) : null;
+        }
+    }
+}
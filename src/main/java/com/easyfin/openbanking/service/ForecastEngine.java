@@ -0,0 +1,198 @@
+package com.easyfin.openbanking.service;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Weekly-seasonal forecasting over daily series held in primitive arrays.
+ * Fits additive Holt-Winters with a damped trend by grid search on one-step-ahead error,
+ * and derives prediction intervals from the residual variance. A fit touches only a handful
+ * of small arrays, so forecasting many businesses is bound by reading their history.
+ */
+@Component
+public class ForecastEngine {
+    
+    public static final int SEASON_LENGTH = 7;
+    
+    // Two-sided 80% normal quantile
+    public static final double Z_80 = 1.2816;
+    
+    private static final double DAMPING = 0.9;
+    private static final double[] ALPHAS = {0.05, 0.1, 0.2, 0.35, 0.5};
+    private static final double[] BETAS = {0.0, 0.02, 0.1};
+    private static final double[] GAMMAS = {0.05, 0.15, 0.3};
+    
+    // Need one season to initialise and one to estimate the trend
+    private static final int MIN_HISTORY = 2 * SEASON_LENGTH;
+    
+    /**
+     * Point forecasts and forecast-error variances, index 0 being the step after the history
+     */
+    public record SeriesForecast(double[] mean, double[] variance) {
+    }
+    
+    /**
+     * Daily income, expense and balance projection with 80% balance bounds and a confidence score
+     */
+    public record CashFlowProjection(double[] income, double[] expenses, double[] balance,
+                                     double[] balanceLow, double[] balanceHigh, double[] confidence) {
+    }
+    
+    /**
+     * Fit to history[0, length) and forecast the next horizon steps
+     */
+    public SeriesForecast forecast(double[] history, int length, int horizon) {
+        double[] mean = new double[horizon];
+        double[] variance = new double[horizon];
+        if (length < MIN_HISTORY) {
+            forecastFlat(history, length, mean, variance);
+            return new SeriesForecast(mean, variance);
+        }
+        
+        double[] season = new double[SEASON_LENGTH];
+        double bestSse = Double.POSITIVE_INFINITY;
+        double alpha = ALPHAS[0];
+        double beta = BETAS[0];
+        double gamma = GAMMAS[0];
+        for (double a : ALPHAS) {
+            for (double b : BETAS) {
+                for (double g : GAMMAS) {
+                    double sse = fit(history, length, a, b, g, season, null);
+                    if (sse < bestSse) {
+                        bestSse = sse;
+                        alpha = a;
+                        beta = b;
+                        gamma = g;
+                    }
+                }
+            }
+        }
+        
+        double[] state = new double[2];
+        fit(history, length, alpha, beta, gamma, season, state);
+        double level = state[0];
+        double trend = state[1];
+        double sigma2 = bestSse / (length - SEASON_LENGTH);
+        
+        // Var(h) = sigma^2 * (1 + sum_{j<h} c_j^2), c_j = alpha * (1 + beta * phi_j) + gamma on season boundaries
+        double dampedSum = 0;
+        double dampingPower = 1;
+        double accumulated = 0;
+        for (int h = 1; h <= horizon; h++) {
+            dampingPower *= DAMPING;
+            dampedSum += dampingPower;
+            mean[h - 1] = level + dampedSum * trend + season[(length - 1 + h) % SEASON_LENGTH];
+            variance[h - 1] = sigma2 * (1 + accumulated);
+            
+            double c = alpha * (1 + beta * dampedSum) + (h % SEASON_LENGTH == 0 ? gamma : 0);
+            accumulated += c * c;
+        }
+        return new SeriesForecast(mean, variance);
+    }
+    
+    /**
+     * Project income, expenses and balance for the horizon after skipping the first steps
+     * (e.g. today, which is not yet a complete day in the history). Scheduled flows, indexed by
+     * step, are known in advance and added to the model's means without adding variance.
+     */
+    public CashFlowProjection project(double[] income, double[] expenses, int length,
+                                      double[] scheduledIncome, double[] scheduledExpenses,
+                                      int skip, int horizon, double startingBalance) {
+        SeriesForecast incomeForecast = forecast(income, length, skip + horizon);
+        SeriesForecast expenseForecast = forecast(expenses, length, skip + horizon);
+        
+        double[] incomeMean = new double[horizon];
+        double[] expenseMean = new double[horizon];
+        double[] balance = new double[horizon];
+        double[] balanceLow = new double[horizon];
+        double[] balanceHigh = new double[horizon];
+        double[] confidence = new double[horizon];
+        
+        double runningBalance = startingBalance;
+        double balanceVariance = 0;
+        for (int step = 0; step < skip + horizon; step++) {
+            double in = Math.max(0, incomeForecast.mean()[step]) + scheduledIncome[step];
+            double out = Math.max(0, expenseForecast.mean()[step]) + scheduledExpenses[step];
+            double netVariance = incomeForecast.variance()[step] + expenseForecast.variance()[step];
+            
+            // Daily errors treated as independent, so balance variance accumulates
+            runningBalance += in - out;
+            balanceVariance += netVariance;
+            
+            if (step >= skip) {
+                int i = step - skip;
+                double balanceHalfWidth = Z_80 * Math.sqrt(balanceVariance);
+                incomeMean[i] = in;
+                expenseMean[i] = out;
+                balance[i] = runningBalance;
+                balanceLow[i] = runningBalance - balanceHalfWidth;
+                balanceHigh[i] = runningBalance + balanceHalfWidth;
+                confidence[i] = confidence(in + out, Z_80 * Math.sqrt(netVariance));
+            }
+        }
+        return new CashFlowProjection(incomeMean, expenseMean, balance, balanceLow, balanceHigh, confidence);
+    }
+    
+    // One pass of Holt-Winters over the history; returns the one-step-ahead squared error
+    private double fit(double[] x, int length, double alpha, double beta, double gamma,
+                       double[] season, double[] stateOut) {
+        double firstMean = 0;
+        double secondMean = 0;
+        for (int i = 0; i < SEASON_LENGTH; i++) {
+            firstMean += x[i];
+            secondMean += x[i + SEASON_LENGTH];
+        }
+        firstMean /= SEASON_LENGTH;
+        secondMean /= SEASON_LENGTH;
+        
+        double level = firstMean;
+        double trend = (secondMean - firstMean) / SEASON_LENGTH;
+        for (int i = 0; i < SEASON_LENGTH; i++) {
+            season[i] = x[i] - firstMean;
+        }
+        
+        double sse = 0;
+        for (int t = SEASON_LENGTH; t < length; t++) {
+            int s = t % SEASON_LENGTH;
+            double error = x[t] - (level + DAMPING * trend + season[s]);
+            sse += error * error;
+            
+            double previousLevel = level;
+            level = alpha * (x[t] - season[s]) + (1 - alpha) * (previousLevel + DAMPING * trend);
+            trend = beta * (level - previousLevel) + (1 - beta) * DAMPING * trend;
+            season[s] = gamma * (x[t] - level) + (1 - gamma) * season[s];
+        }
+        
+        if (stateOut != null) {
+            stateOut[0] = level;
+            stateOut[1] = trend;
+        }
+        return sse;
+    }
+    
+    // Too little history for seasonality: mean and sample variance
+    private void forecastFlat(double[] history, int length, double[] mean, double[] variance) {
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += history[i];
+        }
+        double average = length > 0 ? sum / length : 0;
+        double squares = 0;
+        for (int i = 0; i < length; i++) {
+            squares += (history[i] - average) * (history[i] - average);
+        }
+        double sampleVariance = length > 1 ? squares / (length - 1) : average * average;
+        for (int h = 0; h < mean.length; h++) {
+            mean[h] = average;
+            variance[h] = sampleVariance;
+        }
+    }
+    
+    // 1 when the day's interval is tight relative to its expected volume, falling towards 0 as it widens
+    private static double confidence(double volume, double halfWidth) {
+        if (volume <= 0) {
+            return 0.5;
+        }
+        double score = 1 - halfWidth / volume;
+        return Math.round(Math.max(0.05, Math.min(0.95, score)) * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,66 @@
+package com.easyfin.openbanking.service;
+
+import com.easyfin.openbanking.model.Business;
+import com.easyfin.openbanking.repository.BusinessRepository;
+import com.easyfin.openbanking.repository.CashFlowForecastRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+/**
+ * Nightly forecast maintenance: recompute every active business's forecast for the new day,
+ * then delete forecast rows that are older than the retention window
+ */
+@Slf4j
+@Component
+public class ForecastMaintenanceJob {
+    
+    private final CashFlowService cashFlowService;
+    private final BusinessRepository businessRepository;
+    private final CashFlowForecastRepository forecastRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int retentionDays;
+    
+    public ForecastMaintenanceJob(CashFlowService cashFlowService,
+                                  BusinessRepository businessRepository,
+                                  CashFlowForecastRepository forecastRepository,
+                                  TransactionTemplate transactionTemplate,
+                                  @Value("${easyfin.forecast.retention-days:7}") int retentionDays) {
+        this.cashFlowService = cashFlowService;
+        this.businessRepository = businessRepository;
+        this.forecastRepository = forecastRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.retentionDays = retentionDays;
+    }
+    
+    /**
+     * Recompute forecasts shortly after midnight so the first read of the day is served from the store
+     */
+    @Scheduled(cron = "${easyfin.forecast.refresh-cron:0 5 0 * * *}")
+    public void refreshForecasts() {
+        int refreshed = 0;
+        for (Business business : businessRepository.findByIsActiveTrue()) {
+            try {
+                cashFlowService.refreshForecast(business);
+                refreshed++;
+            } catch (RuntimeException e) {
+                log.warn("Forecast refresh failed for business {}", business.getId(), e);
+            }
+        }
+        log.info("Refreshed forecasts for {} businesses", refreshed);
+    }
+    
+    /**
+     * Delete forecast rows for days that are past the retention window
+     */
+    @Scheduled(cron = "${easyfin.forecast.retention-cron:0 30 0 * * *}")
+    public void compactForecasts() {
+        LocalDate cutoff = LocalDate.now().minusDays(retentionDays);
+        Integer deleted = transactionTemplate.execute(status -> forecastRepository.deleteByForecastDateBefore(cutoff));
+        log.info("Deleted {} forecast rows dated before {}", deleted, cutoff);
+    }
+}
@@ -0,0 +1,170 @@
+package com.easyfin.openbanking.service;
+
+import com.easyfin.openbanking.dto.JobProgressDTO;
+import com.easyfin.openbanking.enums.JobStatus;
+import com.easyfin.openbanking.exception.ResourceNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+/**
+ * Runs background jobs on the bounded job executor and keeps their progress in memory.
+ * Finished jobs stay queryable for an hour.
+ */
+@Slf4j
+@Component
+public class JobTracker {
+    
+    private static final Duration RETENTION = Duration.ofHours(1);
+    
+    private final ThreadPoolTaskExecutor jobExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    
+    public JobTracker(@Qualifier("jobExecutor") ThreadPoolTaskExecutor jobExecutor,
+                      TransactionTemplate transactionTemplate) {
+        this.jobExecutor = jobExecutor;
+        this.transactionTemplate = transactionTemplate;
+    }
+    
+    /**
+     * Queue a job; the work returns a completion message
+     */
+    public JobProgressDTO submit(String type, Long businessId, Function<Job, String> work) {
+        pruneFinished();
+        
+        Job job = new Job(UUID.randomUUID().toString(), type, businessId);
+        jobs.put(job.id, job);
+        try {
+            jobExecutor.execute(() -> run(job, work));
+        } catch (TaskRejectedException e) {
+            jobs.remove(job.id);
+            throw new IllegalStateException("Too many background jobs queued, try again later", e);
+        }
+        return job.toDTO();
+    }
+    
+    /**
+     * Run chunk work over ids after 0 until a chunk comes back empty, each chunk in its own short
+     * transaction so progress is committed and visible as the job runs. Chunk work may fan pure
+     * per-row calculation out across cores, but touches entities only on the calling thread.
+     * The job may be null for a run on the calling thread; returns the totals over all chunks.
+     */
+    public ChunkResult runChunked(Job job, LongFunction<ChunkResult> chunkWork) {
+        long afterId = 0;
+        long processed = 0;
+        long updated = 0;
+        while (true) {
+            long cursor = afterId;
+            ChunkResult result = transactionTemplate.execute(status -> chunkWork.apply(cursor));
+            if (result == null || result.processed() == 0) {
+                break;
+            }
+            if (job != null) {
+                job.advance(result.processed(), result.updated());
+            }
+            processed += result.processed();
+            updated += result.updated();
+            afterId = result.lastId();
+        }
+        return new ChunkResult(processed, updated, afterId);
+    }
+    
+    /**
+     * Get job progress
+     */
+    public JobProgressDTO getProgress(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Job", "id", jobId);
+        }
+        return job.toDTO();
+    }
+    
+    private void run(Job job, Function<Job, String> work) {
+        job.status = JobStatus.RUNNING;
+        try {
+            job.message = work.apply(job);
+            job.status = JobStatus.COMPLETED;
+        } catch (RuntimeException e) {
+            log.error("Job {} ({}) failed", job.id, job.type, e);
+            job.message = e.getMessage();
+            job.status = JobStatus.FAILED;
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+        }
+    }
+    
+    private void pruneFinished() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(RETENTION);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+    }
+    
+    /**
+     * Rows a chunk looked at, rows it updated or created, and the id the next chunk starts after
+     */
+    public record ChunkResult(long processed, long updated, long lastId) {
+        
+        public static ChunkResult empty(long afterId) {
+            return new ChunkResult(0, 0, afterId);
+        }
+    }
+    
+    /**
+     * Progress handle passed to running work
+     */
+    public static final class Job {
+        private final String id;
+        private final String type;
+        private final Long businessId;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong updated = new AtomicLong();
+        private volatile JobStatus status = JobStatus.QUEUED;
+        private volatile LocalDateTime finishedAt;
+        private volatile String message;
+        
+        private Job(String id, String type, Long businessId) {
+            this.id = id;
+            this.type = type;
+            this.businessId = businessId;
+        }
+        
+        public void setTotal(long total) {
+            this.total.set(total);
+        }
+        
+        public void advance(long processed, long updated) {
+            this.processed.addAndGet(processed);
+            this.updated.addAndGet(updated);
+        }
+        
+        private JobProgressDTO toDTO() {
+            long totalCount = total.get();
+            long processedCount = processed.get();
+            double percent;
+            if (status == JobStatus.COMPLETED) {
+                percent = 100.0;
+            } else if (totalCount == 0) {
+                percent = 0.0;
+            } else {
+                percent = Math.min(100.0, Math.round(processedCount * 1000.0 / totalCount) / 10.0);
+            }
+            return new JobProgressDTO(id, type, businessId, status, totalCount, processedCount, updated.get(),
+                    percent, startedAt, finishedAt, message);
+        }
+    }
+}
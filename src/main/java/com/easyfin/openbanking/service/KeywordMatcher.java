@@ -0,0 +1,169 @@
+package com.easyfin.openbanking.service;
+
+import com.easyfin.openbanking.enums.TransactionCategory;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Aho-Corasick automaton over the merchant keyword dictionary.
+ * Built once into a dense transition table, so matching is a single case-folding pass
+ * over the input with no allocation, independent of how many keywords there are.
+ */
+final class KeywordMatcher {
+    
+    private static final TransactionCategory[] CATEGORIES = TransactionCategory.values();
+    private static final int ROOT = 0;
+    
+    // Dense alphabet: index 0 is any character not used by a keyword
+    private final short[] charIndex = new short[Character.MAX_VALUE + 1];
+    private final int alphabetSize;
+    
+    // transitions[state * alphabetSize + symbol], failure links already folded in
+    private final int[] transitions;
+    
+    // Longest keyword ending at each state (own or via suffix links), -1 when none
+    private final int[] matchLength;
+    private final byte[] matchCategory;
+    
+    // Every category with a keyword ending at each state, as a bitmask over ordinals
+    private final long[] categoryMask;
+    
+    KeywordMatcher(Map<String, TransactionCategory> keywords) {
+        short symbols = 1;
+        for (String keyword : keywords.keySet()) {
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = Character.toLowerCase(keyword.charAt(i));
+                if (charIndex[c] == 0) {
+                    charIndex[c] = symbols++;
+                }
+            }
+        }
+        this.alphabetSize = symbols;
+        
+        int maxStates = 1;
+        for (String keyword : keywords.keySet()) {
+            maxStates += keyword.length();
+        }
+        
+        int[] trie = new int[maxStates * alphabetSize];
+        int[] ownLength = new int[maxStates];
+        byte[] ownCategory = new byte[maxStates];
+        Arrays.fill(ownLength, -1);
+        
+        // Build the trie; a repeated keyword keeps its last category, as a map put would
+        int states = 1;
+        for (Map.Entry<String, TransactionCategory> entry : keywords.entrySet()) {
+            String keyword = entry.getKey();
+            int state = ROOT;
+            for (int i = 0; i < keyword.length(); i++) {
+                int slot = state * alphabetSize + symbol(keyword.charAt(i));
+                if (trie[slot] == 0) {
+                    trie[slot] = states;
+                    states++;
+                }
+                state = trie[slot];
+            }
+            ownLength[state] = keyword.length();
+            ownCategory[state] = (byte) entry.getValue().ordinal();
+        }
+        
+        this.transitions = Arrays.copyOf(trie, states * alphabetSize);
+        this.matchLength = new int[states];
+        this.matchCategory = new byte[states];
+        this.categoryMask = new long[states];
+        
+        // Breadth-first: resolve failure links and fold them into the transition table
+        int[] fail = new int[states];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        resolveOutputs(ROOT, ROOT, ownLength, ownCategory);
+        for (int symbol = 0; symbol < alphabetSize; symbol++) {
+            int child = transitions[symbol];
+            if (child != 0) {
+                fail[child] = ROOT;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            resolveOutputs(state, fail[state], ownLength, ownCategory);
+            for (int symbol = 0; symbol < alphabetSize; symbol++) {
+                int slot = state * alphabetSize + symbol;
+                int child = transitions[slot];
+                int fallback = transitions[fail[state] * alphabetSize + symbol];
+                if (child != 0) {
+                    fail[child] = fallback;
+                    queue.add(child);
+                } else {
+                    transitions[slot] = fallback;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Category of the longest keyword found in the text, or null if none.
+     * On equal length the earlier occurrence wins.
+     */
+    TransactionCategory findBestMatch(CharSequence text) {
+        int best = scanBest(text);
+        return best < 0 ? null : CATEGORIES[best & 0xFF];
+    }
+    
+    /**
+     * Whether any keyword for the category occurs in the text
+     */
+    boolean containsCategory(CharSequence text, TransactionCategory category) {
+        if (text == null) {
+            return false;
+        }
+        long bit = 1L << category.ordinal();
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            state = transitions[state * alphabetSize + symbol(text.charAt(i))];
+            if ((categoryMask[state] & bit) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    // Packs the best match as (length << 8 | category ordinal), -1 for none
+    private int scanBest(CharSequence text) {
+        int best = -1;
+        if (text == null) {
+            return best;
+        }
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            state = transitions[state * alphabetSize + symbol(text.charAt(i))];
+            int length = matchLength[state];
+            if (length > 0 && length > (best >> 8)) {
+                best = (length << 8) | (matchCategory[state] & 0xFF);
+            }
+        }
+        return best;
+    }
+    
+    private void resolveOutputs(int state, int failState, int[] ownLength, byte[] ownCategory) {
+        if (state == ROOT) {
+            matchLength[ROOT] = -1;
+            return;
+        }
+        // The failure state is a proper suffix, so any keyword of our own is longer
+        if (ownLength[state] > 0) {
+            matchLength[state] = ownLength[state];
+            matchCategory[state] = ownCategory[state];
+            categoryMask[state] = (1L << ownCategory[state]) | categoryMask[failState];
+        } else {
+            matchLength[state] = matchLength[failState];
+            matchCategory[state] = matchCategory[failState];
+            categoryMask[state] = categoryMask[failState];
+        }
+    }
+    
+    private int symbol(char c) {
+        return charIndex[Character.toLowerCase(c)];
+    }
+}
@@ -0,0 +1,173 @@
+package com.easyfin.openbanking.service;
+
+import com.easyfin.openbanking.dto.PayrollRateVersionDTO;
+import com.easyfin.openbanking.enums.PayrollRateComponent;
+import com.easyfin.openbanking.model.PayrollRateBracket;
+import com.easyfin.openbanking.model.PayrollRateVersion;
+import com.easyfin.openbanking.repository.PayrollRateVersionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Effective-dated payroll rate versions, served from an immutable in-memory table that is
+ * recompiled whenever a version is added
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PayrollRateService {
+    
+    // Seeded when no version is stored: 3% employee SSF, 22% employer SSF, 14% income tax (simplified)
+    private static final LocalDate DEFAULT_EFFECTIVE_FROM = LocalDate.of(2000, 1, 1);
+    
+    private final PayrollRateVersionRepository versionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    private volatile PayrollRateTable table;
+    
+    /**
+     * Rates in force for a month
+     */
+    PayrollRateTable.Rates ratesFor(LocalDate month) {
+        return currentTable().ratesFor(month);
+    }
+    
+    /**
+     * The compiled table in use; a new instance after every version change
+     */
+    PayrollRateTable currentTable() {
+        PayrollRateTable current = table;
+        if (current == null) {
+            synchronized (this) {
+                current = table != null ? table : recompile();
+            }
+        }
+        return current;
+    }
+    
+    /**
+     * Get all rate versions, oldest first
+     */
+    public List<PayrollRateVersionDTO> getVersions() {
+        ratesFor(LocalDate.now()); // Seeds the default on first use
+        return versionRepository.findAllByOrderByEffectiveFromAsc().stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Store a version from the first of its month and switch payroll math over to it. Stored payroll
+     * rows keep their figures until a recalculation job is run; monthly aggregates from that month
+     * on are dropped and rebuilt on next read.
+     */
+    public PayrollRateVersionDTO createVersion(PayrollRateVersionDTO dto) {
+        if (dto.getEffectiveFrom() == null) {
+            throw new IllegalArgumentException("effectiveFrom is required");
+        }
+        PayrollRateVersion version = new PayrollRateVersion();
+        version.setEffectiveFrom(dto.getEffectiveFrom().withDayOfMonth(1));
+        version.setDescription(dto.getDescription());
+        addBrackets(version, PayrollRateComponent.EMPLOYEE_SSF, dto.getEmployeeSsf());
+        addBrackets(version, PayrollRateComponent.EMPLOYER_SSF, dto.getEmployerSsf());
+        addBrackets(version, PayrollRateComponent.INCOME_TAX, dto.getIncomeTax());
+        
+        ratesFor(version.getEffectiveFrom()); // The default must exist before anything newer
+        PayrollRateVersion saved;
+        synchronized (this) {
+            saved = transactionTemplate.execute(status -> {
+                if (versionRepository.existsByEffectiveFrom(version.getEffectiveFrom())) {
+                    throw new IllegalArgumentException("A rate version already starts on " + version.getEffectiveFrom());
+                }
+                return versionRepository.save(version);
+            });
+            recompile();
+        }
+        log.info("Payroll rate version {} effective {} stored", saved.getId(), saved.getEffectiveFrom());
+        // Published once the new table is in use, so aggregates dropped for it are rebuilt at the new rates
+        eventPublisher.publishEvent(new RatesChangedEvent(saved.getEffectiveFrom()));
+        return convertToDTO(saved);
+    }
+    
+    /**
+     * Published after a rate version is stored and the compiled table switched over to it
+     */
+    public record RatesChangedEvent(LocalDate effectiveFrom) {
+    }
+    
+    // In its own transaction, so a seeded default is committed before any caller prices with it
+    private synchronized PayrollRateTable recompile() {
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        table = requiresNew.execute(status -> {
+            List<PayrollRateVersion> versions = versionRepository.findAllByOrderByEffectiveFromAsc();
+            if (versions.isEmpty()) {
+                versions = List.of(versionRepository.save(defaultVersion()));
+            }
+            return PayrollRateTable.compile(versions);
+        });
+        return table;
+    }
+    
+    private PayrollRateVersion defaultVersion() {
+        PayrollRateVersion version = new PayrollRateVersion();
+        version.setEffectiveFrom(DEFAULT_EFFECTIVE_FROM);
+        version.setDescription("Default flat rates");
+        version.getBrackets().add(new PayrollRateBracket(PayrollRateComponent.EMPLOYEE_SSF, BigDecimal.ZERO, new BigDecimal("0.03")));
+        version.getBrackets().add(new PayrollRateBracket(PayrollRateComponent.EMPLOYER_SSF, BigDecimal.ZERO, new BigDecimal("0.22")));
+        version.getBrackets().add(new PayrollRateBracket(PayrollRateComponent.INCOME_TAX, BigDecimal.ZERO, new BigDecimal("0.14")));
+        return version;
+    }
+    
+    private void addBrackets(PayrollRateVersion version, PayrollRateComponent component,
+                             List<PayrollRateVersionDTO.Bracket> brackets) {
+        String name = component.name().toLowerCase();
+        if (brackets == null || brackets.isEmpty()) {
+            throw new IllegalArgumentException("At least one " + name + " bracket is required");
+        }
+        Set<BigDecimal> thresholds = new HashSet<>();
+        for (PayrollRateVersionDTO.Bracket bracket : brackets) {
+            if (bracket.getThreshold() == null || bracket.getThreshold().signum() < 0) {
+                throw new IllegalArgumentException("Bracket thresholds must be zero or more");
+            }
+            if (bracket.getRate() == null || bracket.getRate().signum() < 0 || bracket.getRate().compareTo(BigDecimal.ONE) > 0) {
+                throw new IllegalArgumentException("Bracket rates must be between 0 and 1");
+            }
+            if (!thresholds.add(bracket.getThreshold().stripTrailingZeros())) {
+                throw new IllegalArgumentException("Duplicate " + name + " bracket threshold " + bracket.getThreshold());
+            }
+            version.getBrackets().add(new PayrollRateBracket(component, bracket.getThreshold(), bracket.getRate()));
+        }
+    }
+    
+    private PayrollRateVersionDTO convertToDTO(PayrollRateVersion version) {
+        PayrollRateVersionDTO dto = new PayrollRateVersionDTO();
+        dto.setId(version.getId());
+        dto.setEffectiveFrom(version.getEffectiveFrom());
+        dto.setDescription(version.getDescription());
+        dto.setEmployeeSsf(brackets(version, PayrollRateComponent.EMPLOYEE_SSF));
+        dto.setEmployerSsf(brackets(version, PayrollRateComponent.EMPLOYER_SSF));
+        dto.setIncomeTax(brackets(version, PayrollRateComponent.INCOME_TAX));
+        dto.setCreatedAt(version.getCreatedAt());
+        return dto;
+    }
+    
+    private List<PayrollRateVersionDTO.Bracket> brackets(PayrollRateVersion version, PayrollRateComponent component) {
+        return version.getBrackets().stream()
+                .filter(bracket -> bracket.getComponent() == component)
+                .sorted((a, b) -> a.getThreshold().compareTo(b.getThreshold()))
+                .map(bracket -> new PayrollRateVersionDTO.Bracket(bracket.getThreshold(), bracket.getRate()))
+                .toList();
+    }
+}
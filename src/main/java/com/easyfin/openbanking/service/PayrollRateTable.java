@@ -0,0 +1,105 @@
+package com.easyfin.openbanking.service;
+
+import com.easyfin.openbanking.enums.PayrollRateComponent;
+import com.easyfin.openbanking.model.PayrollRateBracket;
+import com.easyfin.openbanking.model.PayrollRateVersion;
+import com.easyfin.openbanking.util.Money;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable lookup compiled from the stored rate versions: months as sorted epoch-month keys and
+ * schedules as qəpik thresholds with rates in parts per million, so payroll math never touches
+ * BigDecimal or the database. Replaced as a whole when a version is added.
+ */
+final class PayrollRateTable {
+    
+    private final int[] fromMonths;
+    private final Rates[] rates;
+    
+    private PayrollRateTable(int[] fromMonths, Rates[] rates) {
+        this.fromMonths = fromMonths;
+        this.rates = rates;
+    }
+    
+    /**
+     * Compile versions in any order; at least one is required
+     */
+    static PayrollRateTable compile(List<PayrollRateVersion> versions) {
+        if (versions.isEmpty()) {
+            throw new IllegalStateException("No payroll rate versions");
+        }
+        List<PayrollRateVersion> sorted = versions.stream()
+                .sorted(Comparator.comparing(PayrollRateVersion::getEffectiveFrom))
+                .toList();
+        int[] fromMonths = new int[sorted.size()];
+        Rates[] rates = new Rates[sorted.size()];
+        for (int i = 0; i < sorted.size(); i++) {
+            PayrollRateVersion version = sorted.get(i);
+            fromMonths[i] = epochMonth(version.getEffectiveFrom());
+            rates[i] = new Rates(version.getId(), version.getEffectiveFrom(),
+                    Schedule.of(version.getBrackets(), PayrollRateComponent.EMPLOYEE_SSF),
+                    Schedule.of(version.getBrackets(), PayrollRateComponent.EMPLOYER_SSF),
+                    Schedule.of(version.getBrackets(), PayrollRateComponent.INCOME_TAX));
+        }
+        return new PayrollRateTable(fromMonths, rates);
+    }
+    
+    /**
+     * Rates in force for a month; months before the first version use the first version
+     */
+    Rates ratesFor(LocalDate month) {
+        int index = Arrays.binarySearch(fromMonths, epochMonth(month));
+        if (index < 0) {
+            index = Math.max(0, -index - 2); // Last version starting before the month
+        }
+        return rates[index];
+    }
+    
+    private static int epochMonth(LocalDate date) {
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+    
+    /**
+     * Every schedule of one version
+     */
+    record Rates(Long versionId, LocalDate effectiveFrom, Schedule employeeSsf, Schedule employerSsf,
+                 Schedule incomeTax) {
+    }
+    
+    /**
+     * Progressive schedule; each band is rounded to the qəpik on its own, so a single band from zero
+     * is exactly the flat-rate calculation
+     */
+    record Schedule(long[] thresholds, long[] ratesPpm) {
+        
+        static Schedule of(List<PayrollRateBracket> brackets, PayrollRateComponent component) {
+            List<PayrollRateBracket> bands = brackets.stream()
+                    .filter(bracket -> bracket.getComponent() == component)
+                    .sorted(Comparator.comparing(PayrollRateBracket::getThreshold))
+                    .toList();
+            long[] thresholds = new long[bands.size()];
+            long[] ratesPpm = new long[bands.size()];
+            for (int i = 0; i < bands.size(); i++) {
+                thresholds[i] = Money.toMinor(bands.get(i).getThreshold());
+                ratesPpm[i] = Money.rate(bands.get(i).getRate());
+            }
+            return new Schedule(thresholds, ratesPpm);
+        }
+        
+        /**
+         * Amount due on a monthly base in qəpik
+         */
+        long apply(long base) {
+            long due = 0;
+            for (int i = 0; i < thresholds.length && base > thresholds[i]; i++) {
+                long upper = i + 1 < thresholds.length ? Math.min(base, thresholds[i + 1]) : base;
+                due += Money.applyRate(upper - thresholds[i], ratesPpm[i]);
+            }
+            return due;
+        }
+    }
+}
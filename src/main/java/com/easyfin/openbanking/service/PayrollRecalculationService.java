@@ -0,0 +1,176 @@
+package com.easyfin.openbanking.service;
+
+import com.easyfin.openbanking.dto.JobProgressDTO;
+import com.easyfin.openbanking.util.Money;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+/**
+ * Background recalculation of stored payroll rows against the current rate versions, across
+ * every business. Gross salaries are kept; deductions, net and employer cost are recomputed.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PayrollRecalculationService {
+    
+    public static final String JOB_TYPE = "PAYROLL_RECALCULATION";
+    
+    // Rows per chunk; each chunk commits on its own
+    private static final int CHUNK_SIZE = 1000;
+    
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM payroll WHERE payroll_month >= ?";
+    
+    // Plain JDBC: rows are read as numbers and written back as batched updates, never as entities
+    private static final String SELECT_CHUNK_SQL =
+            "SELECT id, business_id, payroll_month, gross_salary, employee_ssf_contribution, " +
+            "employer_ssf_contribution, income_tax, net_salary, total_employer_cost, is_paid " +
+            "FROM payroll WHERE payroll_month >= ? AND id > ? ORDER BY id LIMIT ?";
+    
+    private static final String UPDATE_SQL =
+            "UPDATE payroll SET employee_ssf_contribution = ?, employer_ssf_contribution = ?, income_tax = ?, " +
+            "net_salary = ?, total_employer_cost = ? WHERE id = ?";
+    
+    private final PayrollService payrollService;
+    private final JobTracker jobTracker;
+    private final JdbcTemplate jdbcTemplate;
+    
+    private final AtomicBoolean running = new AtomicBoolean();
+    
+    /**
+     * Start a job that recalculates every unpaid payroll row from a month on. Paid rows are
+     * left as they are and only counted, since their amounts have already gone out.
+     */
+    public JobProgressDTO startRecalculation(LocalDate fromMonth) {
+        LocalDate month = fromMonth.withDayOfMonth(1);
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A payroll recalculation is already in progress");
+        }
+        try {
+            return jobTracker.submit(JOB_TYPE, null, job -> {
+                try {
+                    return run(job, month);
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+    
+    private String run(JobTracker.Job job, LocalDate month) {
+        Long total = jdbcTemplate.queryForObject(COUNT_SQL, Long.class, month);
+        job.setTotal(total != null ? total : 0);
+        
+        long started = System.nanoTime();
+        Diff diff = new Diff();
+        jobTracker.runChunked(job, afterId -> recalculateChunk(month, afterId, diff));
+        
+        if (diff.changed > 0) {
+            // Run months' aggregates were summed from the rows just rewritten
+            payrollService.dropAggregatesFrom(month);
+        }
+        
+        long elapsedMillis = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+        String summary = diff.summary(month) + " in " + elapsedMillis + " ms, "
+                + Math.round(diff.scanned * 1000.0 / elapsedMillis) + " rows/sec";
+        log.info(summary);
+        return summary;
+    }
+    
+    private JobTracker.ChunkResult recalculateChunk(LocalDate month, long afterId, Diff diff) {
+        List<StoredPayroll> chunk = jdbcTemplate.query(SELECT_CHUNK_SQL, (rs, row) -> new StoredPayroll(
+                rs.getLong(1), rs.getLong(2), rs.getObject(3, LocalDate.class),
+                Money.toMinor(rs.getBigDecimal(4)), Money.toMinor(rs.getBigDecimal(5)),
+                Money.toMinor(rs.getBigDecimal(6)), Money.toMinor(rs.getBigDecimal(7)),
+                Money.toMinor(rs.getBigDecimal(8)), Money.toMinor(rs.getBigDecimal(9)), rs.getBoolean(10)),
+                month, afterId, CHUNK_SIZE);
+        if (chunk.isEmpty()) {
+            return JobTracker.ChunkResult.empty(afterId);
+        }
+        
+        PayrollService.PayrollAmounts[] recalculated = new PayrollService.PayrollAmounts[chunk.size()];
+        IntStream.range(0, chunk.size()).parallel().forEach(i -> recalculated[i] =
+                payrollService.calculateAmounts(chunk.get(i).grossSalary(), chunk.get(i).payrollMonth()));
+        
+        List<Object[]> updates = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            StoredPayroll stored = chunk.get(i);
+            PayrollService.PayrollAmounts amounts = recalculated[i];
+            diff.scanned++;
+            if (!stored.differsFrom(amounts)) {
+                continue;
+            }
+            if (stored.paid()) {
+                diff.paidDiffering++;
+                continue;
+            }
+            diff.add(stored, amounts);
+            updates.add(new Object[]{Money.toDecimal(amounts.employeeSsf()), Money.toDecimal(amounts.employerSsf()),
+                    Money.toDecimal(amounts.incomeTax()), Money.toDecimal(amounts.netSalary()),
+                    Money.toDecimal(amounts.totalEmployerCost()), stored.id()});
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+        }
+        return new JobTracker.ChunkResult(chunk.size(), updates.size(), chunk.get(chunk.size() - 1).id());
+    }
+    
+    private record StoredPayroll(long id, long businessId, LocalDate payrollMonth, long grossSalary,
+                                 long employeeSsf, long employerSsf, long incomeTax, long netSalary,
+                                 long totalEmployerCost, boolean paid) {
+        
+        boolean differsFrom(PayrollService.PayrollAmounts amounts) {
+            return employeeSsf != amounts.employeeSsf() || employerSsf != amounts.employerSsf()
+                    || incomeTax != amounts.incomeTax() || netSalary != amounts.netSalary()
+                    || totalEmployerCost != amounts.totalEmployerCost();
+        }
+    }
+    
+    // Running totals of what the job changed, in qəpik; only touched on the job thread
+    private static final class Diff {
+        private long scanned;
+        private long changed;
+        private long paidDiffering;
+        private long employeeSsf;
+        private long employerSsf;
+        private long incomeTax;
+        private long netSalary;
+        private long totalEmployerCost;
+        private final Set<Long> businesses = new HashSet<>();
+        
+        void add(StoredPayroll stored, PayrollService.PayrollAmounts amounts) {
+            changed++;
+            businesses.add(stored.businessId());
+            employeeSsf += amounts.employeeSsf() - stored.employeeSsf();
+            employerSsf += amounts.employerSsf() - stored.employerSsf();
+            incomeTax += amounts.incomeTax() - stored.incomeTax();
+            netSalary += amounts.netSalary() - stored.netSalary();
+            totalEmployerCost += amounts.totalEmployerCost() - stored.totalEmployerCost();
+        }
+        
+        String summary(LocalDate month) {
+            return "Recalculated " + scanned + " payroll rows from " + month + ": " + changed + " changed across "
+                    + businesses.size() + " businesses, " + paidDiffering + " paid rows differ and were left as is; "
+                    + "employee SSF " + signed(employeeSsf) + ", employer SSF " + signed(employerSsf)
+                    + ", income tax " + signed(incomeTax) + ", net salary " + signed(netSalary)
+                    + ", employer cost " + signed(totalEmployerCost) + " AZN";
+        }
+        
+        private static String signed(long minor) {
+            return (minor > 0 ? "+" : "") + Money.toDecimal(minor).toPlainString();
+        }
+    }
+}
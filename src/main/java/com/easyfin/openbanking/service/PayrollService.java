@@ -1,98 +1,423 @@
 package com.easyfin.openbanking.service;
 
+import com.easyfin.openbanking.dto.JobProgressDTO;
 import com.easyfin.openbanking.dto.PayrollDTO;
+import com.easyfin.openbanking.dto.PayrollHistoryPageDTO;
+import com.easyfin.openbanking.model.Business;
 import com.easyfin.openbanking.model.Employee;
 import com.easyfin.openbanking.model.Payroll;
+import com.easyfin.openbanking.model.PayrollMonthlyAggregate;
+import com.easyfin.openbanking.repository.EmployeeRepository;
+import com.easyfin.openbanking.repository.PayrollMonthlyAggregateRepository;
 import com.easyfin.openbanking.repository.PayrollRepository;
+import com.easyfin.openbanking.util.KeysetCursor;
+import com.easyfin.openbanking.util.Money;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 /**
  * Service for payroll processing
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class PayrollService {
     
+    public static final String JOB_TYPE = "PAYROLL_RUN";
+    
+    // Employees per chunk; each chunk commits on its own, a multiple of hibernate.jdbc.batch_size
+    private static final int CHUNK_SIZE = 500;
+    
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+    
+    private static final LocalDate MAX_MONTH = LocalDate.of(9999, 12, 1);
+    
+    private static final String ADD_TO_AGGREGATES_SQL =
+            "UPDATE payroll_monthly_aggregates SET employee_count = employee_count + ?, " +
+            "gross_salary = gross_salary + ?, employee_ssf = employee_ssf + ?, employer_ssf = employer_ssf + ?, " +
+            "income_tax = income_tax + ?, net_salary = net_salary + ?, total_employer_cost = total_employer_cost + ?, " +
+            "updated_at = ? WHERE business_id = ? AND payroll_month = ?";
+    
+    // Aggregates summed from a payroll run stay as they were run
+    private static final String AGGREGATE_MONTHS_SQL =
+            "SELECT payroll_month FROM payroll_monthly_aggregates " +
+            "WHERE business_id = ? AND payroll_month >= ? AND from_payroll_run = FALSE";
+    
+    private static final String RUN_TOTALS_SQL =
+            "SELECT COUNT(*), SUM(gross_salary), SUM(employee_ssf_contribution), SUM(employer_ssf_contribution), " +
+            "SUM(income_tax), SUM(net_salary), SUM(total_employer_cost) " +
+            "FROM payroll WHERE business_id = ? AND payroll_month = ?";
+    
+    // Plain JDBC so a pending change to the same managed entity isn't auto-flushed before it's read
+    private static final String STORED_ACTIVE_SALARY_SQL =
+            "SELECT monthly_salary FROM employees WHERE id = ? AND is_active = TRUE";
+    
     private final PayrollRepository payrollRepository;
+    private final PayrollMonthlyAggregateRepository aggregateRepository;
+    private final EmployeeRepository employeeRepository;
+    private final PayrollRateService payrollRateService;
+    private final JobTracker jobTracker;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
     
-    private static final BigDecimal EMPLOYEE_SSF_RATE = new BigDecimal("0.03"); // 3%
-    private static final BigDecimal EMPLOYER_SSF_RATE = new BigDecimal("0.22"); // 22%
-    private static final BigDecimal INCOME_TAX_RATE = new BigDecimal("0.14"); // 14% (simplified)
+    private final Set<Long> runningPayrolls = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Object> aggregateLocks = new ConcurrentHashMap<>();
     
     /**
-     * Calculate payroll for an employee
+     * Payroll figures for one employee-month, in qəpik
      */
-    public PayrollDTO calculatePayroll(Employee employee, LocalDate payrollMonth) {
-        BigDecimal grossSalary = employee.getMonthlySalary();
+    public record PayrollAmounts(long grossSalary, long employeeSsf, long employerSsf,
+                                 long incomeTax, long netSalary, long totalEmployerCost) {
+    }
+    
+    /**
+     * Calculate payroll figures for a monthly salary under the rates in force that month
+     */
+    public PayrollAmounts calculateAmounts(BigDecimal monthlySalary, LocalDate payrollMonth) {
+        return calculateAmounts(Money.toMinor(monthlySalary), payrollMonth);
+    }
+    
+    /**
+     * Same as above for a gross salary already in qəpik
+     */
+    public PayrollAmounts calculateAmounts(long grossSalary, LocalDate payrollMonth) {
+        PayrollRateTable.Rates rates = payrollRateService.ratesFor(payrollMonth);
         
         // Calculate SSF contributions
-        BigDecimal employeeSsf = grossSalary.multiply(EMPLOYEE_SSF_RATE).setScale(2, RoundingMode.HALF_UP);
-        BigDecimal employerSsf = grossSalary.multiply(EMPLOYER_SSF_RATE).setScale(2, RoundingMode.HALF_UP);
+        long employeeSsf = rates.employeeSsf().apply(grossSalary);
+        long employerSsf = rates.employerSsf().apply(grossSalary);
         
         // Calculate income tax (on gross salary minus employee SSF)
-        BigDecimal taxableIncome = grossSalary.subtract(employeeSsf);
-        BigDecimal incomeTax = taxableIncome.multiply(INCOME_TAX_RATE).setScale(2, RoundingMode.HALF_UP);
+        long taxableIncome = grossSalary - employeeSsf;
+        long incomeTax = rates.incomeTax().apply(taxableIncome);
         
         // Calculate net salary
-        BigDecimal netSalary = grossSalary.subtract(employeeSsf).subtract(incomeTax);
+        long netSalary = grossSalary - employeeSsf - incomeTax;
         
         // Total cost to employer
-        BigDecimal totalEmployerCost = grossSalary.add(employerSsf);
+        long totalEmployerCost = grossSalary + employerSsf;
+        
+        return new PayrollAmounts(grossSalary, employeeSsf, employerSsf, incomeTax, netSalary, totalEmployerCost);
+    }
+    
+    /**
+     * Calculate payroll for an employee
+     */
+    public PayrollDTO calculatePayroll(Employee employee, LocalDate payrollMonth) {
+        PayrollAmounts amounts = calculateAmounts(employee.getMonthlySalary(), payrollMonth);
         
         PayrollDTO dto = new PayrollDTO();
         dto.setEmployeeId(employee.getId());
         dto.setEmployeeName(employee.getFullName());
         dto.setPayrollMonth(payrollMonth);
-        dto.setGrossSalary(grossSalary);
-        dto.setEmployeeSsfContribution(employeeSsf);
-        dto.setEmployerSsfContribution(employerSsf);
-        dto.setIncomeTax(incomeTax);
-        dto.setNetSalary(netSalary);
-        dto.setTotalEmployerCost(totalEmployerCost);
+        dto.setGrossSalary(Money.toDecimal(amounts.grossSalary()));
+        dto.setEmployeeSsfContribution(Money.toDecimal(amounts.employeeSsf()));
+        dto.setEmployerSsfContribution(Money.toDecimal(amounts.employerSsf()));
+        dto.setIncomeTax(Money.toDecimal(amounts.incomeTax()));
+        dto.setNetSalary(Money.toDecimal(amounts.netSalary()));
+        dto.setTotalEmployerCost(Money.toDecimal(amounts.totalEmployerCost()));
         dto.setIsPaid(false);
         
         return dto;
     }
     
     /**
-     * Process payroll for month
+     * Payroll totals of a business for a month, built on first use: from the month's payroll rows if it
+     * has been run, otherwise from the active employees
      */
-    public Payroll processPayroll(Payroll payroll) {
-        return payrollRepository.save(payroll);
+    public PayrollMonthlyAggregate getMonthlyAggregate(Long businessId, LocalDate payrollMonth) {
+        LocalDate month = payrollMonth.withDayOfMonth(1);
+        Optional<PayrollMonthlyAggregate> aggregate = aggregateRepository.findByBusinessIdAndPayrollMonth(businessId, month);
+        if (aggregate.isPresent()) {
+            return aggregate.get();
+        }
+        // Built under the lock employee changes take, so none falls between the read and the insert
+        synchronized (aggregateLock(businessId)) {
+            return transactionTemplate.execute(status -> aggregateRepository
+                    .findByBusinessIdAndPayrollMonth(businessId, month)
+                    .orElseGet(() -> buildAggregate(businessId, month)));
+        }
     }
     
     /**
-     * Get payroll history
+     * Drop every business's aggregates from a month on, each under its business's aggregate lock, so a
+     * build priced under the previous rates or payroll rows can't be inserted after the delete. They are
+     * rebuilt on next read.
      */
-    public List<PayrollDTO> getPayrollHistory(Long businessId) {
-        return payrollRepository.findByBusinessIdOrderByPayrollMonthDesc(businessId)
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public int dropAggregatesFrom(LocalDate fromMonth) {
+        LocalDate month = fromMonth.withDayOfMonth(1);
+        // A build in flight holds its business's lock, so its business is already in aggregateLocks
+        Set<Long> businessIds = new HashSet<>(aggregateRepository.findBusinessIdsFromMonth(month));
+        businessIds.addAll(aggregateLocks.keySet());
+        int dropped = 0;
+        for (Long businessId : businessIds) {
+            synchronized (aggregateLock(businessId)) {
+                Integer deleted = transactionTemplate.execute(status -> aggregateRepository.deleteFromMonth(businessId, month));
+                dropped += deleted != null ? deleted : 0;
+            }
+        }
+        return dropped;
     }
     
-    private PayrollDTO convertToDTO(Payroll payroll) {
-        PayrollDTO dto = new PayrollDTO();
-        dto.setId(payroll.getId());
-        dto.setEmployeeId(payroll.getEmployee().getId());
-        dto.setEmployeeName(payroll.getEmployee().getFullName());
-        dto.setPayrollMonth(payroll.getPayrollMonth());
-        dto.setGrossSalary(payroll.getGrossSalary());
-        dto.setEmployeeSsfContribution(payroll.getEmployeeSsfContribution());
-        dto.setEmployerSsfContribution(payroll.getEmployerSsfContribution());
-        dto.setIncomeTax(payroll.getIncomeTax());
-        dto.setNetSalary(payroll.getNetSalary());
-        dto.setTotalEmployerCost(payroll.getTotalEmployerCost());
-        dto.setIsPaid(payroll.getIsPaid());
-        dto.setPaidDate(payroll.getPaidDate());
-        return dto;
+    /**
+     * Drop aggregates priced under the rates a new version replaces
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRatesChanged(PayrollRateService.RatesChangedEvent event) {
+        int dropped = dropAggregatesFrom(event.effectiveFrom());
+        log.info("{} monthly payroll aggregates from {} dropped for new rates", dropped, event.effectiveFrom());
+    }
+    
+    /**
+     * Apply an employee write (hire, salary change, deactivation) and move the aggregates of this
+     * and later months by the payroll difference it makes, in one transaction
+     */
+    public Employee changeEmployee(Long businessId, Long employeeId, Supplier<Employee> write) {
+        synchronized (aggregateLock(businessId)) {
+            return transactionTemplate.execute(status -> {
+                BigDecimal salaryBefore = employeeId != null
+                        ? jdbcTemplate.query(STORED_ACTIVE_SALARY_SQL, (rs, row) -> rs.getBigDecimal(1), employeeId)
+                                .stream().findFirst().orElse(null)
+                        : null;
+                Employee saved = write.get();
+                BigDecimal salaryAfter = Boolean.TRUE.equals(saved.getIsActive()) ? saved.getMonthlySalary() : null;
+                moveAggregates(businessId, salaryBefore, salaryAfter);
+                eventPublisher.publishEvent(new EmployeesChangedEvent(businessId));
+                return saved;
+            });
+        }
+    }
+    
+    /**
+     * Start a background payroll run for every active employee of a business. Fails straight away
+     * if the business already has a run in progress.
+     */
+    public JobProgressDTO startPayrollRun(Long businessId, LocalDate payrollMonth) {
+        LocalDate month = payrollMonth.withDayOfMonth(1);
+        claimRun(businessId);
+        try {
+            return jobTracker.submit(JOB_TYPE, businessId, job -> {
+                try {
+                    return run(job, businessId, month);
+                } finally {
+                    runningPayrolls.remove(businessId);
+                }
+            });
+        } catch (RuntimeException e) {
+            runningPayrolls.remove(businessId);
+            throw e;
+        }
+    }
+    
+    /**
+     * Run payroll for a month on the calling thread
+     */
+    public String runPayroll(Long businessId, LocalDate payrollMonth) {
+        claimRun(businessId);
+        try {
+            return run(null, businessId, payrollMonth.withDayOfMonth(1));
+        } finally {
+            runningPayrolls.remove(businessId);
+        }
+    }
+    
+    private void claimRun(Long businessId) {
+        if (!runningPayrolls.add(businessId)) {
+            throw new IllegalStateException("A payroll run is already in progress for business " + businessId);
+        }
+    }
+    
+    // Idempotent on (employee, payrollMonth): employees that already have the month are skipped
+    private String run(JobTracker.Job job, Long businessId, LocalDate month) {
+        if (job != null) {
+            job.setTotal(employeeRepository.countByBusinessIdAndIsActiveTrue(businessId));
+        }
+        
+        long started = System.nanoTime();
+        JobTracker.ChunkResult totals = jobTracker.runChunked(job, afterId -> payrollChunk(businessId, month, afterId));
+        long processed = totals.processed();
+        long created = totals.updated();
+        
+        refreshMonthlyAggregate(businessId, month);
+        
+        long elapsedMillis = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+        long perSecond = Math.round(processed * 1000.0 / elapsedMillis);
+        log.info("Payroll run for business {} month {}: {} created, {} already present, {} ms ({} employees/sec)",
+                businessId, month, created, processed - created, elapsedMillis, perSecond);
+        return "Created " + created + " payroll records for " + month + " (" + (processed - created)
+                + " already present) in " + elapsedMillis + " ms, " + perSecond + " employees/sec";
+    }
+    
+    private JobTracker.ChunkResult payrollChunk(Long businessId, LocalDate month, long afterId) {
+        List<Employee> chunk = employeeRepository.findActiveChunk(businessId, afterId, Limit.of(CHUNK_SIZE));
+        if (chunk.isEmpty()) {
+            return JobTracker.ChunkResult.empty(afterId);
+        }
+        Set<Long> existing = new HashSet<>(payrollRepository.findEmployeeIdsWithPayroll(
+                month, chunk.stream().map(Employee::getId).toList()));
+        
+        PayrollDTO[] calculated = new PayrollDTO[chunk.size()];
+        IntStream.range(0, chunk.size()).parallel().forEach(i -> {
+            if (!existing.contains(chunk.get(i).getId())) {
+                calculated[i] = calculatePayroll(chunk.get(i), month);
+            }
+        });
+        
+        Business business = entityManager.getReference(Business.class, businessId);
+        List<Payroll> payrolls = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            if (calculated[i] != null) {
+                payrolls.add(toEntity(business, chunk.get(i), calculated[i]));
+            }
+        }
+        
+        // Inserts go out as JDBC batches; clearing keeps the persistence context one chunk deep
+        payrollRepository.saveAll(payrolls);
+        entityManager.flush();
+        entityManager.clear();
+        return new JobTracker.ChunkResult(chunk.size(), payrolls.size(), chunk.get(chunk.size() - 1).getId());
+    }
+    
+    // Replaces whatever the month held, projected or from an earlier run, with the totals just run
+    private void refreshMonthlyAggregate(Long businessId, LocalDate month) {
+        synchronized (aggregateLock(businessId)) {
+            transactionTemplate.executeWithoutResult(status -> {
+                aggregateRepository.deleteMonth(businessId, month);
+                buildAggregate(businessId, month);
+            });
+        }
+    }
+    
+    private PayrollMonthlyAggregate buildAggregate(Long businessId, LocalDate month) {
+        PayrollMonthlyAggregate run = jdbcTemplate.queryForObject(RUN_TOTALS_SQL, (rs, row) -> rs.getInt(1) == 0 ? null
+                : new PayrollMonthlyAggregate(null, businessId, month, rs.getInt(1),
+                        rs.getBigDecimal(2), rs.getBigDecimal(3), rs.getBigDecimal(4), rs.getBigDecimal(5),
+                        rs.getBigDecimal(6), rs.getBigDecimal(7), true, LocalDateTime.now()),
+                businessId, month);
+        if (run != null) {
+            return aggregateRepository.save(run);
+        }
+        long[] totals = new long[6];
+        List<BigDecimal> salaries = employeeRepository.findActiveSalaries(businessId);
+        for (BigDecimal salary : salaries) {
+            addAmounts(totals, calculateAmounts(salary, month), 1);
+        }
+        return aggregateRepository.save(new PayrollMonthlyAggregate(null, businessId, month, salaries.size(),
+                Money.toDecimal(totals[0]), Money.toDecimal(totals[1]), Money.toDecimal(totals[2]),
+                Money.toDecimal(totals[3]), Money.toDecimal(totals[4]), Money.toDecimal(totals[5]),
+                false, LocalDateTime.now()));
+    }
+    
+    // Months not built yet pick the change up when they are; each projected month moves under its own rates
+    private void moveAggregates(Long businessId, BigDecimal salaryBefore, BigDecimal salaryAfter) {
+        if (Objects.equals(salaryBefore, salaryAfter)) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> updates = new ArrayList<>();
+        for (LocalDate month : jdbcTemplate.queryForList(AGGREGATE_MONTHS_SQL, LocalDate.class,
+                businessId, LocalDate.now().withDayOfMonth(1))) {
+            long[] delta = new long[6];
+            int countDelta = 0;
+            if (salaryBefore != null) {
+                addAmounts(delta, calculateAmounts(salaryBefore, month), -1);
+                countDelta--;
+            }
+            if (salaryAfter != null) {
+                addAmounts(delta, calculateAmounts(salaryAfter, month), 1);
+                countDelta++;
+            }
+            updates.add(new Object[]{countDelta,
+                    Money.toDecimal(delta[0]), Money.toDecimal(delta[1]), Money.toDecimal(delta[2]),
+                    Money.toDecimal(delta[3]), Money.toDecimal(delta[4]), Money.toDecimal(delta[5]),
+                    now, businessId, month});
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADD_TO_AGGREGATES_SQL, updates);
+        }
+    }
+    
+    // Gross, employee SSF, employer SSF, income tax, net, employer cost
+    private static void addAmounts(long[] totals, PayrollAmounts amounts, int sign) {
+        totals[0] += sign * amounts.grossSalary();
+        totals[1] += sign * amounts.employeeSsf();
+        totals[2] += sign * amounts.employerSsf();
+        totals[3] += sign * amounts.incomeTax();
+        totals[4] += sign * amounts.netSalary();
+        totals[5] += sign * amounts.totalEmployerCost();
+    }
+    
+    private Object aggregateLock(Long businessId) {
+        return aggregateLocks.computeIfAbsent(businessId, id -> new Object());
+    }
+    
+    private Payroll toEntity(Business business, Employee employee, PayrollDTO calculated) {
+        Payroll payroll = new Payroll();
+        payroll.setBusiness(business);
+        payroll.setEmployee(employee);
+        payroll.setPayrollMonth(calculated.getPayrollMonth());
+        payroll.setGrossSalary(calculated.getGrossSalary());
+        payroll.setEmployeeSsfContribution(calculated.getEmployeeSsfContribution());
+        payroll.setEmployerSsfContribution(calculated.getEmployerSsfContribution());
+        payroll.setIncomeTax(calculated.getIncomeTax());
+        payroll.setNetSalary(calculated.getNetSalary());
+        payroll.setTotalEmployerCost(calculated.getTotalEmployerCost());
+        payroll.setIsPaid(false);
+        return payroll;
+    }
+    
+    /**
+     * Get one page of payroll history, newest month first, keyed on (payrollMonth, id)
+     */
+    public PayrollHistoryPageDTO getPayrollHistory(Long businessId, String cursor, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        
+        KeysetCursor<LocalDate> position = KeysetCursor.decode(cursor, LocalDate::parse);
+        LocalDate cursorMonth = position != null ? position.key() : MAX_MONTH;
+        long cursorId = position != null ? position.id() : Long.MAX_VALUE;
+        
+        List<PayrollDTO> rows = payrollRepository.findHistoryPageBefore(
+                businessId, cursorMonth, cursorId, Limit.of(pageSize + 1));
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+        
+        String nextCursor = null;
+        if (hasMore) {
+            PayrollDTO last = rows.get(rows.size() - 1);
+            nextCursor = KeysetCursor.encode(last.getPayrollMonth(), last.getId());
+        }
+        return new PayrollHistoryPageDTO(rows, nextCursor);
+    }
+    
+    /**
+     * Published when an employee of the business is hired, changed or deactivated
+     */
+    public record EmployeesChangedEvent(Long businessId) {
     }
 }
-
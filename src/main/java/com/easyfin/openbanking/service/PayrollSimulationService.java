@@ -0,0 +1,253 @@
+package com.easyfin.openbanking.service;
+
+import com.easyfin.openbanking.dto.PayrollSimulationDTO;
+import com.easyfin.openbanking.dto.PayrollSimulationRequestDTO;
+import com.easyfin.openbanking.repository.EmployeeRepository;
+import com.easyfin.openbanking.util.Money;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * What-if payroll for salary changes and hires. Active salaries are cached per business as a
+ * qəpik snapshot and baseline totals per month alongside it; a scenario only prices the employees
+ * it touches, so evaluating it never reads employees and hundreds fit in one request.
+ */
+@Service
+@RequiredArgsConstructor
+public class PayrollSimulationService {
+    
+    public static final int MAX_SCENARIOS = 1000;
+    
+    private static final int MAX_CACHED_SNAPSHOTS = 1000;
+    
+    private static final int YEAR_MONTHS = 12;
+    
+    // Totals slots: headcount, gross, employee SSF, employer SSF, income tax, net, employer cost
+    private static final int TOTALS = 7;
+    
+    private final PayrollService payrollService;
+    private final PayrollRateService payrollRateService;
+    private final EmployeeRepository employeeRepository;
+    
+    // An evicted or expired snapshot is just rebuilt on next use
+    private final Map<Long, Snapshot> snapshots = Caffeine.newBuilder()
+            .maximumSize(MAX_CACHED_SNAPSHOTS)
+            .expireAfterWrite(Duration.ofDays(1))
+            .<Long, Snapshot>build()
+            .asMap();
+    // Outlives any snapshot built before the change, so none of those can be served once it expires
+    private final Map<Long, LocalDateTime> lastEmployeeChange = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofDays(2))
+            .<Long, LocalDateTime>build()
+            .asMap();
+    
+    /**
+     * Evaluate scenarios against the active employees, for the month and the twelve months from it
+     */
+    public PayrollSimulationDTO simulate(Long businessId, PayrollSimulationRequestDTO request) {
+        List<PayrollSimulationRequestDTO.Scenario> scenarios = request.getScenarios();
+        if (scenarios == null || scenarios.isEmpty()) {
+            throw new IllegalArgumentException("At least one scenario is required");
+        }
+        if (scenarios.size() > MAX_SCENARIOS) {
+            throw new IllegalArgumentException("At most " + MAX_SCENARIOS + " scenarios per request");
+        }
+        
+        long started = System.nanoTime();
+        LocalDate month = (request.getMonth() != null ? request.getMonth() : LocalDate.now()).withDayOfMonth(1);
+        LocalDate[] months = new LocalDate[YEAR_MONTHS];
+        for (int m = 0; m < YEAR_MONTHS; m++) {
+            months[m] = month.plusMonths(m);
+        }
+        
+        Snapshot snapshot = snapshot(businessId);
+        PayrollRateTable rates = payrollRateService.currentTable();
+        long[] baseMonth = snapshot.totals(month, rates, payrollService);
+        long[] baseYear = new long[TOTALS];
+        for (LocalDate m : months) {
+            add(baseYear, snapshot.totals(m, rates, payrollService), 1);
+        }
+        baseYear[0] = baseMonth[0]; // Headcount, not employee-months
+        
+        List<PayrollSimulationDTO.ScenarioResult> results = new ArrayList<>(scenarios.size());
+        for (int s = 0; s < scenarios.size(); s++) {
+            PayrollSimulationRequestDTO.Scenario scenario = scenarios.get(s);
+            long[] monthDelta = new long[TOTALS];
+            long[] yearDelta = new long[TOTALS];
+            if (scenario.getSalaryChanges() != null) {
+                Set<Long> changed = new HashSet<>();
+                for (PayrollSimulationRequestDTO.SalaryChange change : scenario.getSalaryChanges()) {
+                    applySalaryChange(snapshot, change, changed, months, monthDelta, yearDelta);
+                }
+            }
+            if (scenario.getHires() != null) {
+                for (PayrollSimulationRequestDTO.Hire hire : scenario.getHires()) {
+                    applyHire(hire, months, monthDelta, yearDelta);
+                }
+            }
+            
+            long[] monthAfter = baseMonth.clone();
+            add(monthAfter, monthDelta, 1);
+            long[] yearAfter = baseYear.clone();
+            add(yearAfter, yearDelta, 1);
+            String name = scenario.getName() != null ? scenario.getName() : "scenario " + (s + 1);
+            results.add(new PayrollSimulationDTO.ScenarioResult(name,
+                    toDTO(monthAfter), toDTO(monthDelta), toDTO(yearAfter), toDTO(yearDelta)));
+        }
+        
+        return new PayrollSimulationDTO(month, toDTO(baseMonth), toDTO(baseYear), results,
+                (System.nanoTime() - started) / 1_000);
+    }
+    
+    /**
+     * Drop the cached snapshot once an employee change commits
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmployeesChanged(PayrollService.EmployeesChangedEvent event) {
+        LocalDateTime changedAt = LocalDateTime.now();
+        lastEmployeeChange.merge(event.businessId(), changedAt,
+                (previous, current) -> previous.isAfter(current) ? previous : current);
+        snapshots.remove(event.businessId());
+    }
+    
+    private Snapshot snapshot(Long businessId) {
+        Snapshot cached = snapshots.get(businessId);
+        LocalDateTime lastChange = lastEmployeeChange.get(businessId);
+        if (cached != null && (lastChange == null || cached.builtAt().isAfter(lastChange))) {
+            return cached;
+        }
+        
+        // Taken before reading, so a change committed meanwhile leaves this snapshot stale
+        LocalDateTime builtAt = LocalDateTime.now();
+        List<Object[]> rows = employeeRepository.findActiveIdsAndSalaries(businessId);
+        long[] ids = new long[rows.size()];
+        long[] salaries = new long[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            ids[i] = (Long) rows.get(i)[0];
+            salaries[i] = Money.toMinor((BigDecimal) rows.get(i)[1]);
+        }
+        Snapshot built = new Snapshot(ids, salaries, builtAt, new ConcurrentHashMap<>());
+        snapshots.put(businessId, built);
+        return built;
+    }
+    
+    private void applySalaryChange(Snapshot snapshot, PayrollSimulationRequestDTO.SalaryChange change, Set<Long> changed,
+                                   LocalDate[] months, long[] monthDelta, long[] yearDelta) {
+        if (change.getEmployeeId() == null) {
+            throw new IllegalArgumentException("Salary change needs an employeeId");
+        }
+        if (!changed.add(change.getEmployeeId())) {
+            throw new IllegalArgumentException("Employee " + change.getEmployeeId() + " is changed twice in one scenario");
+        }
+        int index = Arrays.binarySearch(snapshot.ids(), change.getEmployeeId());
+        if (index < 0) {
+            throw new IllegalArgumentException("Employee " + change.getEmployeeId() + " is not an active employee");
+        }
+        long current = snapshot.salaries()[index];
+        long target;
+        if (change.getMonthlySalary() != null && change.getChangePercent() == null) {
+            target = Money.toMinor(change.getMonthlySalary());
+        } else if (change.getChangePercent() != null && change.getMonthlySalary() == null) {
+            if (change.getChangePercent() < -100) {
+                throw new IllegalArgumentException("changePercent must be at least -100");
+            }
+            target = current + Money.applyRate(current, Money.rate(change.getChangePercent() / 100));
+        } else {
+            throw new IllegalArgumentException("Salary change needs exactly one of monthlySalary or changePercent");
+        }
+        if (target < 0) {
+            throw new IllegalArgumentException("Salary must not be negative");
+        }
+        if (target == current) {
+            return;
+        }
+        for (int m = 0; m < months.length; m++) {
+            long[] delta = new long[TOTALS];
+            addAmounts(delta, payrollService.calculateAmounts(target, months[m]), 1);
+            addAmounts(delta, payrollService.calculateAmounts(current, months[m]), -1);
+            add(yearDelta, delta, 1);
+            if (m == 0) {
+                add(monthDelta, delta, 1);
+            }
+        }
+    }
+    
+    private void applyHire(PayrollSimulationRequestDTO.Hire hire, LocalDate[] months, long[] monthDelta, long[] yearDelta) {
+        if (hire.getMonthlySalary() == null || hire.getMonthlySalary().signum() <= 0) {
+            throw new IllegalArgumentException("Hire needs a positive monthlySalary");
+        }
+        int count = hire.getCount() != null ? hire.getCount() : 1;
+        if (count < 1) {
+            throw new IllegalArgumentException("Hire count must be at least 1");
+        }
+        long salary = Money.toMinor(hire.getMonthlySalary());
+        for (int m = 0; m < months.length; m++) {
+            long[] delta = new long[TOTALS];
+            addAmounts(delta, payrollService.calculateAmounts(salary, months[m]), count);
+            add(yearDelta, delta, 1);
+            if (m == 0) {
+                add(monthDelta, delta, 1);
+            }
+        }
+        monthDelta[0] += count;
+        yearDelta[0] += count;
+    }
+    
+    private static void addAmounts(long[] totals, PayrollService.PayrollAmounts amounts, int times) {
+        totals[1] += times * amounts.grossSalary();
+        totals[2] += times * amounts.employeeSsf();
+        totals[3] += times * amounts.employerSsf();
+        totals[4] += times * amounts.incomeTax();
+        totals[5] += times * amounts.netSalary();
+        totals[6] += times * amounts.totalEmployerCost();
+    }
+    
+    private static void add(long[] totals, long[] other, int sign) {
+        for (int i = 0; i < TOTALS; i++) {
+            totals[i] += sign * other[i];
+        }
+    }
+    
+    private PayrollSimulationDTO.Totals toDTO(long[] totals) {
+        return new PayrollSimulationDTO.Totals((int) totals[0],
+                Money.toDecimal(totals[1]), Money.toDecimal(totals[2]), Money.toDecimal(totals[3]),
+                Money.toDecimal(totals[4]), Money.toDecimal(totals[5]), Money.toDecimal(totals[6]));
+    }
+    
+    /**
+     * Active salaries in id order, with baseline totals per month under the rate table they were priced with
+     */
+    private record Snapshot(long[] ids, long[] salaries, LocalDateTime builtAt, Map<LocalDate, MonthTotals> months) {
+        
+        long[] totals(LocalDate month, PayrollRateTable rates, PayrollService payrollService) {
+            MonthTotals cached = months.get(month);
+            if (cached != null && cached.rates() == rates) {
+                return cached.totals();
+            }
+            long[] totals = new long[TOTALS];
+            totals[0] = salaries.length;
+            for (long salary : salaries) {
+                addAmounts(totals, payrollService.calculateAmounts(salary, month), 1);
+            }
+            months.put(month, new MonthTotals(rates, totals));
+            return totals;
+        }
+    }
+    
+    private record MonthTotals(PayrollRateTable rates, long[] totals) {
+    }
+}
@@ -0,0 +1,271 @@
+package com.easyfin.openbanking.service;
+
+import com.easyfin.openbanking.dto.PayrollDTO;
+import com.easyfin.openbanking.model.Business;
+import com.easyfin.openbanking.repository.BusinessRepository;
+import com.easyfin.openbanking.repository.PayrollRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Per-employee payslip PDFs for a payroll month, rendered on the bounded payslip pool and
+ * streamed into a ZIP archive in record order. Only a window of rendered payslips and one chunk
+ * of payroll rows are ever held in memory, whatever the headcount.
+ */
+@Slf4j
+@Service
+public class PayslipService {
+    
+    // Payroll rows read per query
+    private static final int CHUNK_SIZE = 500;
+    
+    private static final DateTimeFormatter PERIOD_FORMAT = DateTimeFormatter.ofPattern("MMMM yyyy", Locale.ENGLISH);
+    
+    // Page layout in points on A4
+    private static final float MARGIN = 50;
+    private static final float ROW_HEIGHT = 20;
+    private static final Color BRAND_COLOR = new Color(0, 0, 204);
+    private static final Color RULE_COLOR = new Color(179, 179, 179);
+    
+    // Body rows, top to bottom: what the employee earns and keeps, then what the employer pays
+    private static final List<Line> EMPLOYEE_LINES = List.of(
+            new Line("Gross salary", PayrollDTO::getGrossSalary),
+            new Line("Employee SSF contribution", PayrollDTO::getEmployeeSsfContribution),
+            new Line("Income tax", PayrollDTO::getIncomeTax));
+    private static final Line NET_LINE = new Line("Net salary", PayrollDTO::getNetSalary);
+    private static final List<Line> EMPLOYER_LINES = List.of(
+            new Line("Employer SSF contribution", PayrollDTO::getEmployerSsfContribution),
+            new Line("Total employer cost", PayrollDTO::getTotalEmployerCost));
+    
+    // Standard 14 fonts need no embedding; each worker reuses its own instances across documents
+    private static final ThreadLocal<Fonts> FONTS = ThreadLocal.withInitial(Fonts::new);
+    
+    private final PayrollRepository payrollRepository;
+    private final BusinessRepository businessRepository;
+    private final ThreadPoolTaskExecutor payslipExecutor;
+    private final int window;
+    
+    public PayslipService(PayrollRepository payrollRepository,
+                          BusinessRepository businessRepository,
+                          @Qualifier("payslipExecutor") ThreadPoolTaskExecutor payslipExecutor,
+                          @Value("${easyfin.payslips.window:32}") int window) {
+        this.payrollRepository = payrollRepository;
+        this.businessRepository = businessRepository;
+        this.payslipExecutor = payslipExecutor;
+        this.window = Math.max(1, window);
+    }
+    
+    /**
+     * Number of payslips a month's archive will hold
+     */
+    public long countPayslips(Long businessId, LocalDate payrollMonth) {
+        return payrollRepository.countByBusinessIdAndPayrollMonth(businessId, payrollMonth.withDayOfMonth(1));
+    }
+    
+    /**
+     * Write one payslip per payroll row of the month into a ZIP archive on the stream. Rendering runs
+     * ahead of writing by at most the window; the first entry is flushed as soon as it is written.
+     */
+    public int writeArchive(Long businessId, LocalDate payrollMonth, OutputStream out) throws IOException {
+        LocalDate month = payrollMonth.withDayOfMonth(1);
+        String businessName = businessRepository.findById(businessId).map(Business::getBusinessName).orElse("");
+        Header header = new Header(printable(businessName), PERIOD_FORMAT.format(month), LocalDate.now().toString());
+        
+        long started = System.nanoTime();
+        Deque<Pending> inFlight = new ArrayDeque<>();
+        int written = 0;
+        try {
+            ZipOutputStream zip = new ZipOutputStream(out);
+            long afterId = 0;
+            while (true) {
+                List<PayrollDTO> chunk = payrollRepository.findMonthChunk(businessId, month, afterId, Limit.of(CHUNK_SIZE));
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                for (PayrollDTO payroll : chunk) {
+                    if (inFlight.size() >= window) {
+                        writeEntry(zip, inFlight.removeFirst(), written++ == 0);
+                    }
+                    inFlight.addLast(new Pending(entryName(payroll),
+                            CompletableFuture.supplyAsync(() -> render(header, payroll), payslipExecutor)));
+                }
+                afterId = chunk.get(chunk.size() - 1).getId();
+            }
+            while (!inFlight.isEmpty()) {
+                writeEntry(zip, inFlight.removeFirst(), written++ == 0);
+            }
+            zip.finish();
+        } finally {
+            // Client gone or a render failed: drop whatever is still queued
+            inFlight.forEach(pending -> pending.pdf().cancel(false));
+        }
+        
+        log.info("Streamed {} payslips for business {} month {} in {} ms",
+                written, businessId, month, (System.nanoTime() - started) / 1_000_000);
+        return written;
+    }
+    
+    private void writeEntry(ZipOutputStream zip, Pending pending, boolean first) throws IOException {
+        byte[] pdf;
+        try {
+            pdf = pending.pdf().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        zip.putNextEntry(new ZipEntry(pending.name()));
+        zip.write(pdf);
+        zip.closeEntry();
+        if (first) {
+            zip.flush(); // Get the first bytes to the client before the rest is rendered
+        }
+    }
+    
+    private byte[] render(Header header, PayrollDTO payroll) {
+        Fonts fonts = FONTS.get();
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage(PDRectangle.A4);
+            document.addPage(page);
+            float width = page.getMediaBox().getWidth();
+            float right = width - MARGIN;
+            float y = page.getMediaBox().getHeight() - MARGIN - 20;
+            
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                content.setNonStrokingColor(BRAND_COLOR);
+                text(content, fonts.bold, 24, MARGIN, y, "EASYFIN - Payslip");
+                content.setNonStrokingColor(Color.BLACK);
+                y -= 24;
+                text(content, fonts.regular, 11, MARGIN, y, header.businessName());
+                y -= 16;
+                text(content, fonts.regular, 11, MARGIN, y, "Period: " + header.period());
+                textRight(content, fonts.regular, 11, right, y, "Issued: " + header.issued());
+                y -= 12;
+                rule(content, y, width);
+                
+                y -= 24;
+                text(content, fonts.bold, 13, MARGIN, y, printable(payroll.getEmployeeName()));
+                textRight(content, fonts.regular, 11, right, y, "Employee #" + payroll.getEmployeeId());
+                
+                y -= 30;
+                for (Line line : EMPLOYEE_LINES) {
+                    row(content, fonts.regular, y, right, line, payroll);
+                    y -= ROW_HEIGHT;
+                }
+                rule(content, y + ROW_HEIGHT / 2, width);
+                y -= 6;
+                row(content, fonts.bold, y, right, NET_LINE, payroll);
+                
+                y -= 40;
+                text(content, fonts.bold, 11, MARGIN, y, "Employer contributions");
+                y -= ROW_HEIGHT;
+                for (Line line : EMPLOYER_LINES) {
+                    row(content, fonts.regular, y, right, line, payroll);
+                    y -= ROW_HEIGHT;
+                }
+                
+                content.setNonStrokingColor(RULE_COLOR);
+                text(content, fonts.regular, 8, MARGIN, MARGIN,
+                        "SSF and income tax as calculated for this payroll month. Amounts in AZN.");
+            }
+            
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(4096);
+            document.save(buffer);
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not render payslip for employee " + payroll.getEmployeeId(), e);
+        }
+    }
+    
+    private void row(PDPageContentStream content, PDFont font, float y, float right, Line line, PayrollDTO payroll)
+            throws IOException {
+        text(content, font, 11, MARGIN, y, line.label());
+        textRight(content, font, 11, right, y, formatAmount(line.amount().apply(payroll)));
+    }
+    
+    private void text(PDPageContentStream content, PDFont font, float size, float x, float y, String text)
+            throws IOException {
+        content.beginText();
+        content.setFont(font, size);
+        content.newLineAtOffset(x, y);
+        content.showText(text);
+        content.endText();
+    }
+    
+    private void textRight(PDPageContentStream content, PDFont font, float size, float right, float y, String text)
+            throws IOException {
+        text(content, font, size, right - font.getStringWidth(text) / 1000 * size, y, text);
+    }
+    
+    private void rule(PDPageContentStream content, float y, float width) throws IOException {
+        content.setStrokingColor(RULE_COLOR);
+        content.moveTo(MARGIN, y);
+        content.lineTo(width - MARGIN, y);
+        content.stroke();
+    }
+    
+    private static String formatAmount(BigDecimal amount) {
+        return String.format(Locale.US, "%,.2f AZN", amount != null ? amount : BigDecimal.ZERO);
+    }
+    
+    private static String entryName(PayrollDTO payroll) {
+        String name = printable(payroll.getEmployeeName()).replaceAll("[^A-Za-z0-9]+", "_");
+        return String.format("payslip-%s-%06d-%s.pdf",
+                payroll.getPayrollMonth().toString().substring(0, 7), payroll.getEmployeeId(), name);
+    }
+    
+    // Standard 14 fonts only cover WinAnsi: fold Azerbaijani letters to their base Latin ones
+    private static String printable(String text) {
+        if (text == null) {
+            return "";
+        }
+        String folded = Normalizer.normalize(text.replace('ə', 'e').replace('Ə', 'E').replace('ı', 'i'),
+                Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+        return folded.replaceAll("[^\\x20-\\x7E]", "?");
+    }
+    
+    private record Line(String label, Function<PayrollDTO, BigDecimal> amount) {
+    }
+    
+    private record Header(String businessName, String period, String issued) {
+    }
+    
+    private record Pending(String name, CompletableFuture<byte[]> pdf) {
+    }
+    
+    private static final class Fonts {
+        private final PDFont regular = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+        private final PDFont bold = new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD);
+    }
+}
@@ -0,0 +1,114 @@
+package com.easyfin.openbanking.service;
+
+import com.easyfin.openbanking.dto.JobProgressDTO;
+import com.easyfin.openbanking.enums.TransactionCategory;
+import com.easyfin.openbanking.model.Transaction;
+import com.easyfin.openbanking.model.TransactionDailyRollup;
+import com.easyfin.openbanking.repository.TransactionRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Background re-categorization of uncategorized and low-confidence transactions
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RecategorizationService {
+    
+    public static final String JOB_TYPE = "RECATEGORIZE";
+    public static final double DEFAULT_MIN_CONFIDENCE = 0.6;
+    
+    private static final int CHUNK_SIZE = 500;
+    
+    private final TransactionRepository transactionRepository;
+    private final CategorizationService categorizationService;
+    private final TransactionRollupService transactionRollupService;
+    private final RecurringPaymentService recurringPaymentService;
+    private final JobTracker jobTracker;
+    private final EntityManager entityManager;
+    
+    /**
+     * Start a job that re-runs keyword categorization over every transaction that is
+     * uncategorized or below the confidence threshold
+     */
+    public JobProgressDTO startRecategorization(Long businessId, double minConfidence) {
+        if (minConfidence < 0 || minConfidence > 1) {
+            throw new IllegalArgumentException("minConfidence must be between 0 and 1");
+        }
+        return jobTracker.submit(JOB_TYPE, businessId, job -> run(job, businessId, minConfidence));
+    }
+    
+    private String run(JobTracker.Job job, Long businessId, double minConfidence) {
+        job.setTotal(transactionRepository.countRecategorizationCandidates(
+                businessId, TransactionCategory.UNCATEGORIZED, minConfidence));
+        
+        JobTracker.ChunkResult totals = jobTracker.runChunked(job,
+                afterId -> recategorizeChunk(businessId, minConfidence, afterId));
+        
+        log.info("Recategorized {} of {} candidate transactions for business {}",
+                totals.updated(), totals.processed(), businessId);
+        return "Recategorized " + totals.updated() + " of " + totals.processed() + " candidate transactions";
+    }
+    
+    private JobTracker.ChunkResult recategorizeChunk(Long businessId, double minConfidence, long afterId) {
+        List<Transaction> chunk = transactionRepository.findRecategorizationChunk(
+                businessId, TransactionCategory.UNCATEGORIZED, minConfidence, afterId, Limit.of(CHUNK_SIZE));
+        if (chunk.isEmpty()) {
+            return JobTracker.ChunkResult.empty(afterId);
+        }
+        
+        Map<String, TransactionCategory> overrides = categorizationService.overridesFor(businessId);
+        CategorizationService.Resolution[] resolved = new CategorizationService.Resolution[chunk.size()];
+        IntStream.range(0, chunk.size()).parallel().forEach(i -> resolved[i] = categorizationService.resolve(
+                chunk.get(i).getMerchantName(), chunk.get(i).getDescription(), overrides));
+        
+        TransactionRollupService.PendingDeltas rollupDeltas = new TransactionRollupService.PendingDeltas();
+        Transaction flipped = null;
+        int updated = 0;
+        for (int i = 0; i < chunk.size(); i++) {
+            if (resolved[i].category() == null) {
+                continue; // Nothing matched, nothing better to offer than what is stored
+            }
+            Transaction transaction = chunk.get(i);
+            TransactionDailyRollup.Key before = TransactionDailyRollup.Key.of(transaction);
+            BigDecimal amountBefore = transaction.getAmount();
+            TransactionCategory categoryBefore = transaction.getCategory();
+            Double confidenceBefore = transaction.getCategorizationConfidence();
+            Boolean incomeBefore = transaction.getIsIncome();
+            
+            // An inferred direction flips with the category; the rollup move carries it across directions
+            categorizationService.applyResult(transaction, resolved[i]);
+            
+            if (transaction.getCategory() != categoryBefore
+                    || !Objects.equals(transaction.getIsIncome(), incomeBefore)
+                    || !Objects.equals(transaction.getCategorizationConfidence(), confidenceBefore)) {
+                rollupDeltas.move(before, amountBefore, transaction);
+                updated++;
+            }
+            if (!Objects.equals(transaction.getIsIncome(), incomeBefore)
+                    && CategorizationService.normalizeMerchant(transaction.getMerchantName()) != null) {
+                flipped = transaction;
+            }
+        }
+        
+        // Dirty rows go out as JDBC-batched updates, then the rollup moves once per touched bucket
+        entityManager.flush();
+        entityManager.clear();
+        transactionRollupService.apply(rollupDeltas);
+        if (flipped != null) {
+            recurringPaymentService.onRemoved(flipped); // Once per chunk; it flags the whole business
+        }
+        
+        return new JobTracker.ChunkResult(chunk.size(), updated, chunk.get(chunk.size() - 1).getId());
+    }
+}
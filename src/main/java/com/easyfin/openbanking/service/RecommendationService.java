@@ -8,7 +8,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -46,9 +46,10 @@ public class RecommendationService {
         }
         
         // Cash flow warning
-        LocalDateTime endDate = LocalDateTime.now();
-        LocalDateTime startDate = endDate.minusDays(30);
-        BigDecimal expenses = transactionRepository.sumExpensesByBusinessIdAndDateRange(
+        // Last 30 whole days, today included
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(29);
+        BigDecimal expenses = transactionRepository.sumExpensesByBusinessIdAndDays(
                 business.getId(), startDate, endDate);
         
         if (expenses != null && expenses.compareTo(new BigDecimal("15000")) > 0) {
@@ -0,0 +1,347 @@
+package com.easyfin.openbanking.service;
+
+import com.easyfin.openbanking.enums.RecurrencePeriod;
+import com.easyfin.openbanking.model.Business;
+import com.easyfin.openbanking.model.RecurringPayment;
+import com.easyfin.openbanking.model.Transaction;
+import com.easyfin.openbanking.repository.BusinessRepository;
+import com.easyfin.openbanking.repository.RecurringPaymentRepository;
+import com.easyfin.openbanking.repository.TransactionRepository;
+import com.easyfin.openbanking.util.Money;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Detects recurring payments as transactions arrive. Each transaction joins the cluster of its
+ * normalized merchant, direction and amount; the gaps between a cluster's payments decide whether
+ * it repeats weekly or monthly and when it is next due. History is only replayed to rebuild.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RecurringPaymentService {
+    
+    // Amounts within 10% of a cluster's mean, and at least 1 AZN, join it
+    private static final long AMOUNT_TOLERANCE_PPM = 100_000;
+    private static final long MIN_AMOUNT_TOLERANCE = 100;
+    
+    // A period needs this share of the measured gaps, and this many payments
+    private static final int PERIOD_MATCH_PERCENT = 75;
+    private static final int MIN_MONTHLY_OCCURRENCES = 2;
+    private static final int MIN_WEEKLY_OCCURRENCES = 3;
+    
+    // Below this many payments a monthly item must also keep a near-constant amount (rent, subscriptions)
+    private static final int SETTLED_MONTHLY_OCCURRENCES = 3;
+    private static final long CONSTANT_AMOUNT_PPM = 20_000;
+    
+    // Clusters kept per merchant and direction; variable spending recycles the stalest one
+    private static final int MAX_CLUSTERS_PER_MERCHANT = 4;
+    
+    // Merchant keys per IN list
+    private static final int LOOKUP_CHUNK_SIZE = 500;
+    
+    private final RecurringPaymentRepository recurringPaymentRepository;
+    private final TransactionRepository transactionRepository;
+    private final BusinessRepository businessRepository;
+    private final TransactionTemplate transactionTemplate;
+    
+    /**
+     * Add newly persisted transactions to their clusters
+     */
+    @Transactional
+    public void onInserted(Collection<Transaction> transactions) {
+        PendingOccurrences pending = new PendingOccurrences();
+        transactions.forEach(pending::add);
+        apply(pending);
+    }
+    
+    /**
+     * Add transactions collected across a large write to their clusters, one lookup per business
+     */
+    @Transactional
+    public void apply(PendingOccurrences pending) {
+        LocalDateTime now = LocalDateTime.now();
+        pending.byBusiness.forEach((businessId, occurrences) -> {
+            // Same business row lock the rollup takes, so concurrent writes for a business update clusters in turn
+            businessRepository.findForUpdate(businessId);
+            
+            List<String> keys = occurrences.stream().map(Occurrence::merchantKey).distinct().toList();
+            Map<String, List<RecurringPayment>> clusters = new HashMap<>();
+            for (int i = 0; i < keys.size(); i += LOOKUP_CHUNK_SIZE) {
+                List<String> chunk = keys.subList(i, Math.min(i + LOOKUP_CHUNK_SIZE, keys.size()));
+                for (RecurringPayment cluster : recurringPaymentRepository.findByBusinessIdAndMerchantKeyIn(businessId, chunk)) {
+                    clusters.computeIfAbsent(cluster.getMerchantKey(), k -> new ArrayList<>()).add(cluster);
+                }
+            }
+            recurringPaymentRepository.saveAll(observe(businessId, occurrences, clusters, now));
+        });
+        pending.byBusiness.clear();
+    }
+    
+    /**
+     * Flag a business's clusters for a rebuild on the next findActive. Clusters only grow as payments
+     * arrive, so one that counted a transaction now deleted or moved to the other direction is replayed.
+     */
+    @Transactional
+    public void onRemoved(Transaction transaction) {
+        if (CategorizationService.normalizeMerchant(transaction.getMerchantName()) == null) {
+            return; // Never clustered
+        }
+        Long businessId = transaction.getBusiness().getId();
+        // Under the lock a rebuild takes, so a rebuild already replaying history can't drop the flag
+        businessRepository.findForUpdate(businessId);
+        recurringPaymentRepository.markStaleByBusinessId(businessId);
+    }
+    
+    /**
+     * Recurring payments with a known period that have not lapsed by the given date, soonest due first;
+     * stale clusters are rebuilt first
+     */
+    public List<RecurringPayment> findActive(Long businessId, LocalDate asOf) {
+        if (recurringPaymentRepository.existsByBusinessIdAndStaleTrue(businessId)) {
+            transactionTemplate.executeWithoutResult(status -> {
+                // Re-checked under the apply lock, so concurrent readers rebuild once
+                businessRepository.findForUpdate(businessId);
+                if (recurringPaymentRepository.existsByBusinessIdAndStaleTrue(businessId)) {
+                    rebuild(businessId);
+                }
+            });
+        }
+        return recurringPaymentRepository.findByBusinessIdAndPeriodIsNotNull(businessId).stream()
+                .filter(p -> !p.getNextDueDate().plusDays(p.getPeriod().graceDays()).isBefore(asOf))
+                .sorted(Comparator.comparing(RecurringPayment::getNextDueDate))
+                .toList();
+    }
+    
+    /**
+     * Rebuild a business's clusters by replaying its transactions oldest first
+     */
+    @Transactional
+    public int rebuild(Long businessId) {
+        recurringPaymentRepository.deleteByBusinessId(businessId);
+        
+        List<Occurrence> occurrences = new ArrayList<>();
+        for (Object[] row : transactionRepository.findRecurringReplayByBusinessId(businessId)) {
+            Occurrence occurrence = Occurrence.of((String) row[0], (Boolean) row[1],
+                    (LocalDateTime) row[2], (BigDecimal) row[3]);
+            if (occurrence != null) {
+                occurrences.add(occurrence);
+            }
+        }
+        List<RecurringPayment> created = observe(businessId, occurrences, new HashMap<>(), LocalDateTime.now());
+        recurringPaymentRepository.saveAll(created);
+        log.debug("Rebuilt {} recurring payment clusters for business {}", created.size(), businessId);
+        return created.size();
+    }
+    
+    /**
+     * Detect recurring payments for businesses that have transactions but no clusters yet
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeMissing() {
+        for (Business business : businessRepository.findAll()) {
+            if (!recurringPaymentRepository.existsByBusinessId(business.getId())
+                    && transactionRepository.existsByBusinessId(business.getId())) {
+                transactionTemplate.executeWithoutResult(status -> rebuild(business.getId()));
+            }
+        }
+    }
+    
+    // Fold occurrences into the loaded clusters in date order; returns clusters that are new
+    private List<RecurringPayment> observe(Long businessId, List<Occurrence> occurrences,
+                                           Map<String, List<RecurringPayment>> clusters, LocalDateTime now) {
+        List<RecurringPayment> created = new ArrayList<>();
+        List<Occurrence> backdated = new ArrayList<>();
+        occurrences.sort(Comparator.comparing(Occurrence::date));
+        for (Occurrence occurrence : occurrences) {
+            List<RecurringPayment> candidates = clusters.computeIfAbsent(occurrence.merchantKey(), k -> new ArrayList<>());
+            RecurringPayment cluster = match(candidates, occurrence);
+            if (cluster != null && occurrence.date().isBefore(cluster.getFirstSeen())) {
+                backdated.add(occurrence);
+            } else {
+                fold(businessId, candidates, cluster, occurrence, created, now);
+            }
+        }
+        
+        // Payments older than their cluster's first one extend it backwards, so each gap is measured newest first
+        for (int i = backdated.size() - 1; i >= 0; i--) {
+            Occurrence occurrence = backdated.get(i);
+            List<RecurringPayment> candidates = clusters.get(occurrence.merchantKey());
+            fold(businessId, candidates, match(candidates, occurrence), occurrence, created, now);
+        }
+        return created;
+    }
+    
+    private void fold(Long businessId, List<RecurringPayment> candidates, RecurringPayment cluster,
+                      Occurrence occurrence, List<RecurringPayment> created, LocalDateTime now) {
+        if (cluster != null) {
+            record(cluster, occurrence);
+        } else {
+            cluster = recycle(candidates, occurrence);
+            if (cluster == null) {
+                cluster = new RecurringPayment();
+                cluster.setBusinessId(businessId);
+                cluster.setMerchantKey(occurrence.merchantKey());
+                candidates.add(cluster);
+                created.add(cluster);
+            }
+            start(cluster, occurrence);
+        }
+        cluster.setUpdatedAt(now);
+    }
+    
+    // Same-direction cluster whose mean is closest to the amount, if within tolerance
+    private RecurringPayment match(List<RecurringPayment> candidates, Occurrence occurrence) {
+        RecurringPayment best = null;
+        long bestDistance = Long.MAX_VALUE;
+        for (RecurringPayment candidate : candidates) {
+            if (candidate.getIsIncome() != occurrence.income()) {
+                continue;
+            }
+            long mean = Money.toMinor(candidate.getAmount());
+            long distance = Math.abs(occurrence.amount() - mean);
+            long tolerance = Math.max(MIN_AMOUNT_TOLERANCE, Money.applyRate(Math.abs(mean), AMOUNT_TOLERANCE_PPM));
+            if (distance <= tolerance && distance < bestDistance) {
+                best = candidate;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+    
+    // At the per-merchant limit, reuse the cluster least likely to matter: no period first, then oldest
+    private RecurringPayment recycle(List<RecurringPayment> candidates, Occurrence occurrence) {
+        List<RecurringPayment> sameDirection = candidates.stream()
+                .filter(c -> c.getIsIncome() == occurrence.income())
+                .toList();
+        if (sameDirection.size() < MAX_CLUSTERS_PER_MERCHANT) {
+            return null;
+        }
+        return sameDirection.stream()
+                .min(Comparator.comparing((RecurringPayment c) -> c.getPeriod() != null)
+                        .thenComparing(RecurringPayment::getLastSeen))
+                .orElseThrow();
+    }
+    
+    private void start(RecurringPayment cluster, Occurrence occurrence) {
+        cluster.setMerchantName(occurrence.merchantName());
+        cluster.setIsIncome(occurrence.income());
+        cluster.setAmount(Money.toDecimal(occurrence.amount()));
+        cluster.setMinAmount(cluster.getAmount());
+        cluster.setMaxAmount(cluster.getAmount());
+        cluster.setOccurrences(1);
+        cluster.setIntervals(0);
+        cluster.setWeeklyIntervals(0);
+        cluster.setMonthlyIntervals(0);
+        cluster.setFirstSeen(occurrence.date());
+        cluster.setLastSeen(occurrence.date());
+        cluster.setPeriod(null);
+        cluster.setNextDueDate(null);
+    }
+    
+    private void record(RecurringPayment cluster, Occurrence occurrence) {
+        int occurrences = cluster.getOccurrences() + 1;
+        long mean = Money.toMinor(cluster.getAmount());
+        cluster.setAmount(Money.toDecimal(mean + Money.divide(occurrence.amount() - mean, occurrences)));
+        cluster.setOccurrences(occurrences);
+        BigDecimal amount = Money.toDecimal(occurrence.amount());
+        cluster.setMinAmount(cluster.getMinAmount().min(amount));
+        cluster.setMaxAmount(cluster.getMaxAmount().max(amount));
+        
+        // Same-day repeats and backdated payments inside the known span add no measurable gap
+        long interval = 0;
+        if (occurrence.date().isAfter(cluster.getLastSeen())) {
+            interval = ChronoUnit.DAYS.between(cluster.getLastSeen(), occurrence.date());
+            cluster.setLastSeen(occurrence.date());
+            cluster.setMerchantName(occurrence.merchantName());
+        } else if (occurrence.date().isBefore(cluster.getFirstSeen())) {
+            interval = ChronoUnit.DAYS.between(occurrence.date(), cluster.getFirstSeen());
+            cluster.setFirstSeen(occurrence.date());
+        }
+        if (interval > 0) {
+            cluster.setIntervals(cluster.getIntervals() + 1);
+            if (RecurrencePeriod.WEEKLY.matches(interval)) {
+                cluster.setWeeklyIntervals(cluster.getWeeklyIntervals() + 1);
+            }
+            if (RecurrencePeriod.MONTHLY.matches(interval)) {
+                cluster.setMonthlyIntervals(cluster.getMonthlyIntervals() + 1);
+            }
+        }
+        
+        RecurrencePeriod period = inferPeriod(cluster);
+        cluster.setPeriod(period);
+        cluster.setNextDueDate(period != null ? period.shift(cluster.getLastSeen(), 1) : null);
+    }
+    
+    private static RecurrencePeriod inferPeriod(RecurringPayment cluster) {
+        if (cluster.getOccurrences() >= MIN_MONTHLY_OCCURRENCES
+                && agrees(cluster.getMonthlyIntervals(), cluster.getIntervals())
+                && (cluster.getOccurrences() >= SETTLED_MONTHLY_OCCURRENCES || constantAmount(cluster))) {
+            return RecurrencePeriod.MONTHLY;
+        }
+        if (cluster.getOccurrences() >= MIN_WEEKLY_OCCURRENCES
+                && agrees(cluster.getWeeklyIntervals(), cluster.getIntervals())) {
+            return RecurrencePeriod.WEEKLY;
+        }
+        return null;
+    }
+    
+    private static boolean constantAmount(RecurringPayment cluster) {
+        long min = Money.toMinor(cluster.getMinAmount());
+        long max = Money.toMinor(cluster.getMaxAmount());
+        return max - min <= Money.applyRate(Math.abs(min), CONSTANT_AMOUNT_PPM);
+    }
+    
+    private static boolean agrees(int matching, int intervals) {
+        return matching > 0 && matching * 100 >= intervals * PERIOD_MATCH_PERCENT;
+    }
+    
+    /**
+     * Transactions collected across a large write before they are clustered
+     */
+    public static final class PendingOccurrences {
+        private final Map<Long, List<Occurrence>> byBusiness = new HashMap<>();
+        
+        /**
+         * Record a newly inserted transaction
+         */
+        public void add(Transaction t) {
+            Occurrence occurrence = Occurrence.of(t.getMerchantName(), t.getIsIncome(), t.getTransactionDate(), t.getAmount());
+            if (occurrence != null) {
+                byBusiness.computeIfAbsent(t.getBusiness().getId(), id -> new ArrayList<>()).add(occurrence);
+            }
+        }
+    }
+    
+    /**
+     * One transaction as the detector sees it, amount in qəpik
+     */
+    private record Occurrence(String merchantKey, String merchantName, boolean income, LocalDate date, long amount) {
+        
+        // Null when the merchant name has nothing to cluster on
+        static Occurrence of(String merchantName, Boolean isIncome, LocalDateTime date, BigDecimal amount) {
+            String key = CategorizationService.normalizeMerchant(merchantName);
+            if (key == null) {
+                return null;
+            }
+            return new Occurrence(key, merchantName, Boolean.TRUE.equals(isIncome), date.toLocalDate(),
+                    Money.toMinor(amount));
+        }
+    }
+}
@@ -3,15 +3,14 @@ package com.easyfin.openbanking.service;
 import com.easyfin.openbanking.dto.TaxSummaryDTO;
 import com.easyfin.openbanking.enums.TaxStatus;
 import com.easyfin.openbanking.model.Business;
-import com.easyfin.openbanking.model.Transaction;
 import com.easyfin.openbanking.repository.TransactionRepository;
+import com.easyfin.openbanking.repository.TransactionTotals;
+import com.easyfin.openbanking.util.Money;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.time.LocalDateTime;
-import java.util.List;
+import java.time.LocalDate;
 
 /**
  * Service for tax calculations (Azerbaijan-specific)
@@ -22,52 +21,53 @@ public class TaxCalculationService {
     
     private final TransactionRepository transactionRepository;
     
-    private static final BigDecimal CORPORATE_TAX_RATE = new BigDecimal("0.20"); // 20%
+    private static final long CORPORATE_TAX_RATE = Money.rate("0.20"); // 20%, in parts per million
     
     /**
-     * Calculate tax summary for a business
+     * Calculate tax summary for a business over whole days [startDate, endDate]
      */
-    public TaxSummaryDTO calculateTaxSummary(Business business, LocalDateTime startDate, LocalDateTime endDate) {
-        // Get all transactions in period
-        BigDecimal totalIncome = transactionRepository.sumIncomeByBusinessIdAndDateRange(
+    public TaxSummaryDTO calculateTaxSummary(Business business, LocalDate startDate, LocalDate endDate) {
+        // Get all period totals in one pass
+        TransactionTotals totals = transactionRepository.sumTotalsByBusinessIdAndDays(
                 business.getId(), startDate, endDate);
-        BigDecimal totalExpenses = transactionRepository.sumExpensesByBusinessIdAndDateRange(
-                business.getId(), startDate, endDate);
-        BigDecimal taxDeductible = transactionRepository.sumTaxDeductibleByBusinessIdAndDateRange(
-                business.getId(), startDate, endDate);
-        
-        // Handle nulls
-        totalIncome = totalIncome != null ? totalIncome : BigDecimal.ZERO;
-        totalExpenses = totalExpenses != null ? totalExpenses : BigDecimal.ZERO;
-        taxDeductible = taxDeductible != null ? taxDeductible : BigDecimal.ZERO;
+        return calculateTaxSummary(business, totals, startDate, endDate);
+    }
+    
+    /**
+     * Same as above for period totals already loaded
+     */
+    public TaxSummaryDTO calculateTaxSummary(Business business, TransactionTotals totals,
+                                             LocalDate startDate, LocalDate endDate) {
+        long totalIncome = Money.toMinor(totals.getTotalIncome());
+        long taxDeductible = Money.toMinor(totals.getTaxDeductible());
         
         // Calculate taxable income
-        BigDecimal taxableIncome = totalIncome.subtract(taxDeductible);
+        long taxableIncome = totalIncome - taxDeductible;
         
         // Apply tax exemption for micro-entrepreneurs (75% exemption)
         Double exemptionRate = business.getTaxExemption() != null ? business.getTaxExemption() : 0.0;
-        BigDecimal taxableAfterExemption = taxableIncome.multiply(BigDecimal.valueOf(1 - exemptionRate));
+        long taxableShare = Money.rate(1 - exemptionRate);
+        long taxableAfterExemption = Money.applyRate(taxableIncome, taxableShare);
         
-        // Calculate tax liability
-        BigDecimal estimatedTaxLiability = taxableAfterExemption.multiply(CORPORATE_TAX_RATE)
-                .setScale(2, RoundingMode.HALF_UP);
+        // Calculate tax liability, folding exemption and tax rate so rounding happens once
+        long estimatedTaxLiability = Money.applyRate(taxableIncome,
+                Money.compound(taxableShare, CORPORATE_TAX_RATE));
         
         // Calculate savings from exemption
-        BigDecimal estimatedTaxSavings = taxableIncome.multiply(BigDecimal.valueOf(exemptionRate))
-                .multiply(CORPORATE_TAX_RATE)
-                .setScale(2, RoundingMode.HALF_UP);
+        long estimatedTaxSavings = Money.applyRate(taxableIncome,
+                Money.compound(Money.rate(exemptionRate), CORPORATE_TAX_RATE));
         
         TaxSummaryDTO summary = new TaxSummaryDTO();
         summary.setTaxStatus(business.getTaxStatus().getDisplayName());
         summary.setTaxExemptionRate(exemptionRate);
-        summary.setTotalIncome(totalIncome);
-        summary.setTaxableIncome(taxableAfterExemption);
-        summary.setTotalDeductions(taxDeductible);
-        summary.setEstimatedTaxLiability(estimatedTaxLiability);
-        summary.setEstimatedTaxSavings(estimatedTaxSavings);
+        summary.setTotalIncome(Money.toDecimal(totalIncome));
+        summary.setTaxableIncome(Money.toDecimal(taxableAfterExemption));
+        summary.setTotalDeductions(Money.toDecimal(taxDeductible));
+        summary.setEstimatedTaxLiability(Money.toDecimal(estimatedTaxLiability));
+        summary.setEstimatedTaxSavings(Money.toDecimal(estimatedTaxSavings));
         summary.setEmployeeTaxWithheld(BigDecimal.ZERO); // Placeholder
         summary.setSsfContributions(BigDecimal.ZERO); // Placeholder
-        summary.setPeriod(startDate.toLocalDate() + " to " + endDate.toLocalDate());
+        summary.setPeriod(startDate + " to " + endDate);
         
         return summary;
     }
@@ -85,9 +85,8 @@ public class TaxCalculationService {
      * Calculate potential tax savings
      */
     public BigDecimal calculateTaxSavings(BigDecimal income, TaxStatus taxStatus) {
-        BigDecimal taxableIncome = income.multiply(BigDecimal.valueOf(1 - taxStatus.getTaxExemptionRate()));
-        BigDecimal savingsFromExemption = income.subtract(taxableIncome).multiply(CORPORATE_TAX_RATE);
-        return savingsFromExemption.setScale(2, RoundingMode.HALF_UP);
+        long savingsFromExemption = Money.applyRate(Money.toMinor(income),
+                Money.compound(Money.rate(taxStatus.getTaxExemptionRate()), CORPORATE_TAX_RATE));
+        return Money.toDecimal(savingsFromExemption);
     }
 }
-
@@ -0,0 +1,318 @@
+package com.easyfin.openbanking.service;
+
+import com.easyfin.openbanking.dto.RollupConsistencyDTO;
+import com.easyfin.openbanking.enums.TransactionCategory;
+import com.easyfin.openbanking.model.Business;
+import com.easyfin.openbanking.model.Transaction;
+import com.easyfin.openbanking.model.TransactionDailyRollup;
+import com.easyfin.openbanking.repository.BusinessRepository;
+import com.easyfin.openbanking.repository.TransactionDailyRollupRepository;
+import com.easyfin.openbanking.repository.TransactionRepository;
+import com.easyfin.openbanking.util.Money;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Service that keeps the daily transaction rollup in step with transaction writes
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TransactionRollupService {
+    
+    private static final int MAX_REPORTED_MISMATCHES = 20;
+    
+    private static final String ADD_TO_ROLLUP_SQL =
+            "UPDATE transaction_daily_rollups " +
+            "SET total_amount = total_amount + ?, transaction_count = transaction_count + ? " +
+            "WHERE business_id = ? AND rollup_date = ? AND category = ? " +
+            "AND is_income = ? AND is_tax_deductible = ?";
+    
+    private final TransactionDailyRollupRepository rollupRepository;
+    private final TransactionRepository transactionRepository;
+    private final BusinessRepository businessRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CategoryRangeIndex categoryRangeIndex;
+    private final BalanceLedgerService balanceLedgerService;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    /**
+     * Add newly persisted transactions to their rollup buckets
+     */
+    @Transactional
+    public void onInserted(Collection<Transaction> transactions) {
+        PendingDeltas pending = new PendingDeltas();
+        transactions.forEach(pending::add);
+        apply(pending);
+    }
+    
+    /**
+     * Apply deltas accumulated across a large write, one statement per touched bucket
+     */
+    @Transactional
+    public void apply(PendingDeltas pending) {
+        apply(pending.deltas);
+        pending.deltas.clear();
+    }
+    
+    /**
+     * Move a transaction between buckets after an edit (recategorization, deductibility, amount)
+     */
+    @Transactional
+    public void onChanged(TransactionDailyRollup.Key before, BigDecimal amountBefore, Transaction after) {
+        TransactionDailyRollup.Key keyAfter = TransactionDailyRollup.Key.of(after);
+        if (keyAfter.equals(before) && after.getAmount().compareTo(amountBefore) == 0) {
+            return;
+        }
+        
+        Map<TransactionDailyRollup.Key, Delta> deltas = new HashMap<>();
+        deltas.computeIfAbsent(before, k -> new Delta()).add(amountBefore.negate(), -1);
+        deltas.computeIfAbsent(keyAfter, k -> new Delta()).add(after.getAmount(), 1);
+        apply(deltas);
+    }
+    
+    /**
+     * Remove a transaction from its rollup bucket
+     */
+    @Transactional
+    public void onDeleted(Transaction transaction) {
+        Map<TransactionDailyRollup.Key, Delta> deltas = new HashMap<>();
+        deltas.put(TransactionDailyRollup.Key.of(transaction), new Delta().add(transaction.getAmount().negate(), -1));
+        apply(deltas);
+    }
+    
+    /**
+     * Rebuild a business's rollup rows from the raw transaction table
+     */
+    @Transactional
+    public int backfill(Long businessId) {
+        rollupRepository.deleteByBusinessId(businessId);
+        
+        List<TransactionDailyRollup> rollups = new ArrayList<>();
+        for (Map.Entry<TransactionDailyRollup.Key, Delta> bucket : rawBuckets(businessId).entrySet()) {
+            TransactionDailyRollup.Key key = bucket.getKey();
+            rollups.add(newRollup(key, bucket.getValue()));
+        }
+        rollupRepository.saveAll(rollups);
+        balanceLedgerService.rebuild(businessId);
+        
+        categoryRangeIndex.invalidate(businessId);
+        log.debug("Backfilled {} rollup rows for business {}", rollups.size(), businessId);
+        return rollups.size();
+    }
+    
+    /**
+     * Rebuild rollups for every business
+     */
+    public Map<Long, Integer> backfillAll() {
+        Map<Long, Integer> rows = new HashMap<>();
+        for (Business business : businessRepository.findAll()) {
+            rows.put(business.getId(), backfillInternal(business.getId()));
+        }
+        return rows;
+    }
+    
+    /**
+     * Compare rollup rows against a fresh aggregation of the raw table
+     */
+    @Transactional(readOnly = true)
+    public RollupConsistencyDTO checkConsistency(Long businessId) {
+        Map<TransactionDailyRollup.Key, Delta> raw = rawBuckets(businessId);
+        Map<TransactionDailyRollup.Key, Delta> rolled = new HashMap<>();
+        for (TransactionDailyRollup r : rollupRepository.findByBusinessId(businessId)) {
+            // Buckets emptied by edits or deletes are equivalent to missing ones
+            if (r.getTransactionCount() == 0 && r.getTotalAmount().signum() == 0) {
+                continue;
+            }
+            TransactionDailyRollup.Key key = new TransactionDailyRollup.Key(r.getBusinessId(), r.getRollupDate(),
+                    r.getCategory(), r.getIsIncome(), r.getIsTaxDeductible());
+            rolled.put(key, new Delta().add(r.getTotalAmount(), r.getTransactionCount()));
+        }
+        
+        Set<TransactionDailyRollup.Key> keys = new HashSet<>(raw.keySet());
+        keys.addAll(rolled.keySet());
+        
+        List<String> mismatches = new ArrayList<>();
+        int mismatchCount = 0;
+        for (TransactionDailyRollup.Key key : keys) {
+            Delta expected = raw.get(key);
+            Delta actual = rolled.get(key);
+            if (!Objects.equals(expected, actual)) {
+                mismatchCount++;
+                if (mismatches.size() < MAX_REPORTED_MISMATCHES) {
+                    mismatches.add(key + ": raw=" + expected + ", rollup=" + actual);
+                }
+            }
+        }
+        
+        return new RollupConsistencyDTO(businessId, raw.size(), rolled.size(), mismatchCount,
+                mismatchCount == 0, mismatches);
+    }
+    
+    /**
+     * Backfill businesses that have transactions but no rollup rows yet (e.g. data loaded before rollups existed)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillMissing() {
+        for (Business business : businessRepository.findAll()) {
+            if (!rollupRepository.existsByBusinessId(business.getId())
+                    && transactionRepository.existsByBusinessId(business.getId())) {
+                backfillInternal(business.getId());
+            }
+        }
+    }
+    
+    private int backfillInternal(Long businessId) {
+        // Self-invocation bypasses the @Transactional proxy, so give each business its own transaction
+        Integer rows = transactionTemplate.execute(status -> backfill(businessId));
+        return rows != null ? rows : 0;
+    }
+    
+    private void apply(Map<TransactionDailyRollup.Key, Delta> deltas) {
+        List<TransactionDailyRollup.Key> keys = new ArrayList<>(deltas.size());
+        List<Object[]> increments = new ArrayList<>(deltas.size());
+        List<CategoryRangeIndex.PointUpdate> indexUpdates = new ArrayList<>(deltas.size());
+        Map<Long, Map<LocalDate, BigDecimal>> netDeltas = new HashMap<>();
+        deltas.forEach((key, delta) -> {
+            if (delta.isEmpty()) {
+                return;
+            }
+            keys.add(key);
+            increments.add(new Object[]{delta.amount, delta.count, key.businessId(), key.date(),
+                    key.category().name(), key.income(), key.taxDeductible()});
+            indexUpdates.add(new CategoryRangeIndex.PointUpdate(key.businessId(), key.date(), key.category(),
+                    key.income(), Money.toMinor(delta.amount)));
+            netDeltas.computeIfAbsent(key.businessId(), id -> new HashMap<>())
+                    .merge(key.date(), key.income() ? delta.amount : delta.amount.negate(), BigDecimal::add);
+        });
+        if (keys.isEmpty()) {
+            return;
+        }
+        
+        // Rollup rows saved earlier in this transaction must reach the database before the batch looks for them
+        entityManager.flush();
+        
+        // Holding the business row lock makes increment-or-insert atomic: no other write can create the same bucket meanwhile
+        keys.stream().map(TransactionDailyRollup.Key::businessId).distinct().sorted()
+                .forEach(businessRepository::findForUpdate);
+        
+        // Atomic increments in one JDBC batch; buckets that don't exist yet are inserted afterwards
+        int[] updated = jdbcTemplate.batchUpdate(ADD_TO_ROLLUP_SQL, increments);
+        List<TransactionDailyRollup> created = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                TransactionDailyRollup.Key key = keys.get(i);
+                created.add(newRollup(key, deltas.get(key)));
+            }
+        }
+        rollupRepository.saveAll(created);
+        balanceLedgerService.apply(netDeltas);
+        
+        categoryRangeIndex.registerUpdates(indexUpdates);
+        eventPublisher.publishEvent(new TransactionsChangedEvent(
+                keys.stream().map(TransactionDailyRollup.Key::businessId).collect(Collectors.toSet())));
+    }
+    
+    private Map<TransactionDailyRollup.Key, Delta> rawBuckets(Long businessId) {
+        Map<TransactionDailyRollup.Key, Delta> buckets = new HashMap<>();
+        for (Object[] row : transactionRepository.sumDailyBucketsFromRawByBusinessId(businessId)) {
+            TransactionDailyRollup.Key key = new TransactionDailyRollup.Key(
+                    businessId,
+                    (LocalDate) row[0],
+                    (TransactionCategory) row[1],
+                    Boolean.TRUE.equals(row[2]),
+                    Boolean.TRUE.equals(row[3]));
+            // Null flags collapse into false, so merge rather than put
+            buckets.computeIfAbsent(key, k -> new Delta()).add((BigDecimal) row[4], (Long) row[5]);
+        }
+        return buckets;
+    }
+    
+    private TransactionDailyRollup newRollup(TransactionDailyRollup.Key key, Delta delta) {
+        return new TransactionDailyRollup(null, key.businessId(), key.date(), key.category(),
+                key.income(), key.taxDeductible(), delta.amount, delta.count);
+    }
+    
+    /**
+     * Published whenever transaction totals change for the given businesses
+     */
+    public record TransactionsChangedEvent(Set<Long> businessIds) {
+    }
+    
+    /**
+     * Rollup deltas collected across a large write before they are applied
+     */
+    public static final class PendingDeltas {
+        private final Map<TransactionDailyRollup.Key, Delta> deltas = new HashMap<>();
+        
+        /**
+         * Record a newly inserted transaction
+         */
+        public void add(Transaction t) {
+            deltas.computeIfAbsent(TransactionDailyRollup.Key.of(t), k -> new Delta()).add(t.getAmount(), 1);
+        }
+        
+        /**
+         * Record an edited transaction moving out of its previous bucket
+         */
+        public void move(TransactionDailyRollup.Key before, BigDecimal amountBefore, Transaction after) {
+            deltas.computeIfAbsent(before, k -> new Delta()).add(amountBefore.negate(), -1);
+            add(after);
+        }
+    }
+    
+    /**
+     * Pending change to one rollup bucket
+     */
+    private static final class Delta {
+        private BigDecimal amount = BigDecimal.ZERO;
+        private long count;
+        
+        Delta add(BigDecimal amount, long count) {
+            this.amount = this.amount.add(amount);
+            this.count += count;
+            return this;
+        }
+        
+        boolean isEmpty() {
+            return count == 0 && amount.signum() == 0;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Delta other && count == other.count && amount.compareTo(other.amount) == 0;
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(amount.stripTrailingZeros(), count);
+        }
+        
+        @Override
+        public String toString() {
+            return amount.toPlainString() + " (" + count + " tx)";
+        }
+    }
+}
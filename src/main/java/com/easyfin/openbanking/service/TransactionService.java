@@ -1,43 +1,86 @@
 package com.easyfin.openbanking.service;
 
+import com.easyfin.openbanking.dto.BatchIngestResultDTO;
 import com.easyfin.openbanking.dto.TransactionDTO;
+import com.easyfin.openbanking.dto.TransactionPageDTO;
+import com.easyfin.openbanking.enums.TransactionCategory;
+import com.easyfin.openbanking.model.Business;
 import com.easyfin.openbanking.model.Transaction;
+import com.easyfin.openbanking.model.TransactionDailyRollup;
 import com.easyfin.openbanking.repository.TransactionRepository;
+import com.easyfin.openbanking.util.KeysetCursor;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
  * Service for transaction management
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class TransactionService {
     
     private final TransactionRepository transactionRepository;
     private final CategorizationService categorizationService;
+    private final TransactionRollupService transactionRollupService;
+    private final RecurringPaymentService recurringPaymentService;
+    private final EntityManager entityManager;
     
-    /**
-     * Get all transactions for a business
-     */
-    public List<TransactionDTO> getAllTransactions(Long businessId) {
-        return transactionRepository.findByBusinessIdOrderByTransactionDateDesc(businessId)
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
-    }
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+    
+    public static final int MAX_INGEST_SIZE = 10_000;
+    
+    // Rows flushed per persistence-context cycle; a multiple of hibernate.jdbc.batch_size
+    private static final int INGEST_FLUSH_SIZE = 500;
+    
+    // Open bounds used when the caller does not filter by date
+    private static final LocalDateTime MIN_DATE = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_DATE = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
     
     /**
-     * Get transactions by date range
+     * Get one page of transactions, newest first, keyed on (transactionDate, id); category may be null
      */
-    public List<TransactionDTO> getTransactionsByDateRange(Long businessId, LocalDateTime startDate, LocalDateTime endDate) {
-        return transactionRepository.findByBusinessIdAndDateRange(businessId, startDate, endDate)
-                .stream()
+    public TransactionPageDTO getTransactionPage(Long businessId, LocalDateTime startDate, LocalDateTime endDate,
+                                                 TransactionCategory category, String cursor, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        LocalDateTime from = startDate != null ? startDate : MIN_DATE;
+        LocalDateTime to = endDate != null ? endDate : MAX_DATE;
+        
+        // Without a cursor, start just above the newest row in range
+        KeysetCursor<LocalDateTime> position = KeysetCursor.decode(cursor, LocalDateTime::parse);
+        LocalDateTime cursorDate = position != null ? position.key() : to;
+        long cursorId = position != null ? position.id() : Long.MAX_VALUE;
+        
+        // Fetch one extra row to learn whether another page exists
+        List<Transaction> rows = transactionRepository.findPageBefore(
+                businessId, category, from, to, cursorDate, cursorId, Limit.of(pageSize + 1));
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+        
+        String nextCursor = null;
+        if (hasMore) {
+            Transaction last = rows.get(rows.size() - 1);
+            nextCursor = KeysetCursor.encode(last.getTransactionDate(), last.getId());
+        }
+        
+        List<TransactionDTO> transactions = rows.stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
+        return new TransactionPageDTO(transactions, nextCursor);
     }
     
     /**
@@ -49,26 +92,168 @@ public class TransactionService {
     }
     
     /**
-     * Save transaction
+     * Save new transactions and add them to the daily rollup and recurring-payment clusters
      */
-    public Transaction saveTransaction(Transaction transaction) {
-        return transactionRepository.save(transaction);
+    @Transactional
+    public List<Transaction> createTransactions(List<Transaction> transactions) {
+        List<Transaction> saved = transactionRepository.saveAll(transactions);
+        transactionRollupService.onInserted(saved);
+        recurringPaymentService.onInserted(saved);
+        return saved;
+    }
+    
+    /**
+     * Manually set a transaction's category
+     */
+    @Transactional
+    public Transaction updateCategory(Long transactionId, TransactionCategory category) {
+        Transaction transaction = getTransactionById(transactionId);
+        TransactionDailyRollup.Key before = TransactionDailyRollup.Key.of(transaction);
+        Boolean incomeBefore = transaction.getIsIncome();
+        
+        transaction.setCategory(category);
+        transaction.setIsTaxDeductible(category.isTaxDeductible());
+        transaction.setCategorizationConfidence(1.0); // User-confirmed, so bulk recategorization leaves it alone
+        // Same rule as CategorizationService.applyResult: an inferred direction follows the category
+        if (Boolean.TRUE.equals(transaction.getIsIncomeInferred())) {
+            transaction.setIsIncome(category.isIncome());
+        }
+        
+        Transaction updated = transactionRepository.save(transaction);
+        transactionRollupService.onChanged(before, transaction.getAmount(), updated);
+        if (!Objects.equals(updated.getIsIncome(), incomeBefore)) {
+            recurringPaymentService.onRemoved(updated);
+        }
+        
+        // The user overrode the keyword match, so this business's later transactions from the merchant follow it
+        categorizationService.recordCorrection(transaction.getBusiness().getId(), transaction.getMerchantName(), category);
+        return updated;
+    }
+    
+    /**
+     * Override a transaction's tax-deductible flag
+     */
+    @Transactional
+    public Transaction updateTaxDeductible(Long transactionId, boolean isTaxDeductible) {
+        Transaction transaction = getTransactionById(transactionId);
+        TransactionDailyRollup.Key before = TransactionDailyRollup.Key.of(transaction);
+        
+        transaction.setIsTaxDeductible(isTaxDeductible);
+        
+        Transaction updated = transactionRepository.save(transaction);
+        transactionRollupService.onChanged(before, transaction.getAmount(), updated);
+        return updated;
+    }
+    
+    /**
+     * Delete transaction
+     */
+    @Transactional
+    public void deleteTransaction(Long transactionId) {
+        Transaction transaction = getTransactionById(transactionId);
+        transactionRollupService.onDeleted(transaction);
+        recurringPaymentService.onRemoved(transaction);
+        transactionRepository.delete(transaction);
+    }
+    
+    /**
+     * Bulk ingest transactions with batched inserts
+     */
+    @Transactional
+    public BatchIngestResultDTO ingestTransactions(Business business, List<TransactionDTO> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("Batch must contain at least one transaction");
+        }
+        if (requests.size() > MAX_INGEST_SIZE) {
+            throw new IllegalArgumentException("Batch size exceeds maximum of " + MAX_INGEST_SIZE);
+        }
+        
+        long started = System.nanoTime();
+        int autoCategorized = 0;
+        List<Transaction> chunk = new ArrayList<>(INGEST_FLUSH_SIZE);
+        TransactionRollupService.PendingDeltas rollupDeltas = new TransactionRollupService.PendingDeltas();
+        RecurringPaymentService.PendingOccurrences occurrences = new RecurringPaymentService.PendingOccurrences();
+        Map<String, TransactionCategory> overrides = categorizationService.overridesFor(business.getId());
+        
+        for (int i = 0; i < requests.size(); i++) {
+            Transaction transaction = toEntity(business, requests.get(i), i);
+            if (transaction.getCategory() == TransactionCategory.UNCATEGORIZED) {
+                categorizationService.categorizeTransaction(transaction, overrides);
+                autoCategorized++;
+            }
+            chunk.add(transaction);
+            rollupDeltas.add(transaction);
+            occurrences.add(transaction);
+            
+            if (chunk.size() == INGEST_FLUSH_SIZE) {
+                flushChunk(chunk);
+            }
+        }
+        flushChunk(chunk);
+        transactionRollupService.apply(rollupDeltas);
+        recurringPaymentService.apply(occurrences);
+        
+        long elapsedMillis = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+        double rowsPerSecond = requests.size() * 1000.0 / elapsedMillis;
+        log.debug("Ingested {} transactions for business {} in {} ms ({} rows/sec)",
+                requests.size(), business.getId(), elapsedMillis, Math.round(rowsPerSecond));
+        
+        return new BatchIngestResultDTO(requests.size(), requests.size(), autoCategorized,
+                elapsedMillis, rowsPerSecond);
     }
     
     /**
      * Auto-categorize transaction
      */
+    @Transactional
     public Transaction categorizeTransaction(Long transactionId) {
         Transaction transaction = getTransactionById(transactionId);
+        TransactionDailyRollup.Key before = TransactionDailyRollup.Key.of(transaction);
+        Boolean incomeBefore = transaction.getIsIncome();
+        
         categorizationService.categorizeTransaction(transaction);
-        return transactionRepository.save(transaction);
+        
+        Transaction updated = transactionRepository.save(transaction);
+        transactionRollupService.onChanged(before, transaction.getAmount(), updated);
+        if (!Objects.equals(updated.getIsIncome(), incomeBefore)) {
+            recurringPaymentService.onRemoved(updated);
+        }
+        return updated;
     }
     
-    /**
-     * Get all deductible transactions
-     */
-    public List<Transaction> getDeductibleTransactions(Long businessId) {
-        return transactionRepository.findByBusinessIdAndIsTaxDeductibleTrue(businessId);
+    private void flushChunk(List<Transaction> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        transactionRepository.saveAll(chunk);
+        // Push the JDBC batch and drop the managed copies so memory stays flat
+        entityManager.flush();
+        entityManager.clear();
+        chunk.clear();
+    }
+    
+    private Transaction toEntity(Business business, TransactionDTO dto, int index) {
+        if (dto.getTransactionDate() == null || dto.getAmount() == null || dto.getMerchantName() == null) {
+            throw new IllegalArgumentException(
+                    "Transaction at index " + index + " requires transactionDate, amount and merchantName");
+        }
+        
+        Transaction t = new Transaction();
+        t.setBusiness(business);
+        t.setTransactionDate(dto.getTransactionDate());
+        t.setAmount(dto.getAmount());
+        t.setCurrency(dto.getCurrency() != null ? dto.getCurrency() : "AZN");
+        t.setMerchantName(dto.getMerchantName());
+        t.setDescription(dto.getDescription());
+        t.setReceiptUrl(dto.getReceiptUrl());
+        
+        TransactionCategory category = dto.getCategory() != null ? dto.getCategory() : TransactionCategory.UNCATEGORIZED;
+        t.setCategory(category);
+        t.setIsIncome(dto.getIsIncome() != null ? dto.getIsIncome() : category.isIncome());
+        t.setIsIncomeInferred(dto.getIsIncome() == null);
+        t.setIsTaxDeductible(dto.getIsTaxDeductible() != null ? dto.getIsTaxDeductible() : category.isTaxDeductible());
+        t.setCategorizationConfidence(dto.getCategorizationConfidence() != null ? dto.getCategorizationConfidence() : 1.0);
+        return t;
     }
     
     private TransactionDTO convertToDTO(Transaction t) {
@@ -0,0 +1,42 @@
+package com.easyfin.openbanking.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.util.Base64;
+import java.util.function.Function;
+
+/**
+ * Opaque continuation token for keyset pagination: the sort key and id of the last row served,
+ * as URL-safe Base64 of {@code key|id}. A token that doesn't decode to a valid position is
+ * rejected with IllegalArgumentException, so a tampered token is a 400, not a 500.
+ */
+public record KeysetCursor<T>(T key, long id) {
+    
+    /**
+     * Encode the position of a row; the key's toString must be readable by the parser given to decode
+     */
+    public static String encode(Object key, long id) {
+        String position = key + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Decode a token, or return null when there is none (null or blank)
+     */
+    public static <T> KeysetCursor<T> decode(String cursor, Function<String, T> keyParser) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = position.split("\\|", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new KeysetCursor<>(keyParser.apply(parts[0]), Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.easyfin.openbanking.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point money helpers on long minor units (qəpik, 1/100 AZN).
+ * Rates are held in parts per million. Every rounding step is HALF_UP at 2 decimals,
+ * matching what {@code setScale(2, RoundingMode.HALF_UP)} does on the equivalent BigDecimal math.
+ * Convert with {@link #toMinor} and {@link #toDecimal} only at entity and DTO boundaries.
+ */
+public final class Money {
+    
+    public static final long RATE_SCALE = 1_000_000L;
+    
+    private Money() {
+    }
+    
+    /**
+     * Convert an amount to qəpik, rounding HALF_UP past 2 decimals; null counts as zero
+     */
+    public static long toMinor(BigDecimal amount) {
+        if (amount == null) {
+            return 0L;
+        }
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+    
+    /**
+     * Convert qəpik back to a scale-2 amount
+     */
+    public static BigDecimal toDecimal(long minor) {
+        return BigDecimal.valueOf(minor, 2);
+    }
+    
+    /**
+     * Parse an exact rate such as "0.22" into parts per million
+     */
+    public static long rate(String rate) {
+        return new BigDecimal(rate).movePointRight(6).longValueExact();
+    }
+    
+    /**
+     * Convert a stored rate such as 0.140000 into parts per million, rounding HALF_UP past 6 decimals
+     */
+    public static long rate(BigDecimal rate) {
+        return rate.setScale(6, RoundingMode.HALF_UP).movePointRight(6).longValueExact();
+    }
+    
+    /**
+     * Convert a floating-point rate such as an exemption share into parts per million
+     */
+    public static long rate(double rate) {
+        return Math.round(rate * RATE_SCALE);
+    }
+    
+    /**
+     * Apply a rate in parts per million to an amount, rounding HALF_UP to the qəpik
+     */
+    public static long applyRate(long minor, long ratePpm) {
+        return divide(Math.multiplyExact(minor, ratePpm), RATE_SCALE);
+    }
+    
+    /**
+     * Product of two rates in parts per million, e.g. a taxable share times a tax rate
+     */
+    public static long compound(long ratePpm, long otherRatePpm) {
+        return divide(Math.multiplyExact(ratePpm, otherRatePpm), RATE_SCALE);
+    }
+    
+    /**
+     * Integer division rounding HALF_UP (ties away from zero)
+     */
+    public static long divide(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = Math.abs(dividend % divisor);
+        if (remainder >= Math.abs(divisor) - remainder) {
+            quotient += (dividend < 0) == (divisor < 0) ? 1 : -1;
+        }
+        return quotient;
+    }
+}
@@ -0,0 +1,213 @@
+package com.easyfin.openbanking.bench;
+
+import com.easyfin.openbanking.dto.TaxSummaryDTO;
+import com.easyfin.openbanking.enums.PayrollRateComponent;
+import com.easyfin.openbanking.enums.TaxStatus;
+import com.easyfin.openbanking.model.Business;
+import com.easyfin.openbanking.model.PayrollRateBracket;
+import com.easyfin.openbanking.model.PayrollRateVersion;
+import com.easyfin.openbanking.repository.PayrollRateVersionRepository;
+import com.easyfin.openbanking.repository.TransactionTotals;
+import com.easyfin.openbanking.service.PayrollRateService;
+import com.easyfin.openbanking.service.PayrollService;
+import com.easyfin.openbanking.service.TaxCalculationService;
+import com.easyfin.openbanking.util.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * BigDecimal money math as it was before {@link Money} against the qəpik code that replaced it,
+ * for payroll amounts, the tax summary and the forecast running balance.
+ * Run after {@code mvn test-compile} with the test classpath from {@code mvn dependency:build-classpath}:
+ * {@code java -cp target/test-classes:target/classes:<classpath> org.openjdk.jmh.Main MoneyBenchmark -prof gc}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MoneyBenchmark {
+    
+    private static final int EMPLOYEES = 500;
+    private static final int HORIZON_DAYS = 90;
+    
+    // The constants the BigDecimal code used
+    private static final BigDecimal EMPLOYEE_SSF_RATE = new BigDecimal("0.03");
+    private static final BigDecimal EMPLOYER_SSF_RATE = new BigDecimal("0.22");
+    private static final BigDecimal INCOME_TAX_RATE = new BigDecimal("0.14");
+    private static final BigDecimal CORPORATE_TAX_RATE = new BigDecimal("0.20");
+    
+    // A quarter of a small business's totals
+    private static final BigDecimal TOTAL_INCOME = new BigDecimal("48213.57");
+    private static final BigDecimal TOTAL_EXPENSES = new BigDecimal("31877.09");
+    private static final BigDecimal TAX_DEDUCTIBLE = new BigDecimal("12904.33");
+    
+    private final LocalDate month = LocalDate.of(2024, 6, 1);
+    private final LocalDate periodStart = LocalDate.of(2024, 4, 1);
+    private final LocalDate periodEnd = LocalDate.of(2024, 6, 30);
+    
+    private BigDecimal[] salaries;
+    private PayrollService payrollService;
+    private TaxCalculationService taxCalculationService;
+    private Business business;
+    private TransactionTotals totals;
+    
+    /**
+     * Payroll figures for one employee-month as the BigDecimal code produced them
+     */
+    public record DecimalAmounts(BigDecimal grossSalary, BigDecimal employeeSsf, BigDecimal employerSsf,
+                                 BigDecimal incomeTax, BigDecimal netSalary, BigDecimal totalEmployerCost) {
+    }
+    
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        salaries = new BigDecimal[EMPLOYEES];
+        for (int i = 0; i < EMPLOYEES; i++) {
+            salaries[i] = BigDecimal.valueOf(random.nextLong(40_000, 800_000), 2);
+        }
+        
+        // The compiled rate table is built once here; the hot path never leaves memory
+        PayrollRateVersionRepository versionRepository = mock(PayrollRateVersionRepository.class);
+        when(versionRepository.findAllByOrderByEffectiveFromAsc()).thenReturn(List.of(flatRates()));
+        PayrollRateService payrollRateService = new PayrollRateService(versionRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), event -> { });
+        payrollService = new PayrollService(null, null, null, payrollRateService, null, null, null, null, null);
+        payrollService.calculateAmounts(salaries[0], month);
+        
+        taxCalculationService = new TaxCalculationService(null);
+        business = new Business();
+        business.setTaxStatus(TaxStatus.MICRO_ENTREPRENEUR);
+        business.setTaxExemption(TaxStatus.MICRO_ENTREPRENEUR.getTaxExemptionRate());
+        totals = new TransactionTotals() {
+            public BigDecimal getTotalIncome() {
+                return TOTAL_INCOME;
+            }
+            
+            public BigDecimal getTotalExpenses() {
+                return TOTAL_EXPENSES;
+            }
+            
+            public BigDecimal getTaxDeductible() {
+                return TAX_DEDUCTIBLE;
+            }
+        };
+    }
+    
+    @Benchmark
+    public void payrollBigDecimal(Blackhole blackhole) {
+        for (BigDecimal salary : salaries) {
+            blackhole.consume(decimalAmounts(salary));
+        }
+    }
+    
+    @Benchmark
+    public void payrollMoney(Blackhole blackhole) {
+        for (BigDecimal salary : salaries) {
+            blackhole.consume(payrollService.calculateAmounts(salary, month));
+        }
+    }
+    
+    @Benchmark
+    public TaxSummaryDTO taxSummaryBigDecimal() {
+        return decimalTaxSummary(business, totals, periodStart, periodEnd);
+    }
+    
+    @Benchmark
+    public TaxSummaryDTO taxSummaryMoney() {
+        return taxCalculationService.calculateTaxSummary(business, totals, periodStart, periodEnd);
+    }
+    
+    @Benchmark
+    public void forecastBalanceBigDecimal(Blackhole blackhole) {
+        BigDecimal avgIncome = totals.getTotalIncome().divide(BigDecimal.valueOf(30), 2, RoundingMode.HALF_UP);
+        BigDecimal avgExpenses = totals.getTotalExpenses().divide(BigDecimal.valueOf(30), 2, RoundingMode.HALF_UP);
+        BigDecimal runningBalance = avgIncome.subtract(avgExpenses).multiply(BigDecimal.valueOf(30));
+        for (int i = 0; i < HORIZON_DAYS; i++) {
+            runningBalance = runningBalance.add(avgIncome).subtract(avgExpenses);
+            blackhole.consume(runningBalance);
+        }
+    }
+    
+    @Benchmark
+    public void forecastBalanceMoney(Blackhole blackhole) {
+        long avgIncome = Money.divide(Money.toMinor(totals.getTotalIncome()), 30);
+        long avgExpenses = Money.divide(Money.toMinor(totals.getTotalExpenses()), 30);
+        long runningBalance = (avgIncome - avgExpenses) * 30;
+        for (int i = 0; i < HORIZON_DAYS; i++) {
+            runningBalance += avgIncome - avgExpenses;
+            // Each stored day still crosses into BigDecimal at the entity boundary
+            blackhole.consume(Money.toDecimal(runningBalance));
+        }
+    }
+    
+    private static DecimalAmounts decimalAmounts(BigDecimal grossSalary) {
+        BigDecimal employeeSsf = grossSalary.multiply(EMPLOYEE_SSF_RATE).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal employerSsf = grossSalary.multiply(EMPLOYER_SSF_RATE).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal taxableIncome = grossSalary.subtract(employeeSsf);
+        BigDecimal incomeTax = taxableIncome.multiply(INCOME_TAX_RATE).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal netSalary = grossSalary.subtract(employeeSsf).subtract(incomeTax);
+        BigDecimal totalEmployerCost = grossSalary.add(employerSsf);
+        return new DecimalAmounts(grossSalary, employeeSsf, employerSsf, incomeTax, netSalary, totalEmployerCost);
+    }
+    
+    private static TaxSummaryDTO decimalTaxSummary(Business business, TransactionTotals totals,
+                                                   LocalDate startDate, LocalDate endDate) {
+        BigDecimal totalIncome = totals.getTotalIncome();
+        BigDecimal taxDeductible = totals.getTaxDeductible();
+        BigDecimal taxableIncome = totalIncome.subtract(taxDeductible);
+        
+        Double exemptionRate = business.getTaxExemption() != null ? business.getTaxExemption() : 0.0;
+        BigDecimal taxableAfterExemption = taxableIncome.multiply(BigDecimal.valueOf(1 - exemptionRate));
+        BigDecimal estimatedTaxLiability = taxableAfterExemption.multiply(CORPORATE_TAX_RATE)
+                .setScale(2, RoundingMode.HALF_UP);
+        BigDecimal estimatedTaxSavings = taxableIncome.multiply(BigDecimal.valueOf(exemptionRate))
+                .multiply(CORPORATE_TAX_RATE)
+                .setScale(2, RoundingMode.HALF_UP);
+        
+        TaxSummaryDTO summary = new TaxSummaryDTO();
+        summary.setTaxStatus(business.getTaxStatus().getDisplayName());
+        summary.setTaxExemptionRate(exemptionRate);
+        summary.setTotalIncome(totalIncome);
+        summary.setTaxableIncome(taxableAfterExemption);
+        summary.setTotalDeductions(taxDeductible);
+        summary.setEstimatedTaxLiability(estimatedTaxLiability);
+        summary.setEstimatedTaxSavings(estimatedTaxSavings);
+        summary.setEmployeeTaxWithheld(BigDecimal.ZERO);
+        summary.setSsfContributions(BigDecimal.ZERO);
+        summary.setPeriod(startDate + " to " + endDate);
+        return summary;
+    }
+    
+    private static PayrollRateVersion flatRates() {
+        PayrollRateVersion version = new PayrollRateVersion();
+        version.setId(1L);
+        version.setEffectiveFrom(LocalDate.of(2000, 1, 1));
+        version.getBrackets().add(new PayrollRateBracket(PayrollRateComponent.EMPLOYEE_SSF, BigDecimal.ZERO, EMPLOYEE_SSF_RATE));
+        version.getBrackets().add(new PayrollRateBracket(PayrollRateComponent.EMPLOYER_SSF, BigDecimal.ZERO, EMPLOYER_SSF_RATE));
+        version.getBrackets().add(new PayrollRateBracket(PayrollRateComponent.INCOME_TAX, BigDecimal.ZERO, INCOME_TAX_RATE));
+        return version;
+    }
+}
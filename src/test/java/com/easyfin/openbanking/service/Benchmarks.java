@@ -0,0 +1,61 @@
+package com.easyfin.openbanking.service;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Wall-clock and allocation measurement for tests tagged {@value #TAG}, which surefire
+ * leaves out unless run with -Pbenchmark
+ */
+final class Benchmarks {
+    
+    static final String TAG = "benchmark";
+    
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    
+    private Benchmarks() {
+    }
+    
+    /**
+     * One measured run: elapsed time and bytes allocated by the calling thread
+     */
+    record Sample(long nanos, long allocatedBytes) {
+        
+        double millis() {
+            return nanos / 1e6;
+        }
+        
+        double perSecond(int units) {
+            return units * 1e9 / nanos;
+        }
+        
+        double allocatedMegabytes() {
+            return allocatedBytes / (1024.0 * 1024.0);
+        }
+    }
+    
+    /**
+     * Fastest of the measured runs after the unmeasured warm-up runs
+     */
+    static Sample measure(int warmups, int runs, Runnable body) {
+        for (int i = 0; i < warmups; i++) {
+            body.run();
+        }
+        Sample best = null;
+        for (int i = 0; i < runs; i++) {
+            long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+            long started = System.nanoTime();
+            body.run();
+            Sample sample = new Sample(System.nanoTime() - started,
+                    THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore);
+            if (best == null || sample.nanos() < best.nanos()) {
+                best = sample;
+            }
+        }
+        return best;
+    }
+    
+    static void report(String format, Object... args) {
+        System.out.printf("[benchmark] " + format + "%n", args);
+    }
+}
@@ -0,0 +1,126 @@
+package com.easyfin.openbanking.service;
+
+import com.easyfin.openbanking.enums.TransactionCategory;
+import com.easyfin.openbanking.model.Business;
+import com.easyfin.openbanking.model.Transaction;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Heap cost of the /cashflow/analysis category breakdowns, loading and grouping every Transaction in
+ * the window as the endpoint used to against the current range-index path, with the whole window
+ * filled by a 10k-row and a 1M-row business
+ */
+@Tag(Benchmarks.TAG)
+class CashFlowAnalysisBenchmarkTest extends StatementCountTestSupport {
+    
+    private static final int SMALL_ROWS = 10_000;
+    private static final int LARGE_ROWS = 1_000_000;
+    private static final int INSERT_CHUNK = 10_000;
+    
+    private static final String INSERT_SQL =
+            "INSERT INTO transactions (id, transaction_date, amount, currency, merchant_name, description, category, " +
+            "is_tax_deductible, is_income, is_income_inferred, categorization_confidence, business_id, created_at) " +
+            "VALUES (NEXT VALUE FOR transactions_seq, ?, ?, 'AZN', ?, ?, ?, ?, ?, FALSE, 1.0, ?, ?)";
+    
+    // The derived queries the breakdowns were built from
+    private static final String ENTITIES_JPQL =
+            "SELECT t FROM Transaction t WHERE t.business.id = :businessId AND t.isIncome = :income " +
+            "AND t.transactionDate BETWEEN :startDate AND :endDate";
+    
+    private static final TransactionCategory[] CATEGORIES = TransactionCategory.values();
+    
+    @Autowired
+    private CashFlowService cashFlowService;
+    
+    @Autowired
+    private TransactionRollupService transactionRollupService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private EntityManager entityManager;
+    
+    @Test
+    void analysisHeapStaysFlatWithRowsInWindow() {
+        // The window the endpoint analyses
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(29);
+        Business small = seed("Window Kiosk", SMALL_ROWS, startDate);
+        Business large = seed("Window Hypermarket", LARGE_ROWS, startDate);
+        
+        Benchmarks.Sample smallBefore = Benchmarks.measure(1, 3, () -> entityBreakdowns(small, startDate, endDate));
+        Benchmarks.Sample smallAfter = Benchmarks.measure(20, 20,
+                () -> cashFlowService.generateCashFlowAnalysis(small, startDate, endDate));
+        Benchmarks.Sample largeAfter = Benchmarks.measure(20, 20,
+                () -> cashFlowService.generateCashFlowAnalysis(large, startDate, endDate));
+        Benchmarks.Sample largeBefore = Benchmarks.measure(0, 1, () -> entityBreakdowns(large, startDate, endDate));
+        
+        Benchmarks.report("analysis, 10k rows in window: entity breakdowns %.1f MB in %.0f ms, current %.3f MB in %.2f ms",
+                smallBefore.allocatedMegabytes(), smallBefore.millis(), smallAfter.allocatedMegabytes(), smallAfter.millis());
+        Benchmarks.report("analysis, 1M rows in window: entity breakdowns %.1f MB in %.0f ms, current %.3f MB in %.2f ms",
+                largeBefore.allocatedMegabytes(), largeBefore.millis(), largeAfter.allocatedMegabytes(), largeAfter.millis());
+        
+        assertThat(largeAfter.allocatedBytes()).isLessThan(smallAfter.allocatedBytes() * 2);
+        assertThat(largeAfter.allocatedBytes()).isLessThan(largeBefore.allocatedBytes() / 100);
+    }
+    
+    // The old breakdowns: hydrate both directions in one read transaction, then group in Java
+    private List<Map<String, BigDecimal>> entityBreakdowns(Business business, LocalDate startDate, LocalDate endDate) {
+        return transactionTemplate.execute(status -> {
+            List<Map<String, BigDecimal>> breakdowns = new ArrayList<>(2);
+            for (boolean income : new boolean[]{true, false}) {
+                List<Transaction> rows = entityManager.createQuery(ENTITIES_JPQL, Transaction.class)
+                        .setParameter("businessId", business.getId())
+                        .setParameter("income", income)
+                        .setParameter("startDate", startDate.atStartOfDay())
+                        .setParameter("endDate", endDate.atTime(23, 59, 59))
+                        .getResultList();
+                breakdowns.add(rows.stream().collect(Collectors.groupingBy(
+                        t -> t.getCategory() != null ? t.getCategory().name() : "Other",
+                        Collectors.reducing(BigDecimal.ZERO, Transaction::getAmount, BigDecimal::add))));
+                entityManager.clear();
+            }
+            return breakdowns;
+        });
+    }
+    
+    // Straight JDBC batches, then the rollup, ledger and range index rebuilt the way a backfill does
+    private Business seed(String name, int rows, LocalDate startDate) {
+        Business business = business(name, 5);
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        for (int from = 0; from < rows; from += INSERT_CHUNK) {
+            int to = Math.min(rows, from + INSERT_CHUNK);
+            List<Object[]> batch = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                TransactionCategory category = CATEGORIES[i % CATEGORIES.length];
+                LocalDateTime date = startDate.plusDays(i % 30).atTime(8 + i % 12, i % 60);
+                batch.add(new Object[]{Timestamp.valueOf(date), new BigDecimal(5 + i % 200 + "." + (10 + i % 90)),
+                        "Merchant " + i % 500, "Window row " + i, category.name(), category.isTaxDeductible(),
+                        category.isIncome(), business.getId(), createdAt});
+            }
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, batch));
+        }
+        transactionRollupService.backfill(business.getId());
+        return business;
+    }
+}
@@ -0,0 +1,79 @@
+package com.easyfin.openbanking.service;
+
+import com.easyfin.openbanking.dto.PayrollHistoryPageDTO;
+import com.easyfin.openbanking.model.Business;
+import com.easyfin.openbanking.model.Employee;
+import com.easyfin.openbanking.repository.EmployeeRepository;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A payroll history page is one projection query, however many rows and employees it holds
+ */
+class PayrollHistoryStatementCountTest extends StatementCountTestSupport {
+    
+    private static final int N = 20;
+    private static final LocalDate FIRST_MONTH = LocalDate.of(2023, 1, 1);
+    
+    @Autowired
+    private PayrollService payrollService;
+    
+    @Autowired
+    private EmployeeRepository employeeRepository;
+    
+    @Test
+    void statementCountDoesNotGrowWithRows() {
+        // N rows: 5 employees over 4 months; 10N rows: 20 employees over 10 months
+        Long small = seed("Small Cafe", 5, 4);
+        Long large = seed("Large Restaurant", 20, 10);
+        
+        Statistics statistics = statistics();
+        
+        statistics.clear();
+        PayrollHistoryPageDTO smallPage = payrollService.getPayrollHistory(small, null, PayrollService.MAX_PAGE_SIZE);
+        long smallStatements = statistics.getPrepareStatementCount();
+        
+        statistics.clear();
+        PayrollHistoryPageDTO largePage = payrollService.getPayrollHistory(large, null, PayrollService.MAX_PAGE_SIZE);
+        long largeStatements = statistics.getPrepareStatementCount();
+        
+        assertThat(smallPage.getPayrolls()).hasSize(N);
+        assertThat(largePage.getPayrolls()).hasSize(10 * N);
+        assertThat(largePage.getPayrolls()).allSatisfy(row -> assertThat(row.getEmployeeName()).isNotBlank());
+        assertThat(smallStatements).isPositive();
+        assertThat(largeStatements).isEqualTo(smallStatements);
+        
+        // A page reached through a cursor costs the same as the first one
+        PayrollHistoryPageDTO firstPage = payrollService.getPayrollHistory(large, null, N);
+        statistics.clear();
+        PayrollHistoryPageDTO nextPage = payrollService.getPayrollHistory(large, firstPage.getNextCursor(), N);
+        assertThat(nextPage.getPayrolls()).hasSize(N);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(smallStatements);
+    }
+    
+    private Long seed(String name, int employees, int months) {
+        Business business = business(name, employees);
+        Long businessId = business.getId();
+        
+        for (int i = 0; i < employees; i++) {
+            Employee employee = new Employee();
+            employee.setBusiness(business);
+            employee.setFirstName("Employee");
+            employee.setLastName(name + " " + i);
+            employee.setPosition("Waiter");
+            employee.setMonthlySalary(new BigDecimal("800.00"));
+            employee.setIsActive(true);
+            employeeRepository.save(employee);
+        }
+        for (int m = 0; m < months; m++) {
+            payrollService.runPayroll(businessId, FIRST_MONTH.plusMonths(m));
+        }
+        return businessId;
+    }
+}
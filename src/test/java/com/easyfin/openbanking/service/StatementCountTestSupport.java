@@ -0,0 +1,42 @@
+package com.easyfin.openbanking.service;
+
+import com.easyfin.openbanking.enums.BusinessType;
+import com.easyfin.openbanking.enums.TaxStatus;
+import com.easyfin.openbanking.model.Business;
+import com.easyfin.openbanking.repository.BusinessRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Shared context and fixtures for tests that count the SQL statements Hibernate prepares, and for the
+ * benchmarks built on them; SQL logging is off so printing statements doesn't dominate their timings
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+abstract class StatementCountTestSupport {
+    
+    @Autowired
+    protected BusinessRepository businessRepository;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    protected Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+    
+    protected Business business(String name, int employeeCount) {
+        Business business = new Business();
+        business.setBusinessName(name);
+        business.setBusinessType(BusinessType.RESTAURANT);
+        business.setEmployeeCount(employeeCount);
+        business.setTaxStatus(TaxStatus.MICRO_ENTREPRENEUR);
+        business.setIsActive(true);
+        return businessRepository.save(business);
+    }
+}
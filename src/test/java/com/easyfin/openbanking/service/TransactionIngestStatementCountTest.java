@@ -0,0 +1,110 @@
+package com.easyfin.openbanking.service;
+
+import com.easyfin.openbanking.dto.BatchIngestResultDTO;
+import com.easyfin.openbanking.dto.TransactionDTO;
+import com.easyfin.openbanking.enums.TransactionCategory;
+import com.easyfin.openbanking.model.Business;
+import com.easyfin.openbanking.model.Transaction;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Batched ingestion against the per-row createTransactions path on the same fixed batch, compared
+ * by statements prepared in CI and by rows/sec in the benchmark run
+ */
+class TransactionIngestStatementCountTest extends StatementCountTestSupport {
+    
+    private static final int ROWS = 1000;
+    private static final int BENCHMARK_ROWS = 2000;
+    private static final String[] MERCHANTS = {"Bazar Supplier", "Azercell", "Bolt", "Office Paper", "Daily Sales"};
+    
+    @Autowired
+    private TransactionService transactionService;
+    
+    @Autowired
+    private CategorizationService categorizationService;
+    
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size}")
+    private int batchSize;
+    
+    @Test
+    void batchedIngestPreparesStatementsPerBatchNotPerRow() {
+        Statistics statistics = statistics();
+        Business perRowBusiness = business("Per-row Bistro", 1);
+        Business batchBusiness = business("Batched Bistro", 1);
+        List<TransactionDTO> batch = batch(ROWS);
+        
+        statistics.clear();
+        perRow(perRowBusiness, batch);
+        long perRowStatements = statistics.getPrepareStatementCount();
+        
+        statistics.clear();
+        BatchIngestResultDTO result = transactionService.ingestTransactions(batchBusiness, batch);
+        long batchStatements = statistics.getPrepareStatementCount();
+        
+        assertThat(result.getPersisted()).isEqualTo(ROWS);
+        assertThat(statistics.getEntityInsertCount()).isGreaterThanOrEqualTo(ROWS);
+        
+        // Hibernate prepares the insert once per JDBC batch and a pooled sequence hands out a
+        // batch worth of ids per call, so the batch path needs about two statements per batch
+        int batches = (ROWS + batchSize - 1) / batchSize;
+        assertThat(perRowStatements).isGreaterThanOrEqualTo(ROWS);
+        assertThat(batchStatements).isBetween((long) batches, (long) batches * 3);
+    }
+    
+    @Test
+    @Tag(Benchmarks.TAG)
+    void batchedIngestOutrunsPerRowInserts() {
+        List<TransactionDTO> batch = batch(BENCHMARK_ROWS);
+        
+        // A fresh business per run, so every run inserts into the same empty history
+        Benchmarks.Sample perRow = Benchmarks.measure(1, 3, () -> perRow(business("Per-row Bistro", 1), batch));
+        Benchmarks.Sample batched = Benchmarks.measure(1, 3,
+                () -> transactionService.ingestTransactions(business("Batched Bistro", 1), batch));
+        
+        Benchmarks.report("ingest %d rows: per-row %.0f rows/sec, batched %.0f rows/sec",
+                BENCHMARK_ROWS, perRow.perSecond(BENCHMARK_ROWS), batched.perSecond(BENCHMARK_ROWS));
+        assertThat(batched.nanos()).isLessThan(perRow.nanos());
+    }
+    
+    private void perRow(Business business, List<TransactionDTO> rows) {
+        Map<String, TransactionCategory> overrides = categorizationService.overridesFor(business.getId());
+        for (TransactionDTO dto : rows) {
+            Transaction transaction = new Transaction();
+            transaction.setBusiness(business);
+            transaction.setTransactionDate(dto.getTransactionDate());
+            transaction.setAmount(dto.getAmount());
+            transaction.setCurrency("AZN");
+            transaction.setMerchantName(dto.getMerchantName());
+            transaction.setDescription(dto.getDescription());
+            categorizationService.categorizeTransaction(transaction, overrides);
+            transaction.setIsIncome(transaction.getCategory().isIncome());
+            transactionService.createTransactions(List.of(transaction));
+        }
+    }
+    
+    private List<TransactionDTO> batch(int size) {
+        List<TransactionDTO> rows = new ArrayList<>(size);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 12, 0);
+        for (int i = 0; i < size; i++) {
+            TransactionDTO dto = new TransactionDTO();
+            dto.setTransactionDate(start.plusDays(i % 180));
+            dto.setAmount(new BigDecimal(10 + i % 90 + ".50"));
+            dto.setMerchantName(MERCHANTS[i % MERCHANTS.length] + " " + i);
+            dto.setDescription("Throughput row " + i);
+            rows.add(dto);
+        }
+        return rows;
+    }
+}
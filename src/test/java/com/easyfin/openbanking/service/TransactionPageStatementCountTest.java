@@ -0,0 +1,137 @@
+package com.easyfin.openbanking.service;
+
+import com.easyfin.openbanking.dto.TransactionDTO;
+import com.easyfin.openbanking.dto.TransactionPageDTO;
+import com.easyfin.openbanking.enums.TransactionCategory;
+import com.easyfin.openbanking.model.Business;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A transaction page costs the same statements and loads the same number of entities however long
+ * the history behind it is; the benchmark checks the same for latency and allocated bytes
+ */
+class TransactionPageStatementCountTest extends StatementCountTestSupport {
+    
+    private static final int PAGE = 50;
+    private static final LocalDateTime FIRST_DAY = LocalDateTime.of(2023, 1, 1, 9, 0);
+    private static final String[] MERCHANTS = {"Bazar Supplier", "Azercell", "Bolt", "Office Paper", "Daily Sales"};
+    
+    @Autowired
+    private TransactionService transactionService;
+    
+    @Test
+    void pageCostDoesNotGrowWithHistory() {
+        Long small = seed("Small Kiosk", 200);
+        Long large = seed("Large Market", 5000);
+        
+        Statistics statistics = statistics();
+        
+        statistics.clear();
+        TransactionPageDTO smallPage = transactionService.getTransactionPage(small, null, null, null, null, PAGE);
+        long smallStatements = statistics.getPrepareStatementCount();
+        long smallLoads = statistics.getEntityLoadCount();
+        
+        statistics.clear();
+        TransactionPageDTO largePage = transactionService.getTransactionPage(large, null, null, null, null, PAGE);
+        long largeStatements = statistics.getPrepareStatementCount();
+        long largeLoads = statistics.getEntityLoadCount();
+        
+        assertThat(smallPage.getTransactions()).hasSize(PAGE);
+        assertThat(largePage.getTransactions()).hasSize(PAGE);
+        assertThat(largeStatements).isEqualTo(smallStatements);
+        assertThat(largeLoads).isEqualTo(smallLoads);
+        
+        // Deep in the history a page still costs the same as the first one
+        String cursor = largePage.getNextCursor();
+        for (int i = 0; i < 20; i++) {
+            cursor = transactionService.getTransactionPage(large, null, null, null, cursor, PAGE).getNextCursor();
+        }
+        statistics.clear();
+        TransactionPageDTO deepPage = transactionService.getTransactionPage(large, null, null, null, cursor, PAGE);
+        assertThat(deepPage.getTransactions()).hasSize(PAGE);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(smallStatements);
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(smallLoads);
+    }
+    
+    @Test
+    void categoryFilterPagesOnlyThatCategory() {
+        Long businessId = seed("Filtered Cafe", 500);
+        
+        List<TransactionDTO> travel = new ArrayList<>();
+        String cursor = null;
+        do {
+            TransactionPageDTO page = transactionService.getTransactionPage(
+                    businessId, null, null, TransactionCategory.TRAVEL, cursor, PAGE);
+            travel.addAll(page.getTransactions());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        
+        // Every fifth row is a Bolt ride
+        assertThat(travel).hasSize(100);
+        assertThat(travel).allSatisfy(row -> assertThat(row.getCategory()).isEqualTo(TransactionCategory.TRAVEL));
+    }
+    
+    @Test
+    @Tag(Benchmarks.TAG)
+    void pageLatencyAndAllocationStayFlatWithHistory() {
+        Long small = seed("Small Kiosk", 1_000);
+        Long large = seed("Large Market", 100_000);
+        
+        // Discarded, so the first measurement doesn't also pay for JIT compilation
+        measurePage(small, null);
+        measurePage(large, null);
+        
+        Benchmarks.Sample smallPage = measurePage(small, null);
+        Benchmarks.Sample largePage = measurePage(large, null);
+        
+        // Halfway back through the large history
+        String cursor = null;
+        for (int i = 0; i < 100_000 / PAGE / 2; i++) {
+            cursor = transactionService.getTransactionPage(large, null, null, null, cursor, PAGE).getNextCursor();
+        }
+        Benchmarks.Sample deepPage = measurePage(large, cursor);
+        
+        Benchmarks.report("first page, 1k rows: %.3f ms, %d bytes", smallPage.millis(), smallPage.allocatedBytes());
+        Benchmarks.report("first page, 100k rows: %.3f ms, %d bytes", largePage.millis(), largePage.allocatedBytes());
+        Benchmarks.report("page 1000 of 100k rows: %.3f ms, %d bytes", deepPage.millis(), deepPage.allocatedBytes());
+        
+        // Generous bounds; a scan of the history would be orders of magnitude over them
+        assertThat(largePage.allocatedBytes()).isLessThan(smallPage.allocatedBytes() * 2);
+        assertThat(deepPage.allocatedBytes()).isLessThan(smallPage.allocatedBytes() * 2);
+        assertThat(largePage.nanos()).isLessThan(smallPage.nanos() * 5);
+        assertThat(deepPage.nanos()).isLessThan(smallPage.nanos() * 5);
+    }
+    
+    private Benchmarks.Sample measurePage(Long businessId, String cursor) {
+        return Benchmarks.measure(200, 50,
+                () -> transactionService.getTransactionPage(businessId, null, null, null, cursor, PAGE));
+    }
+    
+    private Long seed(String name, int rows) {
+        Business business = business(name, 1);
+        for (int from = 0; from < rows; from += TransactionService.MAX_INGEST_SIZE) {
+            int to = Math.min(rows, from + TransactionService.MAX_INGEST_SIZE);
+            List<TransactionDTO> batch = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                TransactionDTO dto = new TransactionDTO();
+                dto.setTransactionDate(FIRST_DAY.plusHours(i));
+                dto.setAmount(new BigDecimal(10 + i % 90 + ".50"));
+                dto.setMerchantName(MERCHANTS[i % MERCHANTS.length] + " " + i);
+                dto.setDescription("History row " + i);
+                batch.add(dto);
+            }
+            transactionService.ingestTransactions(business, batch);
+        }
+        return business.getId();
+    }
+}